@@ -3,10 +3,12 @@ package in.lakshay;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 // main app entry point - starts the spring boot app
 @SpringBootApplication
 @ComponentScan(basePackages = "in.lakshay") // scan our pkg for components
+@EnableScheduling // background jobs like the seat hold sweeper
 public class MovieReviewSystemApiApplication {
 	// main method - this is where everything begins
 	public static void main(String[] args) {
@@ -1,6 +1,7 @@
 package in.lakshay.controller;
 
 import in.lakshay.dto.ApiResponse;
+import in.lakshay.service.MovieRatingStatsService;
 import in.lakshay.service.ReservationService;
 import in.lakshay.service.UserService;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
@@ -14,6 +15,7 @@ import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
@@ -37,6 +39,9 @@ public class AdminDashboardController {
     @Autowired
     private UserService userService; // for user metrics
 
+    @Autowired
+    private MovieRatingStatsService movieRatingStatsService; // for the rating stats rebuild
+
     @Autowired
     private MessageSource messageSource; // i18n
 
@@ -89,6 +94,23 @@ public class AdminDashboardController {
         ));
     }
 
+    @PostMapping("/rating-stats/rebuild") // recompute movie rating stats from the reviews
+    @RateLimiter(name = "basic")
+    @Operation(summary = "Rebuild movie rating stats",
+            description = "Recomputes the per-movie rating aggregates from the approved reviews")
+    public ResponseEntity<ApiResponse<Map<String, Object>>> rebuildRatingStats() {
+        log.info("Rebuilding movie rating stats");
+        int movies = movieRatingStatsService.rebuild();
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("movies", movies); // how many movies have stats now
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage("dashboard.rating.stats.rebuilt", null, LocaleContextHolder.getLocale()),
+                result
+        ));
+    }
+
     // helper method to calculate percentages
     // avoids division by zero errors
     private double calculatePercentage(long value, long total) {
@@ -1,11 +1,17 @@
 package in.lakshay.controller;
 
 import in.lakshay.dto.ApiResponse;
+import in.lakshay.dto.MovieBrowseDTO;
+import in.lakshay.dto.MovieCardDTO;
 import in.lakshay.dto.MovieDTO;
 import in.lakshay.dto.MovieRequest;
+import in.lakshay.dto.MovieSuggestionDTO;
+import in.lakshay.dto.RankedMovieDTO;
 import in.lakshay.entity.Movie;
 import in.lakshay.exception.ValidationException;
+import in.lakshay.service.MovieRankingService;
 import in.lakshay.service.MovieService;
+import in.lakshay.service.MovieSuggestService;
 import in.lakshay.service.S3BucketService;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import jakarta.validation.Valid;
@@ -34,6 +40,7 @@ import org.springframework.context.i18n.LocaleContextHolder;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Map;
 
 // handles all the movie stuff - CRUD operations, poster uploads, etc
@@ -48,6 +55,12 @@ public class MovieController {
     @Autowired
     private S3BucketService s3BucketService; // handles s3 stuff for posters
 
+    @Autowired
+    private MovieRankingService movieRankingService; // top rated lists
+
+    @Autowired
+    private MovieSuggestService movieSuggestService; // search box autocomplete
+
     @Autowired
     private MessageSource messageSource; // for i18n
 
@@ -60,7 +73,7 @@ public class MovieController {
             @RequestParam(required = false) String year) {
         log.info("Fetching movies with pageable: {}, search: {}, genre: {}, year: {}", pageable, search, genre, year);
 
-        Page<MovieDTO> movies;
+        Page<MovieCardDTO> movies;
 
         // this logic is a bit messy but it works fine
         // might refactor later if we have time
@@ -80,7 +93,7 @@ public class MovieController {
             movies = movieService.findByTitleOrGenreContainingIgnoreCase(search, pageable);
         } else {
             // No filters, just return all movies
-            movies = movieService.findAllWithReviews(pageable); // includes review data too
+            movies = movieService.findAllMovies(pageable); // cards only, reviews are on GET /{id}
         }
 
         return ResponseEntity.ok(new ApiResponse<>(
@@ -90,6 +103,60 @@ public class MovieController {
         ));
     }
 
+    @RateLimiter(name = "basic")
+    @GetMapping("/top") // top rated movies, overall or for one genre / year
+    public ResponseEntity<?> getTopMovies(
+            @RequestParam(required = false) String genre,
+            @RequestParam(required = false) Integer year,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (genre != null && year != null) {
+            throw new ValidationException(List.of("Rank by genre or by year, not both"));
+        }
+        if (limit < 1 || limit > movieRankingService.getTopK()) {
+            throw new ValidationException(List.of("limit must be between 1 and " + movieRankingService.getTopK()));
+        }
+
+        List<RankedMovieDTO> movies = movieRankingService.getTopMovies(genre, year, limit); // served from memory
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage("movie.top.retrieved.success", null, LocaleContextHolder.getLocale()),
+                movies
+        ));
+    }
+
+    @RateLimiter(name = "basic")
+    @GetMapping("/facets") // filtered list + genre/year counts in one response
+    public ResponseEntity<?> browseMovies(
+            @PageableDefault(page = 0, size = 10) Pageable pageable,
+            @RequestParam(required = false) List<String> genre, // repeat for several: any of them
+            @RequestParam(required = false) List<Integer> year,
+            @RequestParam(required = false) String search) {
+        MovieBrowseDTO movies = movieService.browseMovies(genre != null ? genre : List.of(),
+                year != null ? year : List.of(), search, pageable);
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage("movie.facets.retrieved.success", null, LocaleContextHolder.getLocale()),
+                movies
+        ));
+    }
+
+    @RateLimiter(name = "basic")
+    @GetMapping("/suggest") // search box autocomplete - call this per keystroke instead of the search
+    public ResponseEntity<?> suggestMovies(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "10") int limit) {
+        if (limit < 1 || limit > movieSuggestService.getTopK()) {
+            throw new ValidationException(List.of("limit must be between 1 and " + movieSuggestService.getTopK()));
+        }
+
+        List<MovieSuggestionDTO> suggestions = movieSuggestService.suggest(q, limit); // served from memory
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage("movie.suggest.success", null, LocaleContextHolder.getLocale()),
+                suggestions
+        ));
+    }
+
     @GetMapping("/{id}") // get a single movie by id
     public ResponseEntity<?> getMovieById(@PathVariable Long id) {
         log.info("Fetching movie with id: {}", id);
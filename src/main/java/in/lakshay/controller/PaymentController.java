@@ -5,6 +5,7 @@ import in.lakshay.dto.ApiResponse;
 import in.lakshay.dto.PaymentDTO;
 import in.lakshay.dto.CheckoutSessionDTO;
 import in.lakshay.dto.PaymentRequest;
+import in.lakshay.service.IdempotencyService;
 import in.lakshay.service.PaymentService;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
@@ -31,6 +32,9 @@ public class PaymentController {
     @Autowired // TODO: switch to constructor injection
     private PaymentService paymentService; // handles payment processing
 
+    @Autowired
+    private IdempotencyService idempotencyService; // replays retried requests
+
     @Autowired
     private MessageSource messageSource; // i18n
 
@@ -39,7 +43,8 @@ public class PaymentController {
     @RateLimiter(name = "basic") // prevent abuse
     @Operation(summary = "Create checkout session", description = "Creates a Stripe checkout session for a reservation")
     public ResponseEntity<ApiResponse<CheckoutSessionDTO>> createCheckoutSession(
-            @Valid @RequestBody PaymentRequest paymentRequest) {
+            @Valid @RequestBody PaymentRequest paymentRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) { // for safe retries
 
         log.info("Creating checkout session for reservation: {}", paymentRequest.getReservationId());
 
@@ -59,8 +64,11 @@ public class PaymentController {
             }
 
             // create the checkout session with stripe
-            CheckoutSessionDTO checkoutSessionDTO = paymentService.createCheckoutSession(
-                    paymentRequest.getReservationId(), successUrl, cancelUrl);
+            // retries with the same Idempotency-Key get the same session back, no second stripe call
+            String username = SecurityContextHolder.getContext().getAuthentication().getName();
+            CheckoutSessionDTO checkoutSessionDTO = idempotencyService.execute(
+                    idempotencyKey, username, "payment.checkout-session", paymentRequest, CheckoutSessionDTO.class,
+                    () -> paymentService.createCheckoutSession(paymentRequest.getReservationId(), successUrl, cancelUrl));
 
             return ResponseEntity.ok(new ApiResponse<>(
                     true,
@@ -76,6 +84,15 @@ public class PaymentController {
                             "Stripe error: " + e.getMessage(),
                             null
                     ));
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            // bad request - eg an Idempotency-Key reused for another reservation or still in flight
+            log.warn("Rejected checkout session request: {}", e.getMessage());
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(
+                            false,
+                            e.getMessage(),
+                            null
+                    ));
         } catch (Exception e) {
             // something else went wrong
             log.error("Error creating checkout session: {}", e.getMessage());
@@ -1,8 +1,10 @@
 package in.lakshay.controller;
 
 import in.lakshay.dto.ApiResponse;
+import in.lakshay.dto.BestAvailableRequest;
 import in.lakshay.dto.ReservationDTO;
 import in.lakshay.dto.ReservationRequest;
+import in.lakshay.service.IdempotencyService;
 import in.lakshay.service.ReservationService;
 import in.lakshay.util.Constants;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
@@ -38,6 +40,9 @@ public class ReservationController {
     @Autowired // todo: switch to constructor injection someday when I have time
     private ReservationService reservationService; // handles business logic
 
+    @Autowired
+    private IdempotencyService idempotencyService; // replays retried creates
+
     @Autowired
     private MessageSource messageSource; // for i18n messages
 
@@ -178,16 +183,21 @@ public class ReservationController {
     @PreAuthorize("isAuthenticated()") // must be logged in
     @Operation(summary = "Create a reservation", description = "Creates a new reservation for the authenticated user (payment required to complete)")
     public ResponseEntity<ApiResponse<ReservationDTO>> createReservation(
-            @Valid @RequestBody ReservationRequest reservationRequest) {
+            @Valid @RequestBody ReservationRequest reservationRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) { // for safe retries
         String username = SecurityContextHolder.getContext().getAuthentication().getName();
-        log.info("Creating reservation for user: {} for showtime: {} with seats: {}",
-                username, reservationRequest.getShowtimeId(), reservationRequest.getSeatIds());
+        log.info("Creating reservation for user: {} for showtime: {} with seats: {} {}",
+                username, reservationRequest.getShowtimeId(), reservationRequest.getSeatIds(),
+                reservationRequest.getSeatNumbers());
 
         try {
             // this might fail if seats are already taken - race condition
-            // TODO: maybe add some kind of temporary seat locking mechanism?
-            ReservationDTO reservation = reservationService.createReservation(
-                    username, reservationRequest.getShowtimeId(), reservationRequest.getSeatIds());
+            // a retry with the same Idempotency-Key gets the first result back instead of booking again
+            ReservationDTO reservation = idempotencyService.execute(
+                    idempotencyKey, username, "reservation.create", reservationRequest, ReservationDTO.class,
+                    () -> reservationService.createReservation(
+                            username, reservationRequest.getShowtimeId(), reservationRequest.getSeatIds(),
+                            reservationRequest.getSeatNumbers()));
 
             // 201 Created status
             return ResponseEntity.status(HttpStatus.CREATED)
@@ -208,6 +218,40 @@ public class ReservationController {
         }
     }
 
+    @PostMapping("/best-available") // server picks the seats
+    @PreAuthorize("isAuthenticated()")
+    @Operation(summary = "Reserve best available seats", description = "Reserves the best block of adjacent free seats for a group (payment required to complete)")
+    public ResponseEntity<ApiResponse<ReservationDTO>> createBestAvailableReservation(
+            @Valid @RequestBody BestAvailableRequest bestAvailableRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        log.info("Creating best-available reservation for user: {} for showtime: {} with {} seats",
+                username, bestAvailableRequest.getShowtimeId(), bestAvailableRequest.getQuantity());
+
+        try {
+            // no seat map download + retry loop on the client anymore
+            ReservationDTO reservation = idempotencyService.execute(
+                    idempotencyKey, username, "reservation.best-available", bestAvailableRequest, ReservationDTO.class,
+                    () -> reservationService.createBestAvailableReservation(
+                            username, bestAvailableRequest.getShowtimeId(), bestAvailableRequest.getQuantity()));
+
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .body(new ApiResponse<>(
+                            true,
+                            messageSource.getMessage("reservation.created.success", null, LocaleContextHolder.getLocale()),
+                            reservation
+                    ));
+        } catch (RuntimeException e) {
+            // sold out, no block big enough, past showtime...
+            return ResponseEntity.badRequest()
+                    .body(new ApiResponse<>(
+                            false,
+                            e.getMessage(),
+                            null
+                    ));
+        }
+    }
+
     @DeleteMapping("/{id}") // cancel reservation
     @PreAuthorize("isAuthenticated()")
     @Operation(summary = "Cancel a reservation", description = "Cancels an existing reservation")
@@ -1,7 +1,9 @@
 package in.lakshay.controller;
 
 import in.lakshay.dto.ApiResponse;
+import in.lakshay.dto.NearDuplicateClusterDTO;
 import in.lakshay.dto.ReviewDTO;
+import in.lakshay.dto.ReviewPageDTO;
 import in.lakshay.dto.ReviewRequest;
 import in.lakshay.dto.ReviewVoteDTO;
 import in.lakshay.dto.ReviewVoteRequest;
@@ -142,6 +144,28 @@ public class ReviewController {
         ));
     }
 
+    @RateLimiter(name = "basic")
+    @GetMapping("/movies/{movieId}/page") // paginated version of the above
+    @Operation(summary = "Get a page of reviews for a movie",
+            description = "Keyset paginated reviews, sort = newest | top | rating. Pass nextCursor back as cursor for the next page")
+    public ResponseEntity<ApiResponse<ReviewPageDTO>> getReviewPageByMovie(
+            @PathVariable Long movieId,
+            @RequestParam(defaultValue = "newest") String sort,
+            @RequestParam(required = false) String cursor, // null = first page
+            @RequestParam(defaultValue = "20") int size) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        ReviewPageDTO page = reviewService.getReviewPageByMovie(movieId, username, sort, cursor, size);
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage(
+                        "review.retrieved.success",
+                        null,
+                        LocaleContextHolder.getLocale()
+                ),
+                page
+        ));
+    }
+
     @RateLimiter(name = "basic")
     @GetMapping("/pending") // reviews waiting for approval
     @PreAuthorize("hasRole('ADMIN')") // admin only
@@ -165,6 +189,70 @@ public class ReviewController {
         ));
     }
 
+    @RateLimiter(name = "basic")
+    @GetMapping("/tags/{tag}") // reviews with a helpful tag
+    @Operation(summary = "Get reviews by tag",
+            description = "Approved reviews with the given helpful tag, newest first. movieId narrows it to one movie")
+    public ResponseEntity<ApiResponse<Page<ReviewDTO>>> getReviewsByTag(
+            @PathVariable String tag,
+            @RequestParam(required = false) Long movieId,
+            @PageableDefault(size = 20) Pageable pageable) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Page<ReviewDTO> reviews = reviewService.getReviewsByTag(tag, movieId, pageable, username);
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage(
+                        "review.tag.retrieved.success",
+                        null,
+                        LocaleContextHolder.getLocale()
+                ),
+                reviews
+        ));
+    }
+
+    @RateLimiter(name = "basic")
+    @GetMapping("/search") // full-text search over review comments
+    @Operation(summary = "Search reviews",
+            description = "Approved reviews whose comment matches the query, best matches first. movieId narrows it to one movie")
+    public ResponseEntity<ApiResponse<Page<ReviewDTO>>> searchReviews(
+            @RequestParam String q,
+            @RequestParam(required = false) Long movieId,
+            @PageableDefault(size = 20) Pageable pageable) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        Page<ReviewDTO> reviews = reviewService.searchReviews(q, movieId, pageable, username);
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage(
+                        "review.search.success",
+                        null,
+                        LocaleContextHolder.getLocale()
+                ),
+                reviews
+        ));
+    }
+
+    @RateLimiter(name = "basic")
+    @GetMapping("/near-duplicates") // spam detection
+    @PreAuthorize("hasRole('ADMIN')") // admin only
+    @Operation(summary = "Get clusters of near-duplicate reviews",
+            description = "Groups of reviews with nearly the same text, biggest first (Admin only)")
+    public ResponseEntity<ApiResponse<List<NearDuplicateClusterDTO>>> getNearDuplicateClusters(
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestParam(defaultValue = "20") int reviewsPerCluster) {
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        List<NearDuplicateClusterDTO> clusters = reviewService.getNearDuplicateClusters(username,
+                Math.max(1, Math.min(limit, 100)), Math.max(1, Math.min(reviewsPerCluster, 100)));
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage(
+                        "review.near.duplicates.retrieved.success",
+                        null,
+                        LocaleContextHolder.getLocale()
+                ),
+                clusters
+        ));
+    }
+
     @RateLimiter(name = "basic")
     @PutMapping("/{reviewId}/approve")
     @PreAuthorize("hasRole('ADMIN')")
@@ -1,11 +1,13 @@
 package in.lakshay.controller;
 
 import in.lakshay.dto.ApiResponse;
+import in.lakshay.dto.SeatBitmapDTO;
 import in.lakshay.dto.SeatDTO;
 import in.lakshay.entity.Seat;
 import in.lakshay.entity.Showtime;
 import in.lakshay.repo.ShowtimeRepository;
 import in.lakshay.service.SeatService;
+import in.lakshay.service.SeatStreamService;
 import in.lakshay.util.Constants;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
 import io.swagger.v3.oas.annotations.Operation;
@@ -14,9 +16,14 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.MessageSource;
 import org.springframework.context.i18n.LocaleContextHolder;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -25,9 +32,15 @@ import java.util.List;
 @Slf4j // for logging
 @Tag(name = "Seats", description = "Seat management APIs") // swagger docs
 public class SeatController {
+    // Accept header value for the compact seat map
+    private static final String SEAT_BITMAP_MEDIA_TYPE = "application/vnd.seatmap.bitmap+json";
+
     @Autowired // TODO: switch to constructor injection
     private SeatService seatService; // handles seat business logic
 
+    @Autowired
+    private SeatStreamService seatStreamService; // live seat map streams
+
     @Autowired
     private ShowtimeRepository showtimeRepository; // for direct showtime access
 
@@ -37,8 +50,18 @@ public class SeatController {
     @RateLimiter(name = "basic") // prevent abuse
     @GetMapping("/showtimes/{showtimeId}") // get all seats for a showtime
     // No authentication required for this endpoint - public access
-    @Operation(summary = "Get all seats for a showtime", description = "Returns all seats for a specific showtime (public)")
-    public ResponseEntity<ApiResponse<List<SeatDTO>>> getSeatsByShowtime(@PathVariable Long showtimeId) {
+    @Operation(summary = "Get all seats for a showtime",
+            description = "Returns all seats for a specific showtime (public). With ?format=bitmap or Accept: "
+                    + SEAT_BITMAP_MEDIA_TYPE + " returns the compact layout + bitmap form instead, cacheable by ETag")
+    public ResponseEntity<? extends ApiResponse<?>> getSeatsByShowtime(
+            @PathVariable Long showtimeId,
+            @RequestParam(required = false) String format, // "bitmap" for the compact form
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest webRequest) {
+        if ("bitmap".equals(format) || (accept != null && accept.contains(SEAT_BITMAP_MEDIA_TYPE))) {
+            return seatBitmapResponse(showtimeId, webRequest);
+        }
+
         log.info("Fetching seats for showtime id: {}", showtimeId);
         // get all seats regardless of reservation status
         List<SeatDTO> seats = seatService.getSeatsByShowtime(showtimeId);
@@ -67,6 +90,17 @@ public class SeatController {
         ));
     }
 
+    @RateLimiter(name = "basic")
+    @GetMapping(value = "/showtimes/{showtimeId}/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    // public like the seat map itself
+    @Operation(summary = "Stream seat availability for a showtime",
+            description = "Server-sent events: one 'snapshot' with the whole seat map, then a 'delta' for every seat change (public)")
+    public SseEmitter streamSeatsByShowtime(@PathVariable Long showtimeId) {
+        log.debug("Opening seat stream for showtime id: {}", showtimeId);
+        // replaces polling /showtimes/{id} every second - changes are pushed instead
+        return seatStreamService.subscribe(showtimeId);
+    }
+
     @RateLimiter(name = "basic")
     @PostMapping("/showtimes/{showtimeId}/create")
     @PreAuthorize("hasRole('ROLE_ADMIN')") // admin only
@@ -83,4 +117,24 @@ public class SeatController {
                 seats
         ));
     }
+    // 304 straight from the seat map + layout version when the client is up to date
+    private ResponseEntity<ApiResponse<SeatBitmapDTO>> seatBitmapResponse(Long showtimeId, WebRequest webRequest) {
+        if (webRequest.checkNotModified(etag(seatService.getSeatMapVersion(showtimeId)))) {
+            return null; // spring already set up the 304
+        }
+
+        SeatBitmapDTO bitmap = seatService.getSeatBitmap(showtimeId);
+        return ResponseEntity.ok()
+                .eTag(etag(bitmap.getVersion()))
+                .cacheControl(CacheControl.noCache()) // always revalidate, seats change all the time
+                .body(new ApiResponse<>(
+                        true,
+                        messageSource.getMessage("seats.retrieved.success", null, LocaleContextHolder.getLocale()),
+                        bitmap
+                ));
+    }
+
+    private String etag(String version) {
+        return "\"" + version + "\"";
+    }
 } // end of SeatController
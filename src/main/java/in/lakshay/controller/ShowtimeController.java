@@ -1,6 +1,7 @@
 package in.lakshay.controller;
 
 import in.lakshay.dto.ApiResponse;
+import in.lakshay.dto.SeatGenerationReportDTO;
 import in.lakshay.dto.ShowtimeDTO;
 import in.lakshay.dto.ShowtimeRequest;
 import in.lakshay.entity.Movie;
@@ -8,6 +9,7 @@ import in.lakshay.entity.Showtime;
 import in.lakshay.entity.Theater;
 import in.lakshay.repo.MovieRepository;
 import in.lakshay.repo.TheaterRepository;
+import in.lakshay.service.SeatService;
 import in.lakshay.service.ShowtimeService;
 import in.lakshay.util.Constants;
 import io.github.resilience4j.ratelimiter.annotation.RateLimiter;
@@ -38,6 +40,9 @@ public class ShowtimeController {
     @Autowired // TODO: switch to constructor injection
     private ShowtimeService showtimeService; // handles business logic
 
+    @Autowired
+    private SeatService seatService; // bulk seat generation
+
     @Autowired
     private MovieRepository movieRepository; // for movie lookups
 
@@ -178,6 +183,20 @@ public class ShowtimeController {
                 ));
     }
 
+    @PostMapping("/seats/generate")
+    @PreAuthorize("hasRole('ROLE_ADMIN')") // admin only
+    @Operation(summary = "Generate seats for showtimes", description = "Creates seats for many showtimes in one go and reports the throughput (Admin only)")
+    public ResponseEntity<ApiResponse<SeatGenerationReportDTO>> generateSeats(@RequestBody List<Long> showtimeIds) {
+        log.info("Generating seats for {} showtimes", showtimeIds.size());
+        // showtimes that already have seats are skipped
+        SeatGenerationReportDTO report = seatService.generateSeatsForShowtimes(showtimeIds);
+        return ResponseEntity.ok(new ApiResponse<>(
+                true,
+                messageSource.getMessage("seats.created.success", null, LocaleContextHolder.getLocale()),
+                report
+        ));
+    }
+
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ROLE_ADMIN')") // admin only
     @Operation(summary = "Update a showtime", description = "Updates an existing showtime (Admin only)")
@@ -88,7 +88,7 @@ public class TheaterController {
         theater.setCapacity(theaterRequest.getCapacity()); // num of seats
 
         // save to db
-        TheaterDTO savedTheater = theaterService.addTheater(theater);
+        TheaterDTO savedTheater = theaterService.addTheater(theater, theaterRequest.getSeatLayout());
 
         return ResponseEntity.status(HttpStatus.CREATED)
                 .body(new ApiResponse<>(
@@ -113,7 +113,7 @@ public class TheaterController {
         theater.setCapacity(theaterRequest.getCapacity()); // be careful changing this if showtimes exist!
 
         // update in db - will throw 404 if not found
-        TheaterDTO updatedTheater = theaterService.updateTheater(id, theater);
+        TheaterDTO updatedTheater = theaterService.updateTheater(id, theater, theaterRequest.getSeatLayout());
 
         return ResponseEntity.ok(new ApiResponse<>(
                 true,
@@ -0,0 +1,18 @@
+package in.lakshay.dto;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+
+// "give me N seats together" - the server picks the seats
+@Data
+public class BestAvailableRequest {
+    @NotNull(message = "Showtime ID is required")
+    private Long showtimeId;
+
+    @NotNull(message = "Quantity is required")
+    @Min(value = 1, message = "Quantity must be at least 1")
+    @Max(value = 10, message = "Quantity cannot be more than 10") // same limit as ReservationService
+    private Integer quantity;
+}
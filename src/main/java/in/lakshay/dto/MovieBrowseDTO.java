@@ -0,0 +1,18 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.domain.Page;
+
+import java.util.Map;
+
+// a page of filtered movies plus how many movies each genre / year would have with the other filters
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MovieBrowseDTO {
+    private Page<MovieCardDTO> movies;
+    private Map<String, Long> genres; // genre -> movies, most first
+    private Map<Integer, Long> years; // release year -> movies, newest first
+}
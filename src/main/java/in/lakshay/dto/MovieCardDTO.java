@@ -0,0 +1,19 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one movie in a listing - just what a movie card shows, reviews/description/histogram are on the detail page
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MovieCardDTO {
+    private Long id;
+    private String title;
+    private String genre; // comma-sep for multiple genres
+    private int releaseYear;
+    private String posterImageUrl;
+    private Double averageRating; // null if nobody rated it yet
+    private long reviewCount;
+}
@@ -3,6 +3,7 @@ package in.lakshay.dto;
 import lombok.*;
 
 import java.util.List;
+import java.util.Map;
 
 // movie data for frontend
 @Data // lombok ftw
@@ -17,4 +18,12 @@ public class MovieDTO {
     private String posterImageUrl; // s3 bucket url
 
     private List<ReviewDTO> reviews; // null if no reviews yet
+
+    // from movie_rating_stats, approved reviews only
+    private Double averageRating; // null if nobody rated it yet
+    private Long reviewCount;
+    private List<Long> ratingHistogram; // number of 1..5 star reviews
+
+    // tag facets - tag -> approved reviews with it, most used first (movie detail only, null in listings)
+    private Map<String, Long> tagCounts;
 }
\ No newline at end of file
@@ -0,0 +1,16 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one search box suggestion
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class MovieSuggestionDTO {
+    private Long movieId;
+    private String title;
+    private int releaseYear;
+    private long popularity; // paid reservations + approved reviews - what suggestions are sorted by
+}
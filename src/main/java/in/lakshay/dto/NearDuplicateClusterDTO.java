@@ -0,0 +1,16 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// reviews whose text is nearly identical - likely the same spammer
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class NearDuplicateClusterDTO {
+    private int size; // reviews in the group, can be more than listed below
+    private List<ReviewDTO> reviews;
+}
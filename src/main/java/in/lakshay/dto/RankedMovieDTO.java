@@ -0,0 +1,19 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// one entry of a top movies list
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class RankedMovieDTO {
+    private Long movieId;
+    private String title;
+    private String genre;
+    private int releaseYear;
+    private double score; // bayesian average - what the list is sorted by
+    private double averageRating; // plain average of the (weighted) ratings
+    private long reviewCount;
+}
@@ -30,6 +30,7 @@ public class ReservationDTO {
     private String statusValue; // human readable status
     private Double totalPrice; // how much paid
     private boolean paid; // payment status
+    private LocalDateTime holdExpiresAt; // unpaid reservations get canceled after this
 
     private ShowtimeDTO showtime; // full showtime details
 
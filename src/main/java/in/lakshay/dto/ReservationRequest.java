@@ -1,6 +1,5 @@
 package in.lakshay.dto;
 
-import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
 import lombok.Data;
 
@@ -12,9 +11,11 @@ public class ReservationRequest {
     @NotNull(message = "Showtime ID is required")
     private Long showtimeId;  // which showing
 
-    @NotEmpty(message = "At least one seat must be selected") // cant book 0 seats!
+    // one of seatIds/seatNumbers is required - checked in ReservationService (cant book 0 seats!)
     private List<Long> seatIds;  // which seats to reserve
 
+    private List<String> seatNumbers;  // or pick them by label like "A1" - needed in virtual seat mode
+
     // note: user comes from auth context
     // price calculated on server side
 }
@@ -0,0 +1,18 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// one page of a movie's reviews - pass nextCursor back to get the next page
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ReviewPageDTO {
+    private List<ReviewDTO> reviews;
+    private String sort;        // newest, top or rating
+    private String nextCursor;  // opaque, null on the last page
+    private boolean hasMore;
+}
@@ -0,0 +1,20 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// compact seat map - the theater layout once plus one bit per seat
+// seat i is the i-th seat of the layout (row by row, blocked seats skipped),
+// its bit is bit (i % 8) of byte (i / 8) of the decoded bitmap, 1 = not available
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatBitmapDTO {
+    private Long showtimeId;
+    private String version;  // same value as the ETag header
+    private Integer seatCount;
+    private Integer availableSeats;
+    private SeatLayoutSpec layout;  // clients expand this into seat labels
+    private String reserved;  // base64 bitmap
+}
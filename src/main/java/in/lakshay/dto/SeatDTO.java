@@ -13,6 +13,7 @@ public class SeatDTO {
     private Long showtimeId;  // which showing
     private String seatNumber;  // like "A1", "B5" etc
     private Boolean isReserved;  // taken or not
+    private String seatClass;  // from the theater layout, eg STANDARD / PREMIUM
 
     // TODO: maybe add price per seat later?
 }
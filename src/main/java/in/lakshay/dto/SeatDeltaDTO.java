@@ -0,0 +1,19 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// seat state change pushed on the seat stream
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatDeltaDTO {
+    private Long showtimeId;
+    private Long version;  // goes up by 1 per delta, a gap means the client missed something and should reconnect
+    private List<String> seatNumbers;
+    private Boolean isReserved;  // new state of all the seats above
+    private Integer availableSeats;
+}
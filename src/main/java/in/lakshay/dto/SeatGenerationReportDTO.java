@@ -0,0 +1,18 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// result of a bulk seat generation run - mostly so admins can see how fast it went
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatGenerationReportDTO {
+    private int showtimesRequested;
+    private int showtimesGenerated; // showtimes that got new seats
+    private int showtimesSkipped; // already had seats
+    private int seatsCreated;
+    private long elapsedMillis; // time spent generating + inserting (before commit)
+    private double seatsPerSecond;
+}
@@ -0,0 +1,30 @@
+package in.lakshay.dto;
+
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+// declarative seat layout for a theater - stored as json on the theater
+// eg {"rows": 15, "seatsPerRow": 10, "aisles": [5], "blockedSeats": ["A1"], "seatClasses": {"PREMIUM": ["N", "O"]}}
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatLayoutSpec {
+    @NotNull(message = "Number of rows is required")
+    @Min(value = 1, message = "Layout needs at least one row")
+    private Integer rows;  // rows are labelled A, B, ... Z, AA, AB ...
+
+    @NotNull(message = "Seats per row is required")
+    @Min(value = 1, message = "Layout needs at least one seat per row")
+    private Integer seatsPerRow;
+
+    private Map<String, Integer> rowSeats;  // per-row override, row label -> seats (eg a short back row)
+    private List<Integer> aisles;  // aisle after these seat numbers - only affects rendering
+    private List<String> blockedSeats;  // seats in the grid that aren't sold, like "A1"
+    private Map<String, List<String>> seatClasses;  // class -> row labels, everything else is STANDARD
+}
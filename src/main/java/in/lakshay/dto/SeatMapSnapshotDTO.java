@@ -0,0 +1,18 @@
+package in.lakshay.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// first message on the seat stream - the whole seat map, deltas follow
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class SeatMapSnapshotDTO {
+    private Long showtimeId;
+    private Long version;  // deltas with a version <= this are already included
+    private Integer availableSeats;
+    private List<SeatDTO> seats;
+}
@@ -13,6 +13,7 @@ public class TheaterDTO {
     private String name;  // theater name
     private String location;  // address
     private Integer capacity;  // max ppl
+    private SeatLayoutSpec seatLayout;  // null = default grid
 
     // TODO: maybe add screens/halls later?
 }
@@ -1,5 +1,6 @@
 package in.lakshay.dto;
 
+import jakarta.validation.Valid;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -16,7 +17,10 @@ public class TheaterRequest {
 
     @NotNull(message = "Theater capacity is required")
     @Min(value = 1, message = "Capacity must be at least 1") // cant have 0 capacity lol
-    private Integer capacity;  // how many seats total
+    private Integer capacity;  // how many seats total - taken from the seat layout if one is given
+
+    @Valid
+    private SeatLayoutSpec seatLayout;  // optional - rows, aisles, blocked seats, seat classes
 
     // TODO: maybe add multiple screens/halls later?
 }
@@ -0,0 +1,46 @@
+package in.lakshay.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+// remembers the result of a request sent with an Idempotency-Key header
+// so a retried request gets the same answer instead of doing the work twice
+@Entity
+@Data
+@Table(name = "idempotency_keys", uniqueConstraints = {
+    @UniqueConstraint(columnNames = {"username", "operation", "idempotency_key"}) // keys are per user + endpoint
+})
+public class IdempotencyKey {
+    public static final String IN_PROGRESS = "IN_PROGRESS";
+    public static final String COMPLETED = "COMPLETED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "idempotency_key", nullable = false)
+    private String idempotencyKey;  // whatever the client sent
+
+    @Column(nullable = false)
+    private String username;
+
+    @Column(nullable = false, length = 50)
+    private String operation;  // which endpoint, eg "reservation.create"
+
+    @Column(name = "request_hash", nullable = false, length = 64)
+    private String requestHash;  // sha-256 of the request body - same key with a different body is an error
+
+    @Column(nullable = false, length = 20)
+    private String status;  // IN_PROGRESS until the first request finishes
+
+    @Column(name = "response_body", columnDefinition = "TEXT")
+    private String responseBody;  // json of the result
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "expires_at", nullable = false)
+    private LocalDateTime expiresAt;
+}
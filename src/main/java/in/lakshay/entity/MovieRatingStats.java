@@ -0,0 +1,42 @@
+package in.lakshay.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// rating aggregate of a movie's approved reviews, kept up to date by ReviewService on every write
+// so movie pages/listings get the average + star histogram without an AVG over the reviews table
+@Entity
+@Data
+@Table(name = "movie_rating_stats")
+public class MovieRatingStats {
+    @Id
+    @Column(name = "movie_id")
+    private Long movieId;  // one row per movie that has approved reviews
+
+    @Column(name = "review_count", nullable = false)
+    private long reviewCount;
+
+    @Column(name = "rating_sum", nullable = false)
+    private long ratingSum;  // average = ratingSum / reviewCount
+
+    // histogram - how many 1..5 star reviews
+    @Column(name = "stars_1", nullable = false)
+    private long stars1;
+
+    @Column(name = "stars_2", nullable = false)
+    private long stars2;
+
+    @Column(name = "stars_3", nullable = false)
+    private long stars3;
+
+    @Column(name = "stars_4", nullable = false)
+    private long stars4;
+
+    @Column(name = "stars_5", nullable = false)
+    private long stars5;
+
+    // null if there are no approved reviews, same as AVG() used to return
+    public Double getAverageRating() {
+        return reviewCount > 0 ? (double) ratingSum / reviewCount : null;
+    }
+}
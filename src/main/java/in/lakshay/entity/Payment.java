@@ -50,6 +50,7 @@ public class Payment {
         PENDING,  // initial state
         SUCCEEDED, // payment completed successfully
         FAILED,   // payment failed
+        REFUND_NEEDED, // money arrived after the seat hold expired and the stripe refund failed - refund it by hand
         REFUNDED  // payment was refunded
     }
 
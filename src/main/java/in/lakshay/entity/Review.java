@@ -1,5 +1,6 @@
 package in.lakshay.entity;
 
+import in.lakshay.util.ContentHash;
 import jakarta.persistence.*;
 import lombok.Data;
 
@@ -40,6 +41,10 @@ public class Review {
     @Column(name = "downvotes")
     private Integer downvotes = 0;  // number of downvotes
 
+    // upvotes - downvotes, computed by mysql (generated column) so it can be indexed for the "top" sort
+    @Column(name = "helpful_score", insertable = false, updatable = false)
+    private Integer helpfulScore;
+
     @Column(name = "helpful_tags") // comma-separated list of tags
     private String helpfulTags;  // eg: "funny,insightful,accurate"
 
@@ -47,17 +52,28 @@ public class Review {
     @Enumerated(EnumType.STRING) // store enum as string in db
     private ReviewStatus status = ReviewStatus.APPROVED;  // default to approved
 
+    @Column(name = "moderation_note")
+    private String moderationNote;  // why the moderation checks flagged it, null if they didn't
+
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;  // hash of the normalized comment - for spotting copy-pasted reviews
+
+    @Column(name = "simhash")
+    private Long simhash;  // similarity signature of the comment, see NearDuplicateService (0 = too short)
+
     // auto-set timestamps on create
     @PrePersist
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now(); // same as created initially
+        contentHash = ContentHash.of(comment);
     }
 
     // auto-update the updated_at timestamp
     @PreUpdate
     protected void onUpdate() {
         updatedAt = LocalDateTime.now(); // update the timestamp
+        contentHash = ContentHash.of(comment); // comment may have been edited
     }
 
     // possible review statuses
@@ -0,0 +1,17 @@
+package in.lakshay.entity;
+
+import jakarta.persistence.*;
+import lombok.Data;
+
+// a review tag like "funny" or "insightful" - reviews point at these through review_tags
+@Entity
+@Data
+@Table(name = "tags")
+public class Tag {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, unique = true, length = 50)
+    private String name;  // always lowercase
+}
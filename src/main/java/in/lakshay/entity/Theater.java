@@ -24,6 +24,9 @@ public class Theater {
     @Column(nullable = false)
     private Integer capacity; // total seats in theater
 
+    @Column(name = "seat_layout", columnDefinition = "TEXT")
+    private String seatLayout; // SeatLayoutSpec as json, null = default square-ish grid
+
     // one theater can have many showtimes
     @OneToMany(mappedBy = "theater", cascade = CascadeType.ALL)
     private List<Showtime> showtimes = new ArrayList<>(); // init empty list
@@ -0,0 +1,15 @@
+package in.lakshay.event;
+
+// the approved ratings of a movie changed (review added/edited/approved/rejected) - fired after commit
+// MovieRankingService re-scores just that movie
+public class MovieRatingChangedEvent {
+    private final Long movieId;
+
+    public MovieRatingChangedEvent(Long movieId) {
+        this.movieId = movieId;
+    }
+
+    public Long getMovieId() {
+        return movieId;
+    }
+}
@@ -0,0 +1,15 @@
+package in.lakshay.event;
+
+// a review's text or status changed (added, edited, approved, rejected) - fired after commit
+// ReviewSearchService reloads it and updates the search index
+public class ReviewChangedEvent {
+    private final Long reviewId;
+
+    public ReviewChangedEvent(Long reviewId) {
+        this.reviewId = reviewId;
+    }
+
+    public Long getReviewId() {
+        return reviewId;
+    }
+}
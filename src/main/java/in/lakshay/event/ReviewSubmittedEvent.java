@@ -0,0 +1,15 @@
+package in.lakshay.event;
+
+// a review was written or edited and is waiting in PENDING - fired after commit
+// ReviewModerationService queues it for the moderation checks
+public class ReviewSubmittedEvent {
+    private final Long reviewId;
+
+    public ReviewSubmittedEvent(Long reviewId) {
+        this.reviewId = reviewId;
+    }
+
+    public Long getReviewId() {
+        return reviewId;
+    }
+}
@@ -0,0 +1,30 @@
+package in.lakshay.event;
+
+import java.util.List;
+
+// seats of a showtime got reserved or freed - fired once the change is committed
+// (or, for a claim that got rolled back, once the in-memory seat map gave the seats back)
+// SeatStreamService turns these into deltas for the live seat map stream
+public class SeatStateChangedEvent {
+    private final Long showtimeId;
+    private final List<String> seatNumbers;
+    private final boolean reserved;
+
+    public SeatStateChangedEvent(Long showtimeId, List<String> seatNumbers, boolean reserved) {
+        this.showtimeId = showtimeId;
+        this.seatNumbers = List.copyOf(seatNumbers);
+        this.reserved = reserved;
+    }
+
+    public Long getShowtimeId() {
+        return showtimeId;
+    }
+
+    public List<String> getSeatNumbers() {
+        return seatNumbers;
+    }
+
+    public boolean isReserved() {
+        return reserved;
+    }
+}
@@ -2,11 +2,52 @@ package in.lakshay.repo;
 
 import jakarta.persistence.EntityManager;
 
+import java.util.List;
+import java.util.Map;
+
 // custom interface for reservation repo
 // gives access to entity manager for complex ops
-// not much here yet, but might add more custom methods later
+// plus the single-statement seat claim/release updates used by ReservationService
 public interface CustomReservationRepository {
     // get entity manager for low-level db ops
     // needed for some complex reservation operations
     EntityManager getEntityManager(); // for manual queries/transactions
+
+    // marks the seats as reserved for the reservation, but only the ones still free
+    // returns the number of seats actually claimed - caller must compare with seatIds.size()
+    int claimSeats(Long reservationId, Long showtimeId, List<Long> seatIds);
+
+    // virtual seat mode - books seats by label, creating their rows on the fly
+    // the (showtime_id, seat_number) unique key is what makes this atomic
+    // returns the number of seats now held by the reservation - caller must compare with seatNumbers.size()
+    int claimSeatsByNumber(Long reservationId, Long showtimeId, List<String> seatNumbers);
+
+    // frees every seat held by the reservation, returns how many were freed
+    int releaseSeats(Long reservationId);
+
+    // bulk version for the seat hold sweeper
+    int releaseSeats(List<Long> reservationIds);
+
+    // locks and returns the given reservations that are still unpaid holds (statusId=1)
+    // anything paid or canceled in the meantime is left out
+    List<Long> lockExpirableReservations(List<Long> reservationIds);
+
+    // virtual seat mode release - free seats don't have rows, so just drop them
+    int deleteSeats(List<Long> reservationIds);
+
+    // seat numbers held by the reservations, grouped by showtime id
+    Map<Long, List<String>> findSeatNumbersByShowtime(List<Long> reservationIds);
+
+    // statusId -> 3 (CANCELED) for all of them in one go
+    int cancelReservations(List<Long> reservationIds);
+
+    // marks the reservation paid (statusId -> 2) unless it was canceled/expired first
+    // returns 0 if it wasn't promoted
+    int promoteToPaid(Long reservationId);
+
+    // guarded decrement - returns 0 (and changes nothing) if there aren't enough seats left
+    int decrementAvailableSeats(Long showtimeId, int count);
+
+    // puts seats back, never going above total_seats
+    int incrementAvailableSeats(Long showtimeId, int count);
 }
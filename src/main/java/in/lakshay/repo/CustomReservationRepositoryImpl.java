@@ -2,11 +2,18 @@ package in.lakshay.repo;
 
 import jakarta.persistence.EntityManager;
 import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 // implementation of custom reservation repo interface
-// pretty simple for now, just provides entity manager access
-// might add more complex query methods later if needed
+// seat claims are single conditional UPDATEs - the WHERE clause does the checking,
+// so there's no SELECT ... FOR UPDATE + saveAll round trip while holding row locks
+// all of these must run inside the caller's transaction
 @Repository
 public class CustomReservationRepositoryImpl implements CustomReservationRepository {
 
@@ -22,6 +29,132 @@ public class CustomReservationRepositoryImpl implements CustomReservationReposit
         return entityManager;  // for manual txns and complex queries
     }
 
-    // TODO: add methods for complex reservation operations
-    // maybe batch operations or custom reporting queries?
+    @Override
+    public int claimSeats(Long reservationId, Long showtimeId, List<Long> seatIds) {
+        // is_reserved = FALSE in the WHERE makes this safe against concurrent claims
+        return entityManager.createNativeQuery(
+                        "UPDATE seats SET is_reserved = TRUE, reservation_id = :reservationId " +
+                        "WHERE showtime_id = :showtimeId AND id IN (:seatIds) AND is_reserved = FALSE")
+                .setParameter("reservationId", reservationId)
+                .setParameter("showtimeId", showtimeId)
+                .setParameter("seatIds", seatIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public int claimSeatsByNumber(Long reservationId, Long showtimeId, List<String> seatNumbers) {
+        // one multi-row upsert - new rows for untouched seats, free rows (left over from
+        // materialized mode) get taken over, rows someone else holds are left alone
+        StringBuilder sql = new StringBuilder("INSERT INTO seats (showtime_id, seat_number, is_reserved, reservation_id) VALUES ");
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append("(:showtimeId, :seat").append(i).append(", TRUE, :reservationId)");
+        }
+        // reservation_id goes first - mysql applies these left to right
+        sql.append(" ON DUPLICATE KEY UPDATE reservation_id = IF(is_reserved, reservation_id, :reservationId), is_reserved = TRUE");
+
+        Query insert = entityManager.createNativeQuery(sql.toString())
+                .setParameter("showtimeId", showtimeId)
+                .setParameter("reservationId", reservationId);
+        for (int i = 0; i < seatNumbers.size(); i++) {
+            insert.setParameter("seat" + i, seatNumbers.get(i));
+        }
+        insert.executeUpdate();
+
+        // upsert row counts are 1/2/0 per row, so just count what we ended up holding
+        Number held = (Number) entityManager.createNativeQuery(
+                        "SELECT COUNT(*) FROM seats WHERE reservation_id = :reservationId")
+                .setParameter("reservationId", reservationId)
+                .getSingleResult();
+        return held.intValue();
+    }
+
+    @Override
+    public int releaseSeats(Long reservationId) {
+        return releaseSeats(List.of(reservationId));
+    }
+
+    @Override
+    public int releaseSeats(List<Long> reservationIds) {
+        return entityManager.createNativeQuery(
+                        "UPDATE seats SET is_reserved = FALSE, reservation_id = NULL " +
+                        "WHERE reservation_id IN (:reservationIds)")
+                .setParameter("reservationIds", reservationIds)
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<Long> lockExpirableReservations(List<Long> reservationIds) {
+        List<Number> rows = entityManager.createNativeQuery(
+                        "SELECT id FROM reservations " +
+                        "WHERE id IN (:reservationIds) AND status_id = 1 AND paid = FALSE FOR UPDATE")
+                .setParameter("reservationIds", reservationIds)
+                .getResultList();
+
+        List<Long> ids = new ArrayList<>(rows.size());
+        rows.forEach(id -> ids.add(id.longValue()));
+        return ids;
+    }
+
+    @Override
+    public int deleteSeats(List<Long> reservationIds) {
+        return entityManager.createNativeQuery("DELETE FROM seats WHERE reservation_id IN (:reservationIds)")
+                .setParameter("reservationIds", reservationIds)
+                .executeUpdate();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Map<Long, List<String>> findSeatNumbersByShowtime(List<Long> reservationIds) {
+        List<Object[]> rows = entityManager.createNativeQuery(
+                        "SELECT showtime_id, seat_number FROM seats WHERE reservation_id IN (:reservationIds)")
+                .setParameter("reservationIds", reservationIds)
+                .getResultList();
+
+        Map<Long, List<String>> seatNumbersByShowtime = new HashMap<>();
+        for (Object[] row : rows) {
+            seatNumbersByShowtime.computeIfAbsent(((Number) row[0]).longValue(), k -> new ArrayList<>())
+                    .add((String) row[1]);
+        }
+        return seatNumbersByShowtime;
+    }
+
+    @Override
+    public int cancelReservations(List<Long> reservationIds) {
+        return entityManager.createNativeQuery(
+                        "UPDATE reservations SET status_id = 3 WHERE id IN (:reservationIds)")
+                .setParameter("reservationIds", reservationIds)
+                .executeUpdate();
+    }
+
+    @Override
+    public int promoteToPaid(Long reservationId) {
+        // status_id = 2 too so webhook retries for an already paid reservation still count
+        return entityManager.createNativeQuery(
+                        "UPDATE reservations SET paid = TRUE, status_id = 2 " +
+                        "WHERE id = :reservationId AND status_id IN (1, 2)")
+                .setParameter("reservationId", reservationId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int decrementAvailableSeats(Long showtimeId, int count) {
+        // relative update - no lost updates from read-modify-write in java
+        return entityManager.createNativeQuery(
+                        "UPDATE showtimes SET available_seats = available_seats - :count " +
+                        "WHERE id = :showtimeId AND available_seats >= :count")
+                .setParameter("count", count)
+                .setParameter("showtimeId", showtimeId)
+                .executeUpdate();
+    }
+
+    @Override
+    public int incrementAvailableSeats(Long showtimeId, int count) {
+        return entityManager.createNativeQuery(
+                        "UPDATE showtimes SET available_seats = LEAST(total_seats, available_seats + :count) " +
+                        "WHERE id = :showtimeId")
+                .setParameter("count", count)
+                .setParameter("showtimeId", showtimeId)
+                .executeUpdate();
+    }
 }
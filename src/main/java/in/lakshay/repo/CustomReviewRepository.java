@@ -0,0 +1,25 @@
+package in.lakshay.repo;
+
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+
+import java.util.List;
+
+// keyset (seek) pagination for the review listing of a movie
+// every page is "the next N rows after the last one you saw" in (sort key, id) order,
+// so page 100 costs the same as page 1 - no OFFSET scanning through skipped rows
+public interface CustomReviewRepository {
+
+    // supported orders, all descending with id as tie breaker
+    enum ReviewSort {
+        NEWEST, // created_at
+        TOP,    // helpful_score = upvotes - downvotes
+        RATING  // rating
+    }
+
+    // up to limit reviews of a movie after (afterKey, afterId) in the given order
+    // status null = every status (admins), afterKey/afterId null = first page
+    // afterKey is a LocalDateTime for NEWEST and an Integer for TOP / RATING
+    List<Review> findReviewPage(Long movieId, ReviewStatus status, ReviewSort sort,
+                                Object afterKey, Long afterId, int limit);
+}
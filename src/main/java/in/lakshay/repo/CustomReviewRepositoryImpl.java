@@ -0,0 +1,55 @@
+package in.lakshay.repo;
+
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+// implementation of the keyset review listing
+// the WHERE + ORDER BY line up with the idx_reviews_movie_status_* indexes in schema.sql,
+// so each page is one index range scan that stops after limit rows
+@Repository
+public class CustomReviewRepositoryImpl implements CustomReviewRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<Review> findReviewPage(Long movieId, ReviewStatus status, ReviewSort sort,
+                                       Object afterKey, Long afterId, int limit) {
+        String key = switch (sort) {
+            case NEWEST -> "r.createdAt";
+            case TOP -> "r.helpfulScore";
+            case RATING -> "r.rating";
+        };
+
+        // author + movie come along in the same select (to-one joins, so setMaxResults still happens in sql)
+        StringBuilder jpql = new StringBuilder("SELECT r FROM Review r JOIN FETCH r.user u LEFT JOIN FETCH u.role " +
+                "JOIN FETCH r.movie m WHERE m.id = :movieId");
+        if (status != null) {
+            jpql.append(" AND r.status = :status");
+        }
+        if (afterId != null) {
+            // expanded form of (key, id) < (:afterKey, :afterId) - mysql turns this into a range scan
+            jpql.append(" AND (").append(key).append(" < :afterKey OR (")
+                    .append(key).append(" = :afterKey AND r.id < :afterId))");
+        }
+        jpql.append(" ORDER BY ").append(key).append(" DESC, r.id DESC");
+
+        TypedQuery<Review> query = entityManager.createQuery(jpql.toString(), Review.class)
+                .setParameter("movieId", movieId)
+                .setMaxResults(limit);
+        if (status != null) {
+            query.setParameter("status", status);
+        }
+        if (afterId != null) {
+            query.setParameter("afterKey", afterKey);
+            query.setParameter("afterId", afterId);
+        }
+        return query.getResultList();
+    }
+}
@@ -0,0 +1,24 @@
+package in.lakshay.repo;
+
+import in.lakshay.entity.IdempotencyKey;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+// stored results of idempotent requests
+@Repository
+public interface IdempotencyKeyRepository extends JpaRepository<IdempotencyKey, Long> {
+    Optional<IdempotencyKey> findByUsernameAndOperationAndIdempotencyKey(String username, String operation,
+                                                                         String idempotencyKey);
+
+    // cleanup job - one statement instead of loading every expired row
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyKey k WHERE k.expiresAt < :now")
+    int deleteExpired(LocalDateTime now);
+}
@@ -0,0 +1,43 @@
+package in.lakshay.repo;
+
+import in.lakshay.entity.MovieRatingStats;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+// per-movie rating aggregates - see MovieRatingStatsService
+@Repository
+public interface MovieRatingStatsRepository extends JpaRepository<MovieRatingStats, Long> {
+    List<MovieRatingStats> findByMovieIdIn(Collection<Long> movieIds); // one query for a whole page of movies
+
+    // add a delta to a movie's stats, creating the row on the first review
+    // relative update so concurrent reviews of the same movie don't overwrite each other
+    @Modifying
+    @Query(value = "INSERT INTO movie_rating_stats " +
+            "(movie_id, review_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5) " +
+            "VALUES (:movieId, :count, :sum, :s1, :s2, :s3, :s4, :s5) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count), " +
+            "rating_sum = rating_sum + VALUES(rating_sum), " +
+            "stars_1 = stars_1 + VALUES(stars_1), stars_2 = stars_2 + VALUES(stars_2), " +
+            "stars_3 = stars_3 + VALUES(stars_3), stars_4 = stars_4 + VALUES(stars_4), " +
+            "stars_5 = stars_5 + VALUES(stars_5)",
+            nativeQuery = true)
+    int applyDelta(Long movieId, long count, long sum, long s1, long s2, long s3, long s4, long s5);
+
+    @Modifying
+    @Query(value = "DELETE FROM movie_rating_stats", nativeQuery = true)
+    int deleteAllStats();
+
+    // recompute everything from the approved reviews
+    @Modifying
+    @Query(value = "INSERT INTO movie_rating_stats " +
+            "(movie_id, review_count, rating_sum, stars_1, stars_2, stars_3, stars_4, stars_5) " +
+            "SELECT movie_id, COUNT(*), SUM(rating), SUM(rating = 1), SUM(rating = 2), SUM(rating = 3), " +
+            "SUM(rating = 4), SUM(rating = 5) FROM reviews WHERE status = 'APPROVED' GROUP BY movie_id",
+            nativeQuery = true)
+    int insertFromReviews();
+}
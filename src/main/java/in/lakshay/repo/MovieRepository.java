@@ -6,22 +6,52 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
+
 // movie data access - spring data jpa magic
+// listings are two queries: a page of ids (LIMIT/OFFSET in sql), then findCardsByIdIn for just those.
+// never put JOIN FETCH of a collection in a paged query - hibernate can't LIMIT that in sql, so it loads
+// every movie + review and pages in memory (HHH000104, and an error with fail_on_pagination_over_collection_fetch)
 public interface MovieRepository extends JpaRepository<Movie, Long> {
-    // search by title or genre - case insensitive
-    @Query("SELECT m FROM Movie m LEFT JOIN FETCH m.reviews WHERE LOWER(m.title) LIKE LOWER(CONCAT('%', :search, '%')) OR LOWER(m.genre) LIKE LOWER(CONCAT('%', :search, '%'))")
-    Page<Movie> findByTitleOrGenreContainingIgnoreCase(String search, Pageable pageable);
-
-    // get all movies with their reviews
-    @Query("SELECT m FROM Movie m LEFT JOIN FETCH m.reviews")
-    Page<Movie> findAllWithReviews(Pageable pageable);
+    // every movie
+    @Query("SELECT m.id FROM Movie m")
+    Page<Long> findAllIds(Pageable pageable);
 
     // filter movies by multiple criteria
     // todo: this query could be optimized, it's a bit slow with lots of data
     // might need to add an index on releaseYear column?
-    @Query("SELECT m FROM Movie m LEFT JOIN FETCH m.reviews WHERE " +
-            "(:search IS NULL OR LOWER(m.title) LIKE LOWER(CONCAT('%', :search, '%'))) AND " +
+    // text searches go through MovieSearchService
+    @Query("SELECT m.id FROM Movie m WHERE " +
             "(:genre IS NULL OR LOWER(m.genre) = LOWER(:genre)) AND " + // case insensitive genre match
             "(:year IS NULL OR m.releaseYear = :year)") // exact year match
-    Page<Movie> findMoviesWithFilters(String search, String genre, Integer year, Pageable pageable); // main search method used by frontend
-}
\ No newline at end of file
+    Page<Long> findIdsWithFilters(String genre, Integer year, Pageable pageable);
+
+    // just what the in-memory suggestions/facets need, without loading descriptions
+    @Query("SELECT m.id AS id, m.title AS title, m.genre AS genre, m.releaseYear AS releaseYear FROM Movie m")
+    List<MovieTitle> findTitles();
+
+    interface MovieTitle {
+        Long getId();
+        String getTitle();
+        String getGenre();
+        int getReleaseYear();
+    }
+
+    // second step of a listing - the card columns of the page's movies + their rating stats, no particular order
+    // a projection, not entities: no reviews/showtimes/description loaded, nothing for hibernate to track
+    @Query("SELECT m.id AS id, m.title AS title, m.genre AS genre, m.releaseYear AS releaseYear, " +
+            "m.posterImageUrl AS posterImageUrl, s.reviewCount AS reviewCount, s.ratingSum AS ratingSum " +
+            "FROM Movie m LEFT JOIN MovieRatingStats s ON s.movieId = m.id WHERE m.id IN :ids")
+    List<MovieCard> findCardsByIdIn(Collection<Long> ids);
+
+    interface MovieCard {
+        Long getId();
+        String getTitle();
+        String getGenre();
+        int getReleaseYear();
+        String getPosterImageUrl();
+        Long getReviewCount(); // null = no stats row yet (no approved reviews)
+        Long getRatingSum();
+    }
+}
@@ -1,10 +1,14 @@
 package in.lakshay.repo;
 
 import in.lakshay.entity.Payment;
+import in.lakshay.entity.Payment.PaymentStatus;
 import in.lakshay.entity.Reservation;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 // handles payment data - pretty simple for now
@@ -16,4 +20,9 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
 
     // find by stripe payment intent id
     Optional<Payment> findByPaymentIntentId(String paymentIntentId); // for webhook handling
+
+    // open checkouts of reservations the hold sweeper canceled (statusId 3)
+    @Query("SELECT p FROM Payment p JOIN FETCH p.reservation r WHERE r.id IN :reservationIds " +
+            "AND r.statusId = 3 AND p.status = :status")
+    List<Payment> findForCanceledReservations(Collection<Long> reservationIds, PaymentStatus status);
 }
@@ -89,4 +89,26 @@ public interface ReservationRepository extends JpaRepository<Reservation, Long>,
     // the kitchen sink - all filters together
     // this one's a mouthful lol
     Page<Reservation> findByPaidAndStatusIdAndReservationTimeBetween(boolean paid, Integer statusId, LocalDateTime startDateTime, LocalDateTime endDateTime, Pageable pageable);
+
+    // unpaid reservations still holding seats - used to rebuild the seat holds on startup
+    @Query("SELECT r.id AS id, r.reservationTime AS reservationTime FROM Reservation r " +
+            "WHERE r.statusId = 1 AND r.paid = false")
+    List<HoldState> findUnpaidHolds();
+
+    // projection used by findUnpaidHolds
+    interface HoldState {
+        Long getId();
+        LocalDateTime getReservationTime();
+    }
+
+    // paid reservations (statusId 2) per movie - popularity for the search suggestions
+    // unpaid ones (1) are only seat holds, most of them never get paid
+    @Query("SELECT s.movie.id AS movieId, COUNT(r) AS reservationCount FROM Reservation r JOIN r.showtime s " +
+            "WHERE r.statusId = 2 GROUP BY s.movie.id")
+    List<MovieReservationCount> countPaidByMovie();
+
+    interface MovieReservationCount {
+        Long getMovieId();
+        long getReservationCount();
+    }
 }
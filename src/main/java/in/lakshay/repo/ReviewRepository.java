@@ -4,33 +4,185 @@ import in.lakshay.entity.Movie;
 import in.lakshay.entity.Review;
 import in.lakshay.entity.Review.ReviewStatus;
 import in.lakshay.entity.User;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 // handles movie review data access
 @Repository
-public interface ReviewRepository extends JpaRepository<Review, Long> {
+public interface ReviewRepository extends JpaRepository<Review, Long>, CustomReviewRepository {
+    // the listing queries fetch author + movie in the same select
+    // otherwise every review's eager user/role/movie is loaded with its own query
+
     // get all reviews by a user
+    @EntityGraph(attributePaths = {"user", "user.role", "movie"})
     List<Review> findByUser(User user);
 
     // get all reviews for a movie (regardless of status)
+    @EntityGraph(attributePaths = {"user", "user.role", "movie"})
     List<Review> findByMovie(Movie movie);
 
     // get reviews for a movie with specific status (PENDING, APPROVED, REJECTED)
+    @EntityGraph(attributePaths = {"user", "user.role", "movie"})
     List<Review> findByMovieAndStatus(Movie movie, ReviewStatus status);
 
     // get all reviews with a specific status (for admin moderation)
+    @EntityGraph(attributePaths = {"user", "user.role", "movie"})
     Page<Review> findByStatus(ReviewStatus status, Pageable pageable);
 
+    // moderation batch - author + movie in one select
+    @EntityGraph(attributePaths = {"user", "movie"})
+    List<Review> findByIdIn(Collection<Long> ids);
+
+    // applying moderation verdicts - row locks so an edit can't land between the check and the save
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT r FROM Review r WHERE r.id IN :ids")
+    List<Review> findForUpdateByIdIn(Collection<Long> ids);
+
+    // PENDING reviews the moderation checks haven't seen (queue was full, or the app restarted)
+    @Query("SELECT r.id FROM Review r WHERE r.status = :status AND r.moderationNote IS NULL " +
+            "AND r.updatedAt < :before ORDER BY r.id")
+    List<Long> findUnmoderatedIds(ReviewStatus status, LocalDateTime before, Pageable pageable);
+
+    // near-duplicate index (NearDuplicateService) - loaded in id order, a page at a time
+    @Query("SELECT r.id AS id, r.simhash AS simhash FROM Review r WHERE r.id > :afterId AND r.simhash IS NOT NULL " +
+            "AND r.simhash <> :noSignature AND r.status <> :excludedStatus ORDER BY r.id")
+    List<ReviewSignature> findSignatures(Long afterId, long noSignature, ReviewStatus excludedStatus, Pageable pageable);
+
+    // reviews written before simhashes existed
+    @Query("SELECT r.id AS id, r.comment AS comment FROM Review r WHERE r.id > :afterId AND r.simhash IS NULL ORDER BY r.id")
+    List<ReviewText> findUnsigned(Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Review r SET r.simhash = :simhash WHERE r.id = :reviewId")
+    int updateSimhash(Long reviewId, long simhash);
+
+    // reviews written before content hashes existed (DuplicateTextRule backfills them)
+    @Query("SELECT r.id AS id, r.comment AS comment FROM Review r WHERE r.id > :afterId AND r.contentHash IS NULL " +
+            "AND r.comment IS NOT NULL ORDER BY r.id")
+    List<ReviewText> findUnhashed(Long afterId, Pageable pageable);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE Review r SET r.contentHash = :contentHash WHERE r.id = :reviewId")
+    int updateContentHash(Long reviewId, String contentHash);
+
+    interface ReviewSignature {
+        Long getId();
+        Long getSimhash();
+    }
+
+    interface ReviewText {
+        Long getId();
+        String getComment();
+    }
+
+    // search index (ReviewSearchService) - full build, a page of approved reviews at a time
+    @Query("SELECT r.id AS id, r.movie.id AS movieId, r.comment AS comment, r.status AS status FROM Review r " +
+            "WHERE r.id > :afterId AND r.status = :status ORDER BY r.id")
+    List<ReviewSearchDoc> findSearchDocs(Long afterId, ReviewStatus status, Pageable pageable);
+
+    // search index catch-up after loading a snapshot - everything touched since, whatever the status
+    @Query("SELECT r.id AS id, r.movie.id AS movieId, r.comment AS comment, r.status AS status FROM Review r " +
+            "WHERE r.id > :afterId AND r.updatedAt >= :since ORDER BY r.id")
+    List<ReviewSearchDoc> findSearchDocsUpdatedSince(Long afterId, LocalDateTime since, Pageable pageable);
+
+    interface ReviewSearchDoc {
+        Long getId();
+        Long getMovieId();
+        String getComment();
+        ReviewStatus getStatus();
+    }
+
+    // ids of approved reviews with a tag, newest first - walks idx_review_tags_tag instead of LIKE over helpful_tags
+    // just the ids: the page is loaded through findByIdIn, entities from a native query would lazy-load user/movie per row
+    @Query(value = "SELECT rt.review_id FROM review_tags rt JOIN reviews r ON r.id = rt.review_id " +
+            "WHERE rt.tag_id = :tagId AND r.status = 'APPROVED' ORDER BY rt.review_id DESC",
+            countQuery = "SELECT COUNT(*) FROM review_tags rt JOIN reviews r ON r.id = rt.review_id " +
+                    "WHERE rt.tag_id = :tagId AND r.status = 'APPROVED'",
+            nativeQuery = true)
+    Page<Long> findApprovedIdsByTag(Long tagId, Pageable pageable);
+
+    // same for one movie, uses idx_review_tags_tag_movie
+    @Query(value = "SELECT rt.review_id FROM review_tags rt JOIN reviews r ON r.id = rt.review_id " +
+            "WHERE rt.tag_id = :tagId AND rt.movie_id = :movieId AND r.status = 'APPROVED' ORDER BY rt.review_id DESC",
+            countQuery = "SELECT COUNT(*) FROM review_tags rt JOIN reviews r ON r.id = rt.review_id " +
+                    "WHERE rt.tag_id = :tagId AND rt.movie_id = :movieId AND r.status = 'APPROVED'",
+            nativeQuery = true)
+    Page<Long> findApprovedIdsByTagAndMovie(Long tagId, Long movieId, Pageable pageable);
+
+    // reviews that have helpful_tags, a page at a time - for filling review_tags from the old column
+    @Query("SELECT r.id AS id, r.movie.id AS movieId, r.helpfulTags AS helpfulTags, r.status AS status FROM Review r " +
+            "WHERE r.id > :afterId AND r.helpfulTags IS NOT NULL ORDER BY r.id")
+    List<ReviewTags> findTagged(Long afterId, Pageable pageable);
+
+    interface ReviewTags {
+        Long getId();
+        Long getMovieId();
+        String getHelpfulTags();
+        ReviewStatus getStatus();
+    }
+
+    // duplicate text check, uses idx_reviews_content_hash
+    boolean existsByContentHashAndIdNotAndStatusNot(String contentHash, Long id, ReviewStatus status);
+
     // same as above but using movie ID directly
     @Query("SELECT r FROM Review r WHERE r.movie.id = ?1 AND r.status = ?2")
     List<Review> findByMovieIdAndStatus(Long movieId, ReviewStatus status);
 
+    // relative vote counter update - see ReviewVoteService.applyVoteDelta and ReviewVoteBuffer.flush
+    @Modifying
+    @Transactional
+    @Query("UPDATE Review r SET r.upvotes = COALESCE(r.upvotes, 0) + :upvoteDelta, " +
+            "r.downvotes = COALESCE(r.downvotes, 0) + :downvoteDelta WHERE r.id = :reviewId")
+    int applyVoteDelta(Long reviewId, int upvoteDelta, int downvoteDelta);
+
+    // highest review id - the reconciler walks ids up to this in batches
+    @Query("SELECT MAX(r.id) FROM Review r")
+    Long findMaxId();
+
+    // resets the vote counters of reviews fromId..toId to what review_votes says,
+    // only touching rows that drifted - returns how many were fixed
+    @Modifying
+    @Transactional
+    @Query(value = "UPDATE reviews r " +
+            "LEFT JOIN (SELECT review_id, SUM(is_upvote) AS up, SUM(NOT is_upvote) AS down FROM review_votes " +
+            "           WHERE review_id BETWEEN :fromId AND :toId GROUP BY review_id) v ON v.review_id = r.id " +
+            "SET r.upvotes = COALESCE(v.up, 0), r.downvotes = COALESCE(v.down, 0) " +
+            "WHERE r.id BETWEEN :fromId AND :toId " +
+            "AND (r.upvotes IS NULL OR r.downvotes IS NULL " +
+            "     OR r.upvotes <> COALESCE(v.up, 0) OR r.downvotes <> COALESCE(v.down, 0))",
+            nativeQuery = true)
+    int reconcileVoteCounts(Long fromId, Long toId);
+
+    // per-movie rating totals where each review counts 1 + ln(1 + helpful score) times,
+    // so reviews people found useful pull the average harder - movieId null = all movies
+    @Query(value = "SELECT movie_id AS movieId, COUNT(*) AS reviewCount, " +
+            "SUM(rating * (1 + LN(1 + GREATEST(COALESCE(helpful_score, 0), 0)))) AS ratingSum, " +
+            "SUM(1 + LN(1 + GREATEST(COALESCE(helpful_score, 0), 0))) AS weight " +
+            "FROM reviews WHERE status = 'APPROVED' AND (:movieId IS NULL OR movie_id = :movieId) GROUP BY movie_id",
+            nativeQuery = true)
+    List<WeightedRating> findWeightedRatings(Long movieId);
+
+    interface WeightedRating {
+        Long getMovieId();
+        Long getReviewCount();
+        Double getRatingSum();
+        Double getWeight();
+    }
+
     // calc avg rating for a movie - only counts approved reviews!
     @Query("SELECT AVG(r.rating) FROM Review r WHERE r.movie.id = ?1 AND r.status = 'APPROVED'")
     Double getAverageRatingForMovie(Long movieId); // used for movie cards display
@@ -7,6 +7,7 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,14 +23,18 @@ public interface ReviewVoteRepository extends JpaRepository<ReviewVote, Long> {
     // get all votes by a user (across all reviews)
     List<ReviewVote> findByUser(User user); // for user profile
 
-    // count upvotes for a review
-    @Query("SELECT COUNT(rv) FROM ReviewVote rv WHERE rv.review = ?1 AND rv.isUpvote = true")
-    int countUpvotesByReview(Review review); // thumbs up count
-
-    // count downvotes for a review
-    @Query("SELECT COUNT(rv) FROM ReviewVote rv WHERE rv.review = ?1 AND rv.isUpvote = false")
-    int countDownvotesByReview(Review review); // thumbs down count
-
     // remove a user's vote on a review (if they change their mind)
     void deleteByReviewAndUser(Review review, User user); // for vote removal
+
+    // one user's votes on a whole page of reviews in one query - review listings use this
+    // instead of findByReviewAndUser per review
+    @Query("SELECT rv.review.id AS reviewId, rv.isUpvote AS upvote FROM ReviewVote rv " +
+            "WHERE rv.user.id = :userId AND rv.review.id IN :reviewIds")
+    List<VoteState> findVoteStates(Long userId, Collection<Long> reviewIds);
+
+    // projection used by findVoteStates
+    interface VoteState {
+        Long getReviewId();
+        Boolean getUpvote();
+    }
 }
@@ -0,0 +1,69 @@
+package in.lakshay.repo;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+// bulk seat inserts through plain jdbc
+// Seat uses IDENTITY ids so hibernate can't batch them - saveAll was one INSERT per seat
+// with rewriteBatchedStatements=true the mysql driver turns each batch into multi-row INSERTs
+// runs on the same connection as the surrounding jpa transaction
+@Repository
+public class SeatBulkRepository {
+    private static final String INSERT_SEAT_SQL =
+            "INSERT INTO seats (showtime_id, seat_number, is_reserved) VALUES (?, ?, FALSE) "
+                    + "ON DUPLICATE KEY UPDATE id = id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int batchSize;
+
+    @Autowired
+    public SeatBulkRepository(JdbcTemplate jdbcTemplate, @Value("${seats.bulk.batch-size:1000}") int batchSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.batchSize = batchSize;
+    }
+
+    // insert free seats for one showtime
+    public int insertSeats(Long showtimeId, List<String> seatNumbers) {
+        return insertSeats(Map.of(showtimeId, seatNumbers));
+    }
+
+    // insert free seats for many showtimes in one go
+    // seats that already exist are left alone (unique key on showtime_id + seat_number),
+    // so two requests lazily creating the same showtime's seats don't blow up
+    // a no-op update instead of INSERT IGNORE, which would also swallow bad values and fk errors
+    // returns the number of seats actually created
+    public int insertSeats(Map<Long, List<String>> seatNumbersByShowtime) {
+        List<Object[]> rows = new ArrayList<>();
+        seatNumbersByShowtime.forEach((showtimeId, seatNumbers) ->
+                seatNumbers.forEach(seatNumber -> rows.add(new Object[]{showtimeId, seatNumber})));
+
+        if (rows.isEmpty()) {
+            return 0;
+        }
+
+        // rewritten batches report SUCCESS_NO_INFO (-2) per row, so the counts can't tell skipped seats from new ones
+        // count the showtimes' seats around the insert instead - our own inserts are visible to the second count
+        List<Long> showtimeIds = new ArrayList<>(seatNumbersByShowtime.keySet());
+        long before = countSeats(showtimeIds);
+        jdbcTemplate.batchUpdate(INSERT_SEAT_SQL, rows, batchSize, (ps, row) -> {
+            ps.setLong(1, (Long) row[0]);
+            ps.setString(2, (String) row[1]);
+        });
+        return (int) (countSeats(showtimeIds) - before);
+    }
+
+    private long countSeats(List<Long> showtimeIds) {
+        String placeholders = String.join(",", Collections.nCopies(showtimeIds.size(), "?"));
+        Long count = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM seats WHERE showtime_id IN (" + placeholders + ")",
+                Long.class, showtimeIds.toArray());
+        return count != null ? count : 0;
+    }
+}
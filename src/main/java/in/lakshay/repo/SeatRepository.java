@@ -3,11 +3,9 @@ package in.lakshay.repo;
 import in.lakshay.entity.Seat;
 import in.lakshay.entity.Showtime;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
-import jakarta.persistence.LockModeType;
 import java.util.List;
 
 // handles seat data access
@@ -19,9 +17,36 @@ public interface SeatRepository extends JpaRepository<Seat, Long> {
     // find seats by reservation status for a showtime
     List<Seat> findByShowtimeAndIsReserved(Showtime showtime, Boolean isReserved);
 
-    // important! uses db lock to prevent double-booking
-    // this is critical for concurrent reservation attempts
-    @Lock(LockModeType.PESSIMISTIC_WRITE)
-    @Query("SELECT s FROM Seat s WHERE s.id IN :seatIds AND s.showtime.id = :showtimeId")
-    List<Seat> findByIdInAndShowtimeIdWithLock(List<Long> seatIds, Long showtimeId); // prevents race conditions
+    // which of these showtimes already have seats - bulk generation skips them
+    @Query("SELECT DISTINCT s.showtime.id FROM Seat s WHERE s.showtime.id IN :showtimeIds")
+    List<Long> findShowtimeIdsWithSeats(List<Long> showtimeIds);
+
+    // lightweight seat states for the in-memory seat map - no entities loaded
+    // ordered by id so seat positions stay stable between loads
+    @Query("SELECT s.id AS id, s.seatNumber AS seatNumber, s.isReserved AS isReserved FROM Seat s " +
+            "WHERE s.showtime.id = :showtimeId ORDER BY s.id")
+    List<SeatState> findSeatStatesByShowtimeId(Long showtimeId);
+
+    // just the booked seats - in virtual seat mode these are the only rows a showtime has
+    @Query("SELECT s.id AS id, s.seatNumber AS seatNumber, s.isReserved AS isReserved FROM Seat s " +
+            "WHERE s.showtime.id = :showtimeId AND s.isReserved = true")
+    List<SeatState> findReservedSeatStates(Long showtimeId);
+
+    // only used to build the error msg when a conditional seat claim comes up short
+    // reservationId tells our own (rolled back) claims apart from seats someone else holds
+    @Query("SELECT s.id AS id, s.seatNumber AS seatNumber, s.isReserved AS isReserved, r.id AS reservationId " +
+            "FROM Seat s LEFT JOIN s.reservation r WHERE s.showtime.id = :showtimeId AND s.seatNumber IN :seatNumbers")
+    List<SeatClaimState> findSeatClaimStates(Long showtimeId, List<String> seatNumbers);
+
+    // projection used by findSeatStatesByShowtimeId
+    interface SeatState {
+        Long getId();
+        String getSeatNumber();
+        Boolean getIsReserved();
+    }
+
+    // projection used by findSeatClaimStates
+    interface SeatClaimState extends SeatState {
+        Long getReservationId();
+    }
 }
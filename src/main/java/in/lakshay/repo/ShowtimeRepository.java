@@ -10,6 +10,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 
 // repo for managing showtimes
@@ -30,6 +31,10 @@ public interface ShowtimeRepository extends JpaRepository<Showtime, Long> {
     // find by date and theater
     List<Showtime> findByShowDateAndTheater(LocalDate date, Theater theater);
 
+    // which of these showtimes are still on (or after) the given date - deleted ones just don't come back
+    @Query("SELECT s.id FROM Showtime s WHERE s.id IN :ids AND s.showDate >= :date")
+    List<Long> findIdsFromDate(Collection<Long> ids, LocalDate date);
+
     // find available showtimes from a date
     @Query("SELECT s FROM Showtime s WHERE s.showDate >= :date AND s.availableSeats > 0")
     Page<Showtime> findAvailableShowtimesFromDate(LocalDate date, Pageable pageable);
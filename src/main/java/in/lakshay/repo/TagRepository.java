@@ -0,0 +1,71 @@
+package in.lakshay.repo;
+
+import in.lakshay.entity.Tag;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+// tags plus the review_tags join table and the movie_tag_counts aggregate - see ReviewTagService
+@Repository
+public interface TagRepository extends JpaRepository<Tag, Long> {
+    Optional<Tag> findByName(String name);
+
+    List<Tag> findByNameIn(Collection<String> names);
+
+    // no-op if another request created it first
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO tags (name) VALUES (:name)", nativeQuery = true)
+    int insertIfMissing(String name);
+
+    @Query(value = "SELECT tag_id FROM review_tags WHERE review_id = :reviewId", nativeQuery = true)
+    List<Long> findTagIdsByReviewId(Long reviewId);
+
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO review_tags (review_id, tag_id, movie_id) VALUES (:reviewId, :tagId, :movieId)",
+            nativeQuery = true)
+    int addReviewTag(Long reviewId, Long tagId, Long movieId);
+
+    @Modifying
+    @Query(value = "DELETE FROM review_tags WHERE review_id = :reviewId AND tag_id IN (:tagIds)", nativeQuery = true)
+    int removeReviewTags(Long reviewId, Collection<Long> tagIds);
+
+    @Query(value = "SELECT COUNT(*) FROM review_tags", nativeQuery = true)
+    long countReviewTags();
+
+    // relative update, creating the row for a movie's first review with this tag
+    @Modifying
+    @Query(value = "INSERT INTO movie_tag_counts (movie_id, tag_id, review_count) VALUES (:movieId, :tagId, :delta) " +
+            "ON DUPLICATE KEY UPDATE review_count = review_count + VALUES(review_count)",
+            nativeQuery = true)
+    int applyCountDelta(Long movieId, Long tagId, long delta);
+
+    // a movie's tag facets, most used first - primary key range on movie_tag_counts
+    @Query(value = "SELECT t.name AS name, c.review_count AS reviewCount FROM movie_tag_counts c " +
+            "JOIN tags t ON t.id = c.tag_id WHERE c.movie_id = :movieId AND c.review_count > 0 " +
+            "ORDER BY c.review_count DESC, t.name",
+            nativeQuery = true)
+    List<TagCount> findTagCounts(Long movieId);
+
+    @Modifying
+    @Query(value = "DELETE FROM movie_tag_counts", nativeQuery = true)
+    int deleteAllCounts();
+
+    // recompute the counts from review_tags + approved reviews
+    @Modifying
+    @Query(value = "INSERT INTO movie_tag_counts (movie_id, tag_id, review_count) " +
+            "SELECT rt.movie_id, rt.tag_id, COUNT(*) FROM review_tags rt JOIN reviews r ON r.id = rt.review_id " +
+            "WHERE r.status = 'APPROVED' GROUP BY rt.movie_id, rt.tag_id",
+            nativeQuery = true)
+    int insertCountsFromReviews();
+
+    interface TagCount {
+        String getName();
+
+        long getReviewCount();
+    }
+}
@@ -0,0 +1,239 @@
+package in.lakshay.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.lakshay.entity.IdempotencyKey;
+import in.lakshay.repo.IdempotencyKeyRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+// Idempotency-Key support for endpoints that clients retry on timeouts
+// the first request with a key runs normally and its result is stored, retries with the same key
+// get the stored result back without taking seat locks or calling stripe again
+// results live in a small in-memory cache (bounded, ttl) with the idempotency_keys table behind it,
+// so replays work across restarts and app instances
+// a key is IN_PROGRESS while its first request runs; that's a lease - if the instance dies before storing
+// the result, a retry after the lease runs the action again instead of hearing "still processing" for a day
+@Service
+@Slf4j
+public class IdempotencyService {
+    public static final String HEADER = "Idempotency-Key";
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final IdempotencyKeyRepository idempotencyKeyRepository;
+    private final ObjectMapper objectMapper;
+    private final long ttlHours;
+    private final long leaseMinutes;
+    private final Map<String, CachedResult> cache; // guarded by itself
+
+    @Autowired // constructor injection
+    public IdempotencyService(IdempotencyKeyRepository idempotencyKeyRepository, ObjectMapper objectMapper,
+                              @Value("${idempotency.ttl-hours:24}") long ttlHours,
+                              @Value("${idempotency.cache-size:10000}") int cacheSize,
+                              @Value("${idempotency.in-progress-lease-minutes:5}") long leaseMinutes) {
+        this.idempotencyKeyRepository = idempotencyKeyRepository;
+        this.objectMapper = objectMapper;
+        this.ttlHours = ttlHours;
+        this.leaseMinutes = leaseMinutes;
+        // access order + removeEldestEntry = simple lru
+        this.cache = new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResult> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    // something that may throw a checked exception (stripe calls do)
+    @FunctionalInterface
+    public interface IdempotentAction<T, E extends Exception> {
+        T run() throws E;
+    }
+
+    /**
+     * Runs action once per (username, operation, key).
+     * No key = no idempotency, the action just runs.
+     * Same key + same request = the stored result, same key + different request = IllegalArgumentException.
+     * Failed actions aren't stored, so the client can retry with the same key.
+     */
+    public <T, E extends Exception> T execute(String key, String username, String operation, Object request,
+                                              Class<T> resultType, IdempotentAction<T, E> action) throws E {
+        if (key == null || key.isBlank()) {
+            return action.run();
+        }
+        if (key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " cannot be longer than " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String cacheKey = username + "|" + operation + "|" + key;
+        String requestHash = hash(request);
+
+        // fast path - answered from memory, no db
+        CachedResult cached = getCached(cacheKey);
+        if (cached != null) {
+            checkSameRequest(cached.requestHash, requestHash);
+            log.info("Replaying {} for user: {} with idempotency key: {}", operation, username, key);
+            return fromJson(cached.responseBody, resultType);
+        }
+
+        IdempotencyKey record = claim(key, username, operation, requestHash);
+        if (record == null) {
+            // somebody got there first - replay their result
+            return replay(key, username, operation, requestHash, cacheKey, resultType);
+        }
+
+        T result;
+        try {
+            result = action.run();
+        } catch (Exception e) {
+            idempotencyKeyRepository.delete(record); // let the client try again with the same key
+            throw e;
+        }
+
+        // the action already committed - failing to store its result mustn't turn it into an error for the client
+        // (this instance still replays it from memory, elsewhere the key is free again once the lease runs out)
+        String responseBody = toJson(result);
+        putCached(cacheKey, new CachedResult(requestHash, responseBody, record.getExpiresAt()));
+        record.setStatus(IdempotencyKey.COMPLETED);
+        record.setResponseBody(responseBody);
+        try {
+            idempotencyKeyRepository.save(record);
+        } catch (Exception e) {
+            log.error("Could not store result of {} for idempotency key: {}: {}", operation, key, e.getMessage(), e);
+        }
+        return result;
+    }
+
+    // expired keys are useless, clear them out every now and then
+    @Scheduled(fixedDelayString = "${idempotency.cleanup-interval-ms:3600000}")
+    public void deleteExpiredKeys() {
+        int deleted = idempotencyKeyRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.info("Deleted {} expired idempotency keys", deleted);
+        }
+    }
+
+    // insert the key as IN_PROGRESS - the unique constraint makes sure only one request wins
+    // returns null if the key already exists
+    private IdempotencyKey claim(String key, String username, String operation, String requestHash) {
+        LocalDateTime now = LocalDateTime.now();
+        IdempotencyKey record = new IdempotencyKey();
+        record.setIdempotencyKey(key);
+        record.setUsername(username);
+        record.setOperation(operation);
+        record.setRequestHash(requestHash);
+        record.setStatus(IdempotencyKey.IN_PROGRESS);
+        record.setCreatedAt(now);
+        record.setExpiresAt(now.plusHours(ttlHours));
+
+        try {
+            return idempotencyKeyRepository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            // an expired key that the cleanup job hasn't deleted yet doesn't count, and neither does
+            // an IN_PROGRESS one whose lease ran out (delete is by id - two retries can't delete each other's claim)
+            Optional<IdempotencyKey> existing =
+                    idempotencyKeyRepository.findByUsernameAndOperationAndIdempotencyKey(username, operation, key);
+            if (existing.isPresent() && (existing.get().getExpiresAt().isBefore(now) || leaseExpired(existing.get(), now))) {
+                log.warn("Reclaiming idempotency key: {} for {} (expired or abandoned)", key, operation);
+                idempotencyKeyRepository.delete(existing.get());
+                return claim(key, username, operation, requestHash);
+            }
+            return null;
+        }
+    }
+
+    private boolean leaseExpired(IdempotencyKey record, LocalDateTime now) {
+        return IdempotencyKey.IN_PROGRESS.equals(record.getStatus())
+                && record.getCreatedAt().isBefore(now.minusMinutes(leaseMinutes));
+    }
+
+    private <T> T replay(String key, String username, String operation, String requestHash, String cacheKey,
+                         Class<T> resultType) {
+        IdempotencyKey existing = idempotencyKeyRepository
+                .findByUsernameAndOperationAndIdempotencyKey(username, operation, key)
+                .orElseThrow(() -> new IllegalStateException("A request with this " + HEADER + " just failed, please retry"));
+
+        checkSameRequest(existing.getRequestHash(), requestHash);
+        if (!IdempotencyKey.COMPLETED.equals(existing.getStatus())) {
+            // first request is still running (or died before finishing - a retry after the lease takes over)
+            throw new IllegalStateException("A request with this " + HEADER + " is still being processed");
+        }
+
+        putCached(cacheKey, new CachedResult(existing.getRequestHash(), existing.getResponseBody(), existing.getExpiresAt()));
+        log.info("Replaying {} for user: {} with idempotency key: {}", operation, username, key);
+        return fromJson(existing.getResponseBody(), resultType);
+    }
+
+    private void checkSameRequest(String storedHash, String requestHash) {
+        if (!storedHash.equals(requestHash)) {
+            throw new IllegalArgumentException(HEADER + " was already used for a different request");
+        }
+    }
+
+    private CachedResult getCached(String cacheKey) {
+        synchronized (cache) {
+            CachedResult cached = cache.get(cacheKey);
+            if (cached != null && cached.expiresAt.isBefore(LocalDateTime.now())) {
+                cache.remove(cacheKey);
+                return null;
+            }
+            return cached;
+        }
+    }
+
+    private void putCached(String cacheKey, CachedResult result) {
+        synchronized (cache) {
+            cache.put(cacheKey, result);
+        }
+    }
+
+    private String hash(Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(toJson(request).getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // every jvm has it
+        }
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize idempotent result: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private <T> T fromJson(String json, Class<T> type) {
+        try {
+            return objectMapper.readValue(json, type); // fresh copy for every replay
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not read stored idempotent result: " + e.getOriginalMessage(), e);
+        }
+    }
+
+    private static final class CachedResult {
+        private final String requestHash;
+        private final String responseBody;
+        private final LocalDateTime expiresAt;
+
+        CachedResult(String requestHash, String responseBody, LocalDateTime expiresAt) {
+            this.requestHash = requestHash;
+            this.responseBody = responseBody;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
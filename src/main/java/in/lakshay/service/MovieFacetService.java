@@ -0,0 +1,284 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Movie;
+import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.MovieRepository.MovieTitle;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// faceted browsing - "Drama (42) / 2023 (17)" counts next to the filtered movie list, in one request
+// every genre and release year has a bitmap of the movie ids in it (movie ids are dense auto increment
+// numbers, so a plain BitSet is about as small as a compressed bitmap would be and ANDs 64 movies per step)
+// several values of one facet are OR'ed, different facets AND'ed; each facet's counts apply the other
+// facets' filters but not its own, so picking "Drama" still shows how many "Comedy" there would be
+// kept in memory, built on startup and updated by MovieService after each commit
+@Service
+@Slf4j
+public class MovieFacetService {
+    private static final Comparator<FacetMovie> BY_TITLE = Comparator
+            .comparing((FacetMovie m) -> m.title, Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+            .thenComparing(m -> m.id);
+
+    private final MovieRepository movieRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // guarded by lock
+    private final Map<Long, FacetMovie> movies = new HashMap<>();
+    private final TreeSet<FacetMovie> byTitle = new TreeSet<>(BY_TITLE); // result order without a search
+    private final BitSet all = new BitSet();
+    private final Map<String, BitSet> genres = new HashMap<>(); // lowercase genre -> movies
+    private final Map<String, String> genreNames = new HashMap<>(); // lowercase genre -> how it's shown
+    private final Map<Integer, BitSet> years = new HashMap<>();
+
+    @Autowired // constructor injection
+    public MovieFacetService(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    // one page of movie ids matching the filters + the facet counts for them
+    // genreFilter/yearFilter empty = any, rankedIds = search results in relevance order (null = no search, by title)
+    public FacetResult browse(Collection<String> genreFilter, Collection<Integer> yearFilter, List<Long> rankedIds,
+                              Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            BitSet base = rankedIds == null ? (BitSet) all.clone() : toBitSet(rankedIds);
+            BitSet genreSelection = union(genreFilter.stream().map(g -> genres.get(key(g))).toList());
+            BitSet yearSelection = union(yearFilter.stream().map(years::get).toList());
+
+            BitSet matches = (BitSet) base.clone();
+            BitSet forGenreCounts = (BitSet) base.clone();
+            BitSet forYearCounts = (BitSet) base.clone();
+            if (genreSelection != null) {
+                matches.and(genreSelection);
+                forYearCounts.and(genreSelection);
+            }
+            if (yearSelection != null) {
+                matches.and(yearSelection);
+                forGenreCounts.and(yearSelection);
+            }
+
+            Map<String, Long> genreCounts = new LinkedHashMap<>();
+            counts(genres, forGenreCounts).entrySet().stream()
+                    .sorted(Map.Entry.<String, Long>comparingByValue().reversed()
+                            .thenComparing(Map.Entry.<String, Long>comparingByKey()))
+                    .forEach(entry -> genreCounts.put(genreNames.get(entry.getKey()), entry.getValue()));
+            Map<Integer, Long> yearCounts = new TreeMap<>(Comparator.reverseOrder()); // newest first
+            yearCounts.putAll(counts(years, forYearCounts));
+
+            return new FacetResult(page(matches, rankedIds, pageable), genreCounts, yearCounts);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void movieChangedAfterCommit(Movie movie) {
+        FacetMovie facetMovie = new FacetMovie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getReleaseYear());
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(facetMovie.id);
+                add(facetMovie);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void movieRemovedAfterCommit(Long movieId) {
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(movieId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        List<MovieTitle> loaded = movieRepository.findTitles();
+        lock.writeLock().lock();
+        try {
+            for (MovieTitle movie : loaded) {
+                remove(movie.getId()); // indexed by a commit that raced the load
+                add(new FacetMovie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getReleaseYear()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        log.info("Movie facets loaded: {} movies, {} genres, {} years", loaded.size(), genres.size(), years.size());
+    }
+
+    // the requested slice of the matches, in search order or by title
+    private Page<Long> page(BitSet matches, List<Long> rankedIds, Pageable pageable) {
+        long offset = pageable.getOffset();
+        List<Long> ids = new ArrayList<>(pageable.getPageSize());
+        Iterator<Long> order = rankedIds != null ? rankedIds.iterator() : byTitle.stream().map(m -> m.id).iterator();
+        long seen = 0;
+        while (order.hasNext() && ids.size() < pageable.getPageSize()) {
+            Long id = order.next();
+            if (matches.get(bit(id)) && seen++ >= offset) {
+                ids.add(id);
+            }
+        }
+        return new PageImpl<>(ids, pageable, matches.cardinality());
+    }
+
+    private static <K> Map<K, Long> counts(Map<K, BitSet> facet, BitSet filter) {
+        Map<K, Long> counts = new HashMap<>();
+        facet.forEach((value, bitmap) -> {
+            BitSet both = (BitSet) bitmap.clone();
+            both.and(filter);
+            int count = both.cardinality();
+            if (count > 0) {
+                counts.put(value, (long) count);
+            }
+        });
+        return counts;
+    }
+
+    // null = no filter on this facet; unknown values just match nothing
+    private static BitSet union(List<BitSet> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return null;
+        }
+        BitSet union = new BitSet();
+        for (BitSet bitmap : bitmaps) {
+            if (bitmap != null) {
+                union.or(bitmap);
+            }
+        }
+        return union;
+    }
+
+    private static BitSet toBitSet(List<Long> ids) {
+        BitSet bitmap = new BitSet();
+        ids.forEach(id -> bitmap.set(bit(id)));
+        return bitmap;
+    }
+
+    private void add(FacetMovie movie) {
+        int bit = bit(movie.id);
+        movies.put(movie.id, movie);
+        byTitle.add(movie);
+        all.set(bit);
+        movie.genres.forEach((genre, name) -> {
+            genres.computeIfAbsent(genre, g -> new BitSet()).set(bit);
+            genreNames.putIfAbsent(genre, name);
+        });
+        years.computeIfAbsent(movie.releaseYear, y -> new BitSet()).set(bit);
+    }
+
+    private void remove(Long movieId) {
+        FacetMovie movie = movies.remove(movieId);
+        if (movie == null) {
+            return;
+        }
+        int bit = bit(movieId);
+        byTitle.remove(movie);
+        all.clear(bit);
+        for (String genre : movie.genres.keySet()) {
+            BitSet bitmap = genres.get(genre);
+            bitmap.clear(bit);
+            if (bitmap.isEmpty()) {
+                genres.remove(genre);
+                genreNames.remove(genre);
+            }
+        }
+        BitSet bitmap = years.get(movie.releaseYear);
+        bitmap.clear(bit);
+        if (bitmap.isEmpty()) {
+            years.remove(movie.releaseYear);
+        }
+    }
+
+    private static int bit(Long movieId) {
+        return Math.toIntExact(movieId); // ids past 2^31 would need a different bitmap
+    }
+
+    private static String key(String genre) {
+        return genre == null ? "" : genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // page of ids + counts per genre (most movies first) and per year (newest first)
+    public static final class FacetResult {
+        private final Page<Long> ids;
+        private final Map<String, Long> genreCounts;
+        private final Map<Integer, Long> yearCounts;
+
+        FacetResult(Page<Long> ids, Map<String, Long> genreCounts, Map<Integer, Long> yearCounts) {
+            this.ids = ids;
+            this.genreCounts = genreCounts;
+            this.yearCounts = yearCounts;
+        }
+
+        public Page<Long> getIds() {
+            return ids;
+        }
+
+        public Map<String, Long> getGenreCounts() {
+            return genreCounts;
+        }
+
+        public Map<Integer, Long> getYearCounts() {
+            return yearCounts;
+        }
+    }
+
+    private static final class FacetMovie {
+        private final Long id;
+        private final String title;
+        private final Map<String, String> genres = new LinkedHashMap<>(); // lowercase -> as written (column is comma separated)
+        private final int releaseYear;
+
+        FacetMovie(Long id, String title, String genre, int releaseYear) {
+            this.id = id;
+            this.title = title;
+            this.releaseYear = releaseYear;
+            if (genre != null) {
+                for (String g : genre.split(",")) {
+                    if (!g.isBlank()) {
+                        genres.putIfAbsent(key(g), g.trim());
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,319 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.RankedMovieDTO;
+import in.lakshay.entity.Movie;
+import in.lakshay.entity.MovieRatingStats;
+import in.lakshay.event.MovieRatingChangedEvent;
+import in.lakshay.repo.MovieRatingStatsRepository;
+import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.repo.ReviewRepository.WeightedRating;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+// "top rated movies" lists - overall, per genre and per release year
+// score = bayesian average (C * m + sum of ratings) / (C + number of ratings), m = mean rating over all movies,
+// so a movie with two 5 star reviews doesn't beat one with 500 reviews averaging 4.8
+// optionally each review is weighted by how helpful people found it (movies.ranking.weight-by-helpfulness)
+// every list is a bounded top-k kept in memory, a review change only re-scores its own movie
+// m is fixed between full refreshes so one movie changing doesn't reshuffle every list
+@Service
+@Slf4j
+public class MovieRankingService {
+    private static final String ALL = "all";
+    private static final Comparator<RankedMovie> BY_SCORE = Comparator.comparingDouble((RankedMovie m) -> m.score).reversed()
+            .thenComparing(Comparator.comparingLong((RankedMovie m) -> m.reviewCount).reversed())
+            .thenComparing(m -> m.movieId);
+
+    private final MovieRepository movieRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ReviewRepository reviewRepository;
+    private final double priorWeight;
+    private final long minReviews;
+    private final int topK;
+    private final boolean weightByHelpfulness;
+
+    // guarded by this
+    private Map<Long, RankedMovie> movies = new HashMap<>(); // everything with enough reviews to be ranked
+    private Map<String, TreeSet<RankedMovie>> boards = new HashMap<>(); // list key -> best topK movies
+    private double priorMean;
+
+    // what readers see - immutable lists swapped in after every change, so reads never lock
+    private volatile Map<String, List<RankedMovieDTO>> snapshots = Map.of();
+
+    @Autowired // constructor injection
+    public MovieRankingService(MovieRepository movieRepository, MovieRatingStatsRepository movieRatingStatsRepository,
+                               ReviewRepository reviewRepository,
+                               @Value("${movies.ranking.prior-weight:10}") double priorWeight,
+                               @Value("${movies.ranking.min-reviews:1}") long minReviews,
+                               @Value("${movies.ranking.top-k:100}") int topK,
+                               @Value("${movies.ranking.weight-by-helpfulness:false}") boolean weightByHelpfulness) {
+        this.movieRepository = movieRepository;
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.reviewRepository = reviewRepository;
+        this.priorWeight = priorWeight;
+        this.minReviews = minReviews;
+        this.topK = topK;
+        this.weightByHelpfulness = weightByHelpfulness;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    // best movies overall, for one genre or for one release year
+    public List<RankedMovieDTO> getTopMovies(String genre, Integer year, int limit) {
+        String key = genre != null ? genreKey(genre) : year != null ? yearKey(year) : ALL;
+        List<RankedMovieDTO> board = snapshots.getOrDefault(key, List.of());
+        return board.subList(0, Math.min(Math.max(limit, 0), board.size()));
+    }
+
+    // full recompute - on startup, and periodically to pick up votes (weighted mode), movie edits and a new mean
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${movies.ranking.refresh-interval-ms:300000}",
+            fixedDelayString = "${movies.ranking.refresh-interval-ms:300000}")
+    public void refresh() {
+        List<Aggregate> aggregates = loadAggregates(null);
+        Map<Long, Movie> movieById = new HashMap<>();
+        movieRepository.findAllById(aggregates.stream().map(a -> a.movieId).toList())
+                .forEach(movie -> movieById.put(movie.getId(), movie));
+
+        double totalSum = 0;
+        double totalWeight = 0;
+        for (Aggregate aggregate : aggregates) {
+            totalSum += aggregate.ratingSum;
+            totalWeight += aggregate.weight;
+        }
+        double mean = totalWeight > 0 ? totalSum / totalWeight : 0;
+
+        Map<Long, RankedMovie> ranked = new HashMap<>();
+        for (Aggregate aggregate : aggregates) {
+            Movie movie = movieById.get(aggregate.movieId);
+            if (movie != null && aggregate.reviewCount >= minReviews) {
+                ranked.put(movie.getId(), rank(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getReleaseYear(),
+                        aggregate, mean));
+            }
+        }
+
+        // a change committed while we were loading gets picked up by the next refresh
+        synchronized (this) {
+            priorMean = mean;
+            movies = ranked;
+            boards = new HashMap<>();
+            for (RankedMovie movie : ranked.values()) {
+                place(movie);
+            }
+            Map<String, List<RankedMovieDTO>> next = new HashMap<>();
+            boards.keySet().forEach(key -> next.put(key, toDTOs(boards.get(key))));
+            snapshots = Map.copyOf(next);
+        }
+        log.info("Ranked {} movies (mean rating {})", ranked.size(), String.format(Locale.ROOT, "%.2f", mean));
+    }
+
+    // one movie's reviews changed - re-score just that movie and fix the lists it's (or was) on
+    @EventListener
+    public void onMovieRatingChanged(MovieRatingChangedEvent event) {
+        Long movieId = event.getMovieId();
+        List<Aggregate> aggregates = loadAggregates(movieId);
+        Aggregate aggregate = aggregates.isEmpty() ? null : aggregates.get(0);
+        boolean ranked = aggregate != null && aggregate.reviewCount >= minReviews;
+
+        // a movie entering the lists needs its title etc - load it before taking the lock, db calls don't go inside
+        Movie movie = null;
+        if (ranked) {
+            boolean known;
+            synchronized (this) {
+                known = movies.containsKey(movieId);
+            }
+            if (!known) {
+                movie = movieRepository.findById(movieId).orElse(null);
+            }
+        }
+
+        synchronized (this) {
+            RankedMovie old = movies.get(movieId);
+            RankedMovie updated = null;
+            if (ranked) {
+                if (old != null) {
+                    updated = rank(movieId, old.title, old.genre, old.releaseYear, aggregate, priorMean);
+                } else if (movie != null) {
+                    updated = rank(movieId, movie.getTitle(), movie.getGenre(), movie.getReleaseYear(),
+                            aggregate, priorMean);
+                }
+                // else the movie is gone, or a refresh dropped it since we looked and the next one ranks it again
+            }
+
+            Set<String> touched = new HashSet<>();
+            if (updated != null) {
+                movies.put(movieId, updated);
+            } else {
+                movies.remove(movieId);
+            }
+            if (old != null) {
+                unplace(old);
+                touched.addAll(old.keys);
+            }
+            if (updated != null) {
+                place(updated);
+                touched.addAll(updated.keys);
+            }
+
+            Map<String, List<RankedMovieDTO>> next = new HashMap<>(snapshots);
+            for (String key : touched) {
+                TreeSet<RankedMovie> board = boards.get(key);
+                if (board == null || board.isEmpty()) {
+                    boards.remove(key);
+                    next.remove(key);
+                } else {
+                    next.put(key, toDTOs(board));
+                }
+            }
+            snapshots = Map.copyOf(next);
+        }
+    }
+
+    // add to all the movie's lists, dropping whatever falls off the end
+    private void place(RankedMovie movie) {
+        for (String key : movie.keys) {
+            TreeSet<RankedMovie> board = boards.computeIfAbsent(key, k -> new TreeSet<>(BY_SCORE));
+            board.add(movie);
+            if (board.size() > topK) {
+                board.pollLast();
+            }
+        }
+    }
+
+    // take off all its lists - a full list that loses one may be hiding the next best movie, so refill it
+    private void unplace(RankedMovie movie) {
+        for (String key : movie.keys) {
+            TreeSet<RankedMovie> board = boards.get(key);
+            if (board != null && board.remove(movie) && board.size() == topK - 1) {
+                refill(key, board);
+            }
+        }
+    }
+
+    // rare (a top-k movie dropped out) so a scan over the ranked movies is fine
+    private void refill(String key, TreeSet<RankedMovie> board) {
+        for (RankedMovie candidate : movies.values()) {
+            if (candidate.keys.contains(key)) {
+                board.add(candidate);
+                if (board.size() > topK) {
+                    board.pollLast();
+                }
+            }
+        }
+    }
+
+    private RankedMovie rank(Long movieId, String title, String genre, int releaseYear, Aggregate aggregate, double mean) {
+        double score = (priorWeight * mean + aggregate.ratingSum) / (priorWeight + aggregate.weight);
+        double average = aggregate.weight > 0 ? aggregate.ratingSum / aggregate.weight : 0;
+        return new RankedMovie(movieId, title, genre, releaseYear, score, average, aggregate.reviewCount,
+                keysOf(genre, releaseYear));
+    }
+
+    // movieId null = every movie
+    private List<Aggregate> loadAggregates(Long movieId) {
+        List<Aggregate> aggregates = new ArrayList<>();
+        if (weightByHelpfulness) {
+            for (WeightedRating rating : reviewRepository.findWeightedRatings(movieId)) {
+                aggregates.add(new Aggregate(rating.getMovieId(), rating.getReviewCount(),
+                        rating.getRatingSum(), rating.getWeight()));
+            }
+        } else {
+            // unweighted = the precomputed stats, no scan over reviews
+            List<MovieRatingStats> stats = movieId == null ? movieRatingStatsRepository.findAll()
+                    : movieRatingStatsRepository.findById(movieId).map(List::of).orElse(List.of());
+            for (MovieRatingStats s : stats) {
+                if (s.getReviewCount() > 0) {
+                    aggregates.add(new Aggregate(s.getMovieId(), s.getReviewCount(), s.getRatingSum(), s.getReviewCount()));
+                }
+            }
+        }
+        return aggregates;
+    }
+
+    // lists a movie shows up in: overall, each of its genres, its year
+    private static Set<String> keysOf(String genre, int releaseYear) {
+        Set<String> keys = new HashSet<>();
+        keys.add(ALL);
+        keys.add(yearKey(releaseYear));
+        if (genre != null) {
+            for (String g : genre.split(",")) { // genre is comma separated
+                if (!g.isBlank()) {
+                    keys.add(genreKey(g));
+                }
+            }
+        }
+        return keys;
+    }
+
+    private static String genreKey(String genre) {
+        return "genre:" + genre.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String yearKey(int year) {
+        return "year:" + year;
+    }
+
+    private static List<RankedMovieDTO> toDTOs(TreeSet<RankedMovie> board) {
+        List<RankedMovieDTO> dtos = new ArrayList<>(board.size());
+        for (RankedMovie movie : board) {
+            dtos.add(new RankedMovieDTO(movie.movieId, movie.title, movie.genre, movie.releaseYear,
+                    movie.score, movie.averageRating, movie.reviewCount));
+        }
+        return List.copyOf(dtos);
+    }
+
+    private static final class Aggregate {
+        private final Long movieId;
+        private final long reviewCount;
+        private final double ratingSum;
+        private final double weight; // = reviewCount when not weighting
+
+        Aggregate(Long movieId, long reviewCount, double ratingSum, double weight) {
+            this.movieId = movieId;
+            this.reviewCount = reviewCount;
+            this.ratingSum = ratingSum;
+            this.weight = weight;
+        }
+    }
+
+    private static final class RankedMovie {
+        private final Long movieId;
+        private final String title;
+        private final String genre;
+        private final int releaseYear;
+        private final double score;
+        private final double averageRating;
+        private final long reviewCount;
+        private final Set<String> keys;
+
+        RankedMovie(Long movieId, String title, String genre, int releaseYear, double score, double averageRating,
+                    long reviewCount, Set<String> keys) {
+            this.movieId = movieId;
+            this.title = title;
+            this.genre = genre;
+            this.releaseYear = releaseYear;
+            this.score = score;
+            this.averageRating = averageRating;
+            this.reviewCount = reviewCount;
+            this.keys = keys;
+        }
+    }
+}
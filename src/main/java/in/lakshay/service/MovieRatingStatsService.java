@@ -0,0 +1,148 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.MovieDTO;
+import in.lakshay.entity.MovieRatingStats;
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.event.MovieRatingChangedEvent;
+import in.lakshay.repo.MovieRatingStatsRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+// per-movie rating aggregates (count, sum, star histogram) of approved reviews
+// ReviewService reports every change that affects them inside its own transaction, so they stay in sync
+// with the reviews and reading a movie's rating is a primary key lookup instead of an AVG()
+@Service
+@Slf4j
+public class MovieRatingStatsService {
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Autowired // constructor injection
+    public MovieRatingStatsService(MovieRatingStatsRepository movieRatingStatsRepository,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // what a review counted for before the change - call before touching rating/status
+    // null = it wasn't counted (not approved, or a new review)
+    public Integer countedRating(Review review) {
+        return review.getStatus() == ReviewStatus.APPROVED ? review.getRating() : null;
+    }
+
+    // a review of movieId went from counting as oldRating to counting as newRating (null = not counted)
+    @Transactional
+    public void reviewChanged(Long movieId, Integer oldRating, Integer newRating) {
+        if (oldRating == null ? newRating == null : oldRating.equals(newRating)) {
+            return; // nothing the stats care about changed
+        }
+
+        long[] stars = new long[5];
+        long count = 0;
+        long sum = 0;
+        if (oldRating != null) {
+            count--;
+            sum -= oldRating;
+            addStar(stars, oldRating, -1);
+        }
+        if (newRating != null) {
+            count++;
+            sum += newRating;
+            addStar(stars, newRating, 1);
+        }
+        movieRatingStatsRepository.applyDelta(movieId, count, sum, stars[0], stars[1], stars[2], stars[3], stars[4]);
+        publishAfterCommit(movieId);
+    }
+
+    public Optional<MovieRatingStats> getStats(Long movieId) {
+        return movieRatingStatsRepository.findById(movieId);
+    }
+
+    // stats for a page of movies in one query
+    public Map<Long, MovieRatingStats> getStats(Collection<Long> movieIds) {
+        Map<Long, MovieRatingStats> stats = new HashMap<>();
+        if (!movieIds.isEmpty()) {
+            movieRatingStatsRepository.findByMovieIdIn(movieIds).forEach(s -> stats.put(s.getMovieId(), s));
+        }
+        return stats;
+    }
+
+    // copy the rating fields onto movie dtos - movies without approved reviews get 0 / null
+    public void fillRatings(Collection<MovieDTO> movies) {
+        Map<Long, MovieRatingStats> stats = getStats(movies.stream().map(MovieDTO::getId).toList());
+        for (MovieDTO movie : movies) {
+            MovieRatingStats movieStats = stats.get(movie.getId());
+            if (movieStats != null) {
+                movie.setAverageRating(movieStats.getAverageRating());
+                movie.setReviewCount(movieStats.getReviewCount());
+                movie.setRatingHistogram(List.of(movieStats.getStars1(), movieStats.getStars2(),
+                        movieStats.getStars3(), movieStats.getStars4(), movieStats.getStars5()));
+            } else {
+                movie.setReviewCount(0L);
+                movie.setRatingHistogram(List.of(0L, 0L, 0L, 0L, 0L));
+            }
+        }
+    }
+
+    // throw the stats away and recompute them from the reviews table
+    // for data fixed by hand in the db, or a deploy that adds the table to an existing database
+    @Transactional
+    public int rebuild() {
+        movieRatingStatsRepository.deleteAllStats();
+        int movies = movieRatingStatsRepository.insertFromReviews();
+        log.info("Rebuilt rating stats for {} movies", movies);
+        return movies;
+    }
+
+    // first start with the table - fill it from the reviews that are already there
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (movieRatingStatsRepository.count() == 0) {
+            rebuild();
+        }
+    }
+
+    // listeners (rankings) read the committed stats, so wait for the commit
+    private void publishAfterCommit(Long movieId) {
+        Runnable publish = () -> {
+            try {
+                eventPublisher.publishEvent(new MovieRatingChangedEvent(movieId));
+            } catch (Exception e) {
+                // the review is saved already - a broken listener must not look like a failed write
+                log.warn("Error publishing rating change for movie id: {}: {}", movieId, e.getMessage());
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    publish.run();
+                }
+            });
+        } else {
+            publish.run();
+        }
+    }
+
+    private void addStar(long[] stars, int rating, int delta) {
+        if (rating >= 1 && rating <= 5) { // the validator only lets 1-5 through, but don't blow up on old data
+            stars[rating - 1] += delta;
+        }
+    }
+}
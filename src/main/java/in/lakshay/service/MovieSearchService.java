@@ -0,0 +1,324 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Movie;
+import in.lakshay.repo.MovieRepository;
+import in.lakshay.util.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// movie search box - in-memory index over title, genre and description instead of LIKE '%x%' on every keystroke
+// every word is indexed whole and by its prefixes (edge n-grams), so "inters" finds "interstellar", and
+// words of 4+ letters also match with one typo ("intersteller", "batmna"). every query word has to match
+// somewhere; score = sum over query words of field weight (title > genre > description) * match quality
+// (whole word > prefix > typo). built on startup, MovieService keeps it current after each commit
+@Service
+@Slf4j
+public class MovieSearchService {
+    private static final float TITLE_WEIGHT = 3f;
+    private static final float GENRE_WEIGHT = 2f;
+    private static final float DESCRIPTION_WEIGHT = 1f;
+    private static final float WORD_MATCH = 1f;
+    private static final float PREFIX_MATCH = 0.7f;
+    private static final float TYPO_MATCH = 0.5f;
+    private static final int MAX_PREFIX_LENGTH = 15; // longer query words only match whole or with a typo
+    private static final int MIN_TYPO_LENGTH = 4; // one letter off in a shorter word is usually another word
+    private static final int MAX_QUERY_TERMS = 8;
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final MovieRepository movieRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // guarded by lock
+    private final Map<Long, IndexedMovie> movies = new HashMap<>();
+    private final Map<String, Map<Long, Float>> words = new HashMap<>(); // word -> movie id -> best field weight
+    private final Map<String, Map<Long, Float>> prefixes = new HashMap<>(); // prefix -> movie id -> best field weight
+    private final Map<String, Set<String>> typoKeys = new HashMap<>(); // word and its one-letter deletions -> words
+
+    @Autowired // constructor injection
+    public MovieSearchService(MovieRepository movieRepository) {
+        this.movieRepository = movieRepository;
+    }
+
+    // one page of matching movie ids, best first - genre/year filter like findIdsWithFilters (null = any)
+    public Page<Long> search(String query, String genre, Integer year, Pageable pageable) {
+        List<Long> ranked = rank(query, genre, year);
+        int from = (int) Math.min(pageable.getOffset(), ranked.size());
+        int to = Math.min(from + pageable.getPageSize(), ranked.size());
+        return new PageImpl<>(new ArrayList<>(ranked.subList(from, to)), pageable, ranked.size());
+    }
+
+    // every matching movie id, best first
+    public List<Long> rank(String query, String genre, Integer year) {
+        Set<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        List<Map.Entry<Long, Float>> ranked = new ArrayList<>();
+        Map<Long, String> titles = new HashMap<>();
+
+        lock.readLock().lock();
+        try {
+            Map<Long, Float> scores = null;
+            int used = 0;
+            for (String term : terms) {
+                if (++used > MAX_QUERY_TERMS) {
+                    break;
+                }
+                Map<Long, Float> termScores = match(term);
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet()); // every word has to match
+                    scores.replaceAll((movieId, score) -> score + termScores.get(movieId));
+                }
+                if (scores.isEmpty()) {
+                    break;
+                }
+            }
+            if (scores != null) {
+                for (Map.Entry<Long, Float> entry : scores.entrySet()) {
+                    IndexedMovie movie = movies.get(entry.getKey());
+                    if ((genre == null || genre.equalsIgnoreCase(movie.genre))
+                            && (year == null || year == movie.releaseYear)) {
+                        ranked.add(entry);
+                        titles.put(movie.id, movie.title);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        ranked.sort(Map.Entry.<Long, Float>comparingByValue().reversed()
+                .thenComparing(entry -> titles.get(entry.getKey()), Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER))
+                .thenComparing(Map.Entry.<Long, Float>comparingByKey()));
+        return ranked.stream().map(Map.Entry::getKey).toList();
+    }
+
+    // (re)index once the movie's transaction commits - copies the fields now, the entity may change later
+    public void indexAfterCommit(Movie movie) {
+        IndexedMovie indexed = new IndexedMovie(movie);
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(indexed.id);
+                add(indexed);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long movieId) {
+        runAfterCommit(() -> {
+            lock.writeLock().lock();
+            try {
+                remove(movieId);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        int pageNumber = 0;
+        Page<Movie> page;
+        do {
+            page = movieRepository.findAll(PageRequest.of(pageNumber++, LOAD_BATCH_SIZE, Sort.by("id")));
+            lock.writeLock().lock();
+            try {
+                for (Movie movie : page) {
+                    remove(movie.getId()); // indexed by a commit that raced the load
+                    add(new IndexedMovie(movie));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } while (page.hasNext());
+        log.info("Movie search index loaded: {} movies, {} words in {} ms",
+                movies.size(), words.size(), System.currentTimeMillis() - start);
+    }
+
+    // movie id -> best weight * quality for one query word
+    private Map<Long, Float> match(String term) {
+        Map<Long, Float> scores = new HashMap<>();
+        addScores(scores, words.get(term), WORD_MATCH);
+        if (term.length() <= MAX_PREFIX_LENGTH) {
+            addScores(scores, prefixes.get(term), PREFIX_MATCH);
+        }
+        if (term.length() >= MIN_TYPO_LENGTH) {
+            for (String word : typoCandidates(term)) {
+                addScores(scores, words.get(word), TYPO_MATCH);
+            }
+        }
+        return scores;
+    }
+
+    private static void addScores(Map<Long, Float> scores, Map<Long, Float> weights, float quality) {
+        if (weights != null) {
+            weights.forEach((movieId, weight) -> scores.merge(movieId, weight * quality, Math::max));
+        }
+    }
+
+    // indexed words one edit away (symspell style: two words one edit apart share the word itself or
+    // a one-letter deletion, so only those keys are looked up instead of comparing against every word)
+    private Set<String> typoCandidates(String term) {
+        Set<String> candidates = new HashSet<>();
+        for (String key : deletions(term)) {
+            Set<String> found = typoKeys.get(key);
+            if (found != null) {
+                for (String word : found) {
+                    if (!word.equals(term) && withinOneEdit(term, word)) {
+                        candidates.add(word);
+                    }
+                }
+            }
+        }
+        return candidates;
+    }
+
+    private void add(IndexedMovie movie) {
+        movies.put(movie.id, movie);
+        movie.words.forEach((word, weight) -> {
+            boolean newWord = !words.containsKey(word);
+            words.computeIfAbsent(word, w -> new HashMap<>()).merge(movie.id, weight, Math::max);
+            for (int length = 1; length <= Math.min(word.length(), MAX_PREFIX_LENGTH); length++) {
+                prefixes.computeIfAbsent(word.substring(0, length), p -> new HashMap<>()).merge(movie.id, weight, Math::max);
+            }
+            if (newWord && word.length() >= MIN_TYPO_LENGTH - 1) {
+                for (String key : deletions(word)) {
+                    typoKeys.computeIfAbsent(key, k -> new HashSet<>()).add(word);
+                }
+            }
+        });
+    }
+
+    private void remove(Long movieId) {
+        IndexedMovie movie = movies.remove(movieId);
+        if (movie == null) {
+            return;
+        }
+        for (String word : movie.words.keySet()) {
+            for (int length = 1; length <= Math.min(word.length(), MAX_PREFIX_LENGTH); length++) {
+                removeFrom(prefixes, word.substring(0, length), movieId);
+            }
+            if (removeFrom(words, word, movieId) && word.length() >= MIN_TYPO_LENGTH - 1) {
+                // last movie with this word - take it out of the typo lookup too
+                for (String key : deletions(word)) {
+                    Set<String> found = typoKeys.get(key);
+                    if (found != null && found.remove(word) && found.isEmpty()) {
+                        typoKeys.remove(key);
+                    }
+                }
+            }
+        }
+    }
+
+    // true if that was the last movie under the key
+    private static boolean removeFrom(Map<String, Map<Long, Float>> index, String key, Long movieId) {
+        Map<Long, Float> postings = index.get(key);
+        if (postings != null) {
+            postings.remove(movieId);
+            if (postings.isEmpty()) {
+                index.remove(key);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // the word plus every way to drop one letter
+    private static Set<String> deletions(String word) {
+        Set<String> keys = new HashSet<>();
+        keys.add(word);
+        for (int i = 0; i < word.length(); i++) {
+            keys.add(word.substring(0, i) + word.substring(i + 1));
+        }
+        return keys;
+    }
+
+    // one insertion, deletion, substitution or swap of neighbours
+    private static boolean withinOneEdit(String a, String b) {
+        if (a.length() > b.length()) {
+            String swap = a;
+            a = b;
+            b = swap;
+        }
+        if (b.length() - a.length() > 1) {
+            return false;
+        }
+        int i = 0;
+        while (i < a.length() && a.charAt(i) == b.charAt(i)) {
+            i++;
+        }
+        if (i == a.length()) {
+            return true; // equal, or b has one extra letter at the end
+        }
+        if (a.length() < b.length()) {
+            return a.substring(i).equals(b.substring(i + 1)); // b has an extra letter at i
+        }
+        if (a.substring(i + 1).equals(b.substring(i + 1))) {
+            return true; // substitution
+        }
+        return i + 1 < a.length() && a.charAt(i) == b.charAt(i + 1) && a.charAt(i + 1) == b.charAt(i)
+                && a.substring(i + 2).equals(b.substring(i + 2)); // swapped neighbours
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // what the index keeps per movie - enough to filter, order ties and take the movie out again
+    private static final class IndexedMovie {
+        private final Long id;
+        private final String title;
+        private final String genre;
+        private final int releaseYear;
+        private final Map<String, Float> words = new HashMap<>(); // word -> weight of the best field it's in
+
+        IndexedMovie(Movie movie) {
+            this.id = movie.getId();
+            this.title = movie.getTitle();
+            this.genre = movie.getGenre();
+            this.releaseYear = movie.getReleaseYear();
+            addWords(movie.getDescription(), DESCRIPTION_WEIGHT);
+            addWords(movie.getGenre(), GENRE_WEIGHT);
+            addWords(movie.getTitle(), TITLE_WEIGHT);
+        }
+
+        private void addWords(String text, float weight) {
+            for (String word : TextTokenizer.tokenize(text)) {
+                words.merge(word, weight, Math::max);
+            }
+        }
+    }
+}
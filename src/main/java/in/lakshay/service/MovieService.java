@@ -1,17 +1,27 @@
 package in.lakshay.service;
 
+import in.lakshay.dto.MovieBrowseDTO;
+import in.lakshay.dto.MovieCardDTO;
 import in.lakshay.dto.MovieDTO;
 import in.lakshay.entity.Movie;
 import in.lakshay.exception.ResourceNotFoundException;
 import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.MovieRepository.MovieCard;
+import in.lakshay.service.MovieFacetService.FacetResult;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 // handles all the movie stuff - CRUD ops, search, etc
 
 @Service
@@ -19,36 +29,88 @@ import org.springframework.transaction.annotation.Transactional;
 public class MovieService {
     private final MovieRepository movieRepository; // db stuff
     private final ModelMapper modelMapper; // entity/dto mapper thingy
+    private final MovieRatingStatsService movieRatingStatsService; // ratings on the detail page (listings get them with the cards)
+    private final ReviewTagService reviewTagService; // tag facets on the detail page
+    private final MovieSearchService movieSearchService; // the search box
+    private final MovieSuggestService movieSuggestService; // search box autocomplete
+    private final MovieFacetService movieFacetService; // genre/year counts
 
     @Autowired // constructor injection ftw
-    public MovieService(MovieRepository movieRepository, ModelMapper modelMapper) {
+    public MovieService(MovieRepository movieRepository, ModelMapper modelMapper,
+                        MovieRatingStatsService movieRatingStatsService, ReviewTagService reviewTagService,
+                        MovieSearchService movieSearchService, MovieSuggestService movieSuggestService,
+                        MovieFacetService movieFacetService) {
         this.movieRepository = movieRepository;
         this.modelMapper = modelMapper;
+        this.movieRatingStatsService = movieRatingStatsService;
+        this.reviewTagService = reviewTagService;
+        this.movieSearchService = movieSearchService;
+        this.movieSuggestService = movieSuggestService;
+        this.movieFacetService = movieFacetService;
     }
 
-    // search by title/genre - ignores case cuz users don't care about caps
+    // search by title/genre/description - ignores case cuz users don't care about caps
+    // results come from the search index, best match first (so the page's sort doesn't apply)
     @Transactional(readOnly = true) // no writes here
-    public Page<MovieDTO> findByTitleOrGenreContainingIgnoreCase(String search, Pageable pageable) {
-        log.info("Searching for movies with title or genre containing: {}", search);
-        return movieRepository.findByTitleOrGenreContainingIgnoreCase(search, pageable)
-                .map(movie -> modelMapper.map(movie, MovieDTO.class)); // convert to DTOs
+    public Page<MovieCardDTO> findByTitleOrGenreContainingIgnoreCase(String search, Pageable pageable) {
+        log.info("Searching for movies matching: {}", search);
+        return hydrate(movieSearchService.search(search, null, null, pageable));
     }
 
     // the big filter method - handles all search params
     @Transactional(readOnly = true)
-    public Page<MovieDTO> findMoviesWithFilters(String search, String genre, Integer releaseYear, Pageable pageable) {
+    public Page<MovieCardDTO> findMoviesWithFilters(String search, String genre, Integer releaseYear, Pageable pageable) {
         log.info("Filtering movies with search: {}, genre: {}, releaseYear: {}", search, genre, releaseYear);
-        // this query is kinda slow with lots of data but works for now
-        return movieRepository.findMoviesWithFilters(search, genre, releaseYear, pageable)
-                .map(movie -> modelMapper.map(movie, MovieDTO.class));
+        if (search != null && !search.isBlank()) {
+            return hydrate(movieSearchService.search(search, genre, releaseYear, pageable));
+        }
+        return hydrate(movieRepository.findIdsWithFilters(genre, releaseYear, pageable));
+    }
+
+    // every movie, one page of cards
+    @Transactional(readOnly = true)
+    public Page<MovieCardDTO> findAllMovies(Pageable pageable) {
+        log.info("Fetching all movies");
+        return hydrate(movieRepository.findAllIds(pageable));
+    }
+
+    // second half of a listing: load the page's cards (+ rating stats) by id and put them back in page order
+    // (the id query did the paging in sql, so this only ever touches one page of movies)
+    private Page<MovieCardDTO> hydrate(Page<Long> ids) {
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), ids.getPageable(), ids.getTotalElements()); // no IN () query
+        }
+        Map<Long, MovieCard> cardsById = new HashMap<>();
+        for (MovieCard card : movieRepository.findCardsByIdIn(ids.getContent())) {
+            cardsById.put(card.getId(), card);
+        }
+        List<MovieCardDTO> movies = new ArrayList<>(ids.getNumberOfElements());
+        for (Long id : ids.getContent()) {
+            MovieCard card = cardsById.get(id);
+            if (card != null) { // deleted between the two queries
+                movies.add(toCard(card));
+            }
+        }
+        return new PageImpl<>(movies, ids.getPageable(), ids.getTotalElements());
+    }
+
+    // manual mapping - listings are the hot path and ModelMapper reflects over every property of every movie
+    // package private for MovieMappingBenchmark
+    static MovieCardDTO toCard(MovieCard card) {
+        long reviewCount = card.getReviewCount() != null ? card.getReviewCount() : 0;
+        Double averageRating = reviewCount > 0 ? (double) card.getRatingSum() / reviewCount : null; // same as MovieRatingStats
+        return new MovieCardDTO(card.getId(), card.getTitle(), card.getGenre(), card.getReleaseYear(),
+                card.getPosterImageUrl(), averageRating, reviewCount);
     }
 
-    // gets all movies + their reviews in one go
+    // faceted browsing - any of the genres, any of the years, optional text search, plus the counts
+    // per genre/year for that selection (from the in-memory facet bitmaps, no GROUP BY per facet)
     @Transactional(readOnly = true)
-    public Page<MovieDTO> findAllWithReviews(Pageable pageable) {
-        log.info("Fetching all movies with reviews");
-        return movieRepository.findAllWithReviews(pageable)
-                .map(movie -> modelMapper.map(movie, MovieDTO.class));
+    public MovieBrowseDTO browseMovies(List<String> genres, List<Integer> years, String search, Pageable pageable) {
+        log.info("Browsing movies with genres: {}, years: {}, search: {}", genres, years, search);
+        List<Long> rankedIds = search != null && !search.isBlank() ? movieSearchService.rank(search, null, null) : null;
+        FacetResult result = movieFacetService.browse(genres, years, rankedIds, pageable);
+        return new MovieBrowseDTO(hydrate(result.getIds()), result.getGenreCounts(), result.getYearCounts());
     }
 
 
@@ -57,6 +119,9 @@ public class MovieService {
     public MovieDTO addMovie(Movie movie) {
         log.info("Adding new movie: {}", movie.getTitle());
         Movie savedMovie = movieRepository.save(movie); // do the db insert
+        movieSearchService.indexAfterCommit(savedMovie);
+        movieSuggestService.movieChangedAfterCommit(savedMovie);
+        movieFacetService.movieChangedAfterCommit(savedMovie);
         log.info("Movie saved with ID: {}", savedMovie.getId());
         return modelMapper.map(savedMovie, MovieDTO.class); // convert back to dto
     }
@@ -67,7 +132,10 @@ public class MovieService {
         log.info("Fetching movie with id: {}", id);
         Movie movie = movieRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Movie not found with id: " + id));
-        return modelMapper.map(movie, MovieDTO.class);
+        MovieDTO movieDTO = modelMapper.map(movie, MovieDTO.class);
+        movieRatingStatsService.fillRatings(List.of(movieDTO));
+        movieDTO.setTagCounts(reviewTagService.getTagCounts(id));
+        return movieDTO;
     }
 
     // update existing movie
@@ -85,6 +153,9 @@ public class MovieService {
         movie.setPosterImageUrl(movieDetails.getPosterImageUrl()); // might be null
 
         Movie updatedMovie = movieRepository.save(movie);
+        movieSearchService.indexAfterCommit(updatedMovie);
+        movieSuggestService.movieChangedAfterCommit(updatedMovie);
+        movieFacetService.movieChangedAfterCommit(updatedMovie);
         return modelMapper.map(updatedMovie, MovieDTO.class); // back to dto
     }
 
@@ -104,6 +175,9 @@ public class MovieService {
         }
 
         movieRepository.delete(movie); // bye bye movie
+        movieSearchService.removeAfterCommit(id);
+        movieSuggestService.movieRemovedAfterCommit(id);
+        movieFacetService.movieRemovedAfterCommit(id);
         log.info("Movie with id: {} deleted successfully", id);
     }
 }
\ No newline at end of file
@@ -0,0 +1,261 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.MovieSuggestionDTO;
+import in.lakshay.entity.Movie;
+import in.lakshay.entity.MovieRatingStats;
+import in.lakshay.repo.MovieRatingStatsRepository;
+import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.MovieRepository.MovieTitle;
+import in.lakshay.repo.ReservationRepository;
+import in.lakshay.repo.ReservationRepository.MovieReservationCount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+// search box suggestions - GET /api/v1/movies/suggest answers from an in-memory radix trie, never the db
+// titles are normalized (lowercase, no accents/punctuation) and inserted from every word start, so "dark"
+// and "knight" both suggest "The Dark Knight". every node keeps its best topK completions precomputed,
+// so a lookup is walking the typed prefix down the trie and returning that node's list
+// the trie is immutable: rebuilt off the request path (movie edits, periodic popularity refresh) and swapped in
+@Service
+@Slf4j
+public class MovieSuggestService {
+    private static final Comparator<MovieSuggestionDTO> BY_POPULARITY =
+            Comparator.comparingLong(MovieSuggestionDTO::getPopularity).reversed()
+                    .thenComparing(MovieSuggestionDTO::getTitle, String.CASE_INSENSITIVE_ORDER)
+                    .thenComparing(MovieSuggestionDTO::getMovieId);
+
+    private final MovieRepository movieRepository;
+    private final MovieRatingStatsRepository movieRatingStatsRepository;
+    private final ReservationRepository reservationRepository;
+    private final int topK;
+
+    // guarded by this - what the trie gets built from
+    private Map<Long, MovieSuggestionDTO> suggestions = new HashMap<>();
+
+    private volatile Node root = new Node("");
+
+    @Autowired // constructor injection
+    public MovieSuggestService(MovieRepository movieRepository, MovieRatingStatsRepository movieRatingStatsRepository,
+                               ReservationRepository reservationRepository,
+                               @Value("${movies.suggest.top-k:10}") int topK) {
+        this.movieRepository = movieRepository;
+        this.movieRatingStatsRepository = movieRatingStatsRepository;
+        this.reservationRepository = reservationRepository;
+        this.topK = topK;
+    }
+
+    public int getTopK() {
+        return topK;
+    }
+
+    // most popular movies whose title (or a word of it) starts with prefix
+    public List<MovieSuggestionDTO> suggest(String prefix, int limit) {
+        String key = normalize(prefix);
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            Node child = node.child(key.charAt(i));
+            if (child == null) {
+                return List.of();
+            }
+            // the prefix may end halfway down an edge - everything below still matches
+            int length = Math.min(child.label.length(), key.length() - i);
+            if (!child.label.regionMatches(0, key, i, length)) {
+                return List.of();
+            }
+            i += length;
+            node = child;
+        }
+        return node.top.subList(0, Math.min(Math.max(limit, 0), node.top.size()));
+    }
+
+    // reload titles + popularity (paid reservations + approved reviews) and rebuild - on startup and every
+    // refresh interval (reservations keep coming)
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${movies.suggest.refresh-interval-ms:300000}",
+            fixedDelayString = "${movies.suggest.refresh-interval-ms:300000}")
+    public void refresh() {
+        long start = System.currentTimeMillis();
+        Map<Long, Long> popularity = new HashMap<>();
+        for (MovieReservationCount count : reservationRepository.countPaidByMovie()) {
+            popularity.merge(count.getMovieId(), count.getReservationCount(), Long::sum);
+        }
+        for (MovieRatingStats stats : movieRatingStatsRepository.findAll()) {
+            popularity.merge(stats.getMovieId(), stats.getReviewCount(), Long::sum);
+        }
+
+        Map<Long, MovieSuggestionDTO> loaded = new HashMap<>();
+        for (MovieTitle movie : movieRepository.findTitles()) {
+            loaded.put(movie.getId(), new MovieSuggestionDTO(movie.getId(), movie.getTitle(), movie.getReleaseYear(),
+                    popularity.getOrDefault(movie.getId(), 0L)));
+        }
+
+        synchronized (this) {
+            suggestions = loaded;
+            rebuild();
+        }
+        log.info("Movie suggestions built for {} movies in {} ms", loaded.size(), System.currentTimeMillis() - start);
+    }
+
+    // new/edited movie - keeps the popularity we had for it, the next refresh updates that
+    public void movieChangedAfterCommit(Movie movie) {
+        Long movieId = movie.getId();
+        String title = movie.getTitle();
+        int releaseYear = movie.getReleaseYear();
+        runAfterCommit(() -> {
+            synchronized (this) {
+                MovieSuggestionDTO old = suggestions.get(movieId);
+                suggestions.put(movieId, new MovieSuggestionDTO(movieId, title, releaseYear,
+                        old != null ? old.getPopularity() : 0));
+                rebuild();
+            }
+        });
+    }
+
+    public void movieRemovedAfterCommit(Long movieId) {
+        runAfterCommit(() -> {
+            synchronized (this) {
+                if (suggestions.remove(movieId) != null) {
+                    rebuild();
+                }
+            }
+        });
+    }
+
+    // caller holds the lock
+    private void rebuild() {
+        Node next = new Node("");
+        for (MovieSuggestionDTO suggestion : suggestions.values()) {
+            String title = normalize(suggestion.getTitle());
+            for (int i = 0; i < title.length(); i++) {
+                if (i == 0 || title.charAt(i - 1) == ' ') { // every word start
+                    insert(next, title.substring(i), suggestion);
+                }
+            }
+        }
+        next.freeze(topK);
+        root = next;
+    }
+
+    private static void insert(Node root, String key, MovieSuggestionDTO suggestion) {
+        Node node = root;
+        int i = 0;
+        while (i < key.length()) {
+            char c = key.charAt(i);
+            Node child = node.building.get(c);
+            if (child == null) {
+                Node leaf = new Node(key.substring(i));
+                leaf.ending.add(suggestion);
+                node.building.put(c, leaf);
+                return;
+            }
+            int common = 0;
+            while (common < child.label.length() && i + common < key.length()
+                    && child.label.charAt(common) == key.charAt(i + common)) {
+                common++;
+            }
+            if (common < child.label.length()) {
+                // split the edge: node -(common part)-> middle -(rest)-> child
+                Node middle = new Node(child.label.substring(0, common));
+                child.label = child.label.substring(common);
+                middle.building.put(child.label.charAt(0), child);
+                node.building.put(c, middle);
+                child = middle;
+            }
+            node = child;
+            i += common;
+        }
+        node.ending.add(suggestion);
+    }
+
+    // lowercase, accents off, anything that isn't a letter/digit becomes one space
+    private static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String plain = Normalizer.normalize(text, Normalizer.Form.NFD).replaceAll("\\p{M}+", "");
+        return plain.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    // radix trie node - label is the edge from the parent, children keyed by the first char of their label
+    private static final class Node {
+        private String label;
+        private char[] keys = new char[0]; // sorted, for the binary search
+        private Node[] children = new Node[0];
+        private List<MovieSuggestionDTO> top = List.of(); // best completions at or below this node
+
+        // only while building, dropped by freeze
+        private Map<Character, Node> building = new TreeMap<>();
+        private List<MovieSuggestionDTO> ending = new ArrayList<>(); // titles (from some word) ending here
+
+        Node(String label) {
+            this.label = label;
+        }
+
+        Node child(char c) {
+            int index = Arrays.binarySearch(keys, c);
+            return index >= 0 ? children[index] : null;
+        }
+
+        // turn the build maps into arrays and compute top bottom-up
+        void freeze(int topK) {
+            List<MovieSuggestionDTO> candidates = new ArrayList<>(ending);
+            keys = new char[building.size()];
+            children = new Node[building.size()];
+            int index = 0;
+            for (Map.Entry<Character, Node> entry : building.entrySet()) {
+                Node child = entry.getValue();
+                child.freeze(topK);
+                keys[index] = entry.getKey();
+                children[index++] = child;
+                candidates.addAll(child.top);
+            }
+            candidates.sort(BY_POPULARITY);
+            List<MovieSuggestionDTO> best = new ArrayList<>(Math.min(topK, candidates.size()));
+            Set<Long> seen = new HashSet<>(); // a title can reach a node from two of its words
+            for (MovieSuggestionDTO candidate : candidates) {
+                if (best.size() == topK) {
+                    break;
+                }
+                if (seen.add(candidate.getMovieId())) {
+                    best.add(candidate);
+                }
+            }
+            top = List.copyOf(best);
+            building = null;
+            ending = null;
+        }
+    }
+}
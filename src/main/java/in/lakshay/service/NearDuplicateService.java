@@ -0,0 +1,282 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.repo.ReviewRepository.ReviewSignature;
+import in.lakshay.repo.ReviewRepository.ReviewText;
+import in.lakshay.util.SimHash;
+import in.lakshay.util.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// finds reviews whose text is nearly the same as another one (spam bots posting one text with small edits)
+// every review comment gets a 64-bit simhash (reviews.simhash), kept here in a banded lsh index:
+// the signature is cut into 8 bands of 8 bits and each band value points at the reviews that have it.
+// two signatures at most 7 bits apart must agree on at least one band, so a lookup only compares
+// against the reviews sharing a band instead of all of them
+@Service
+@Slf4j
+public class NearDuplicateService {
+    public static final long NO_SIGNATURE = 0L; // stored for comments too short to sign
+    private static final int BANDS = 8;
+    private static final int BAND_BITS = 64 / BANDS;
+    private static final int LOAD_BATCH_SIZE = 1000;
+
+    private final ReviewRepository reviewRepository;
+    private final int maxDistance;
+    private final int minTokens;
+    private final List<int[]> clusterBands; // band combinations keyed on by refreshClusters
+
+    private final Map<Long, Long> signatures = new ConcurrentHashMap<>(); // review id -> simhash
+    private final List<Map<Integer, Set<Long>>> bands = new ArrayList<>(BANDS); // band value -> review ids
+    private volatile List<List<Long>> clusters = List.of(); // last refreshClusters result
+
+    @Autowired // constructor injection
+    public NearDuplicateService(ReviewRepository reviewRepository,
+                                @Value("${reviews.near-duplicates.max-distance:6}") int maxDistance,
+                                @Value("${reviews.near-duplicates.min-tokens:8}") int minTokens) {
+        if (maxDistance >= BANDS) {
+            throw new IllegalArgumentException("reviews.near-duplicates.max-distance must be below " + BANDS);
+        }
+        this.reviewRepository = reviewRepository;
+        this.maxDistance = maxDistance;
+        this.minTokens = minTokens;
+        this.clusterBands = combinations(Math.min(BANDS - maxDistance, 4), 0, new int[0], new ArrayList<>());
+        for (int i = 0; i < BANDS; i++) {
+            bands.add(new ConcurrentHashMap<>());
+        }
+    }
+
+    // simhash of a comment, NO_SIGNATURE if it's too short for the comparison to mean anything
+    public long signatureOf(String comment) {
+        List<String> tokens = TextTokenizer.tokenize(comment);
+        if (tokens.size() < minTokens) {
+            return NO_SIGNATURE;
+        }
+        long signature = SimHash.of(tokens);
+        return signature == NO_SIGNATURE ? 1L : signature; // keep the sentinel free
+    }
+
+    // ids of indexed reviews within maxDistance bits of the signature (excludeId = the review itself on edits)
+    public List<Long> findNearDuplicates(long signature, Long excludeId) {
+        List<Long> matches = new ArrayList<>();
+        if (signature == NO_SIGNATURE) {
+            return matches;
+        }
+        Set<Long> seen = new HashSet<>();
+        for (int band = 0; band < BANDS; band++) {
+            Set<Long> bucket = bands.get(band).get(bandValue(signature, band));
+            if (bucket == null) {
+                continue;
+            }
+            for (Long reviewId : bucket) {
+                if (reviewId.equals(excludeId) || !seen.add(reviewId)) {
+                    continue;
+                }
+                Long other = signatures.get(reviewId);
+                if (other != null && SimHash.distance(signature, other) <= maxDistance) {
+                    matches.add(reviewId);
+                }
+            }
+        }
+        return matches;
+    }
+
+    // (re)index a review once its transaction commits - NO_SIGNATURE just takes it out
+    public void indexAfterCommit(Long reviewId, long signature) {
+        runAfterCommit(() -> {
+            remove(reviewId);
+            if (signature != NO_SIGNATURE) {
+                add(reviewId, signature);
+            }
+        });
+    }
+
+    public void removeAfterCommit(Long reviewId) {
+        runAfterCommit(() -> remove(reviewId));
+    }
+
+    // groups of reviews that are near-duplicates of each other, biggest first
+    // served from the last background pass (refreshClusters), so a request never walks the index
+    public List<List<Long>> findClusters(int limit) {
+        List<List<Long>> current = clusters;
+        return current.subList(0, Math.min(Math.max(limit, 0), current.size()));
+    }
+
+    // recompute the clusters - exact, no bucket is ever skipped
+    // two signatures at most maxDistance bits apart differ in at most maxDistance bands, so they agree on at least
+    // BANDS - maxDistance of them. keying on every combination of that many bands (clusterBands, 4 at most so a key
+    // fits in an int) puts each such pair under a shared key at least once, and the keys are wide (16 bits at the
+    // default distance of 6), so the groups stay small however many reviews there are - unlike the 8-bit lookup bands
+    @Scheduled(initialDelayString = "${reviews.near-duplicates.cluster-refresh-interval-ms:600000}",
+            fixedDelayString = "${reviews.near-duplicates.cluster-refresh-interval-ms:600000}")
+    public void refreshClusters() {
+        // identical signatures are one group already; only distinct signatures need comparing
+        Map<Long, List<Long>> bySignature = new HashMap<>();
+        signatures.forEach((reviewId, signature) ->
+                bySignature.computeIfAbsent(signature, s -> new ArrayList<>()).add(reviewId));
+        long[] distinct = bySignature.keySet().stream().mapToLong(Long::longValue).toArray();
+
+        int[] parent = new int[distinct.length]; // union-find over positions in distinct
+        for (int i = 0; i < parent.length; i++) {
+            parent[i] = i;
+        }
+        long[] keyed = new long[distinct.length]; // key in the high half, position in the low half
+        for (int[] combination : clusterBands) {
+            for (int i = 0; i < distinct.length; i++) {
+                keyed[i] = (bandKey(distinct[i], combination) << 32) | i;
+            }
+            Arrays.sort(keyed); // same key = adjacent
+            for (int start = 0, end; start < keyed.length; start = end) {
+                end = start + 1;
+                while (end < keyed.length && keyed[end] >>> 32 == keyed[start] >>> 32) {
+                    end++;
+                }
+                for (int i = start; i < end; i++) {
+                    for (int j = i + 1; j < end; j++) {
+                        int a = find(parent, (int) keyed[i]);
+                        int b = find(parent, (int) keyed[j]);
+                        if (a != b && SimHash.distance(distinct[(int) keyed[i]], distinct[(int) keyed[j]]) <= maxDistance) {
+                            parent[a] = b;
+                        }
+                    }
+                }
+            }
+        }
+
+        Map<Integer, List<Long>> groups = new HashMap<>();
+        for (int i = 0; i < distinct.length; i++) {
+            groups.computeIfAbsent(find(parent, i), root -> new ArrayList<>()).addAll(bySignature.get(distinct[i]));
+        }
+        clusters = groups.values().stream()
+                .filter(cluster -> cluster.size() > 1)
+                .peek(cluster -> cluster.sort(Comparator.naturalOrder()))
+                .sorted(Comparator.comparingInt((List<Long> cluster) -> cluster.size()).reversed())
+                .toList();
+    }
+
+    // fill the index on startup, signing older reviews that don't have a simhash yet
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        int signed = 0;
+        List<ReviewText> unsigned;
+        Long afterId = 0L;
+        while (!(unsigned = reviewRepository.findUnsigned(afterId, PageRequest.of(0, LOAD_BATCH_SIZE))).isEmpty()) {
+            for (ReviewText review : unsigned) {
+                reviewRepository.updateSimhash(review.getId(), signatureOf(review.getComment()));
+                signed++;
+            }
+            afterId = unsigned.get(unsigned.size() - 1).getId();
+        }
+
+        List<ReviewSignature> page;
+        afterId = 0L;
+        while (!(page = reviewRepository.findSignatures(afterId, NO_SIGNATURE, ReviewStatus.REJECTED,
+                PageRequest.of(0, LOAD_BATCH_SIZE))).isEmpty()) {
+            for (ReviewSignature signature : page) {
+                add(signature.getId(), signature.getSimhash());
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        log.info("Near-duplicate index loaded: {} reviews ({} newly signed)", signatures.size(), signed);
+        refreshClusters();
+    }
+
+    private void add(Long reviewId, long signature) {
+        signatures.put(reviewId, signature);
+        for (int band = 0; band < BANDS; band++) {
+            // inside compute so it can't race with remove dropping the bucket
+            bands.get(band).compute(bandValue(signature, band), (v, bucket) -> {
+                Set<Long> ids = bucket != null ? bucket : ConcurrentHashMap.newKeySet();
+                ids.add(reviewId);
+                return ids;
+            });
+        }
+    }
+
+    private void remove(Long reviewId) {
+        Long signature = signatures.remove(reviewId);
+        if (signature == null) {
+            return;
+        }
+        for (int band = 0; band < BANDS; band++) {
+            // drop the bucket once it's empty (atomically, so a concurrent add can't land in a dropped set)
+            bands.get(band).computeIfPresent(bandValue(signature, band), (v, bucket) -> {
+                bucket.remove(reviewId);
+                return bucket.isEmpty() ? null : bucket;
+            });
+        }
+    }
+
+    // every way to pick `count` more bands from `fromBand` on, added to `picked`
+    private static List<int[]> combinations(int count, int fromBand, int[] picked, List<int[]> result) {
+        if (count == 0) {
+            result.add(picked);
+            return result;
+        }
+        for (int band = fromBand; band <= BANDS - count; band++) {
+            int[] next = Arrays.copyOf(picked, picked.length + 1);
+            next[picked.length] = band;
+            combinations(count - 1, band + 1, next, result);
+        }
+        return result;
+    }
+
+    // the chosen bands' values side by side, at most 32 bits
+    private static long bandKey(long signature, int[] combination) {
+        long key = 0;
+        for (int band : combination) {
+            key = (key << BAND_BITS) | bandValue(signature, band);
+        }
+        return key;
+    }
+
+    private static int bandValue(long signature, int band) {
+        return (int) ((signature >>> (band * BAND_BITS)) & ((1 << BAND_BITS) - 1));
+    }
+
+    private static int find(int[] parent, int i) {
+        int root = i;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        // path compression
+        while (i != root) {
+            int next = parent[i];
+            parent[i] = root;
+            i = next;
+        }
+        return root;
+    }
+
+    private void runAfterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+}
@@ -4,8 +4,11 @@ import com.itextpdf.text.DocumentException;
 import com.stripe.Stripe;
 import com.stripe.exception.StripeException;
 import com.stripe.model.Event;
+import com.stripe.model.Refund;
 import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
 import com.stripe.net.Webhook;
+import com.stripe.param.RefundCreateParams;
 import com.stripe.param.checkout.SessionCreateParams;
 import in.lakshay.dto.CheckoutSessionDTO;
 import in.lakshay.dto.PaymentDTO;
@@ -24,6 +27,8 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
 import java.util.Optional; // for nullable results
 
 // handles all payment processing with Stripe integration
@@ -47,6 +52,11 @@ public class PaymentService {
     @Autowired
     private EmailService emailService; // sends the emails
 
+    @Autowired
+    private SeatHoldService seatHoldService; // unpaid reservations are seat holds
+
+    private static final int STRIPE_MIN_SESSION_MINUTES = 31; // stripe's minimum expires_at is 30 min out
+
     @Value("${stripe.api.key}") // from application.properties
     private String stripeApiKey; // stripe secret key - don't log this!
 
@@ -65,6 +75,16 @@ public class PaymentService {
         Reservation reservation = reservationRepository.findById(reservationId)
                 .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id: " + reservationId));
 
+        // seat hold ran out (or they canceled) - seats may already be someone else's
+        // checked by time too, the sweeper can be a moment behind
+        LocalDateTime holdExpiresAt = reservation.getReservationTime() != null
+                ? seatHoldService.expiresAt(reservation.getReservationTime()) : null;
+        boolean unpaid = reservation.getStatusId() == null || reservation.getStatusId() == 1;
+        if ((reservation.getStatusId() != null && reservation.getStatusId() == 3)
+                || (unpaid && holdExpiresAt != null && holdExpiresAt.isBefore(LocalDateTime.now()))) {
+            throw new IllegalStateException("Reservation was canceled or its seat hold expired");
+        }
+
         // Make sure they haven't already paid
         Optional<Payment> existingPayment = paymentRepository.findByReservation(reservation);
         if (existingPayment.isPresent() && existingPayment.get().getStatus() == Payment.PaymentStatus.SUCCEEDED) {
@@ -77,7 +97,16 @@ public class PaymentService {
                 reservation.getShowtime().getMovie().getTitle());
 
         // stripe has a crazy builder pattern API
-        SessionCreateParams params = SessionCreateParams.builder()
+        SessionCreateParams.Builder builder = SessionCreateParams.builder();
+        if (unpaid && holdExpiresAt != null) {
+            // close the checkout when the hold runs out - stripe won't take less than 30 minutes though,
+            // so the sweeper expires the session when it cancels the hold (expireCheckouts)
+            // and money that still slips through is refunded by updateReservationStatus
+            LocalDateTime earliest = LocalDateTime.now().plusMinutes(STRIPE_MIN_SESSION_MINUTES);
+            LocalDateTime sessionExpiresAt = holdExpiresAt.isAfter(earliest) ? holdExpiresAt : earliest;
+            builder.setExpiresAt(sessionExpiresAt.atZone(ZoneId.systemDefault()).toEpochSecond());
+        }
+        SessionCreateParams params = builder
                 .setMode(SessionCreateParams.Mode.PAYMENT) // one-time payment
                 .setSuccessUrl(successUrl) // redirect after payment
                 .setCancelUrl(cancelUrl) // if they cancel
@@ -277,15 +306,17 @@ public class PaymentService {
         log.info("Marking reservation as paid for ID: {}", reservationId);
 
         try {
-            // Get a fresh copy of the reservation from the database
-            // this avoids any stale data issues
-            Reservation freshReservation = reservationRepository.findById(reservationId)
-                    .orElseThrow(() -> new ResourceNotFoundException("Reservation not found with id: " + reservationId));
-
-            // Mark the reservation as paid and update status to PAID (2)
-            freshReservation.setPaid(true); // boolean flag
-            freshReservation.setStatusId(2); // 2 = PAID in master_data
-            reservationRepository.save(freshReservation);
+            // Promote the seat hold - mark the reservation as paid and update status to PAID (2)
+            // conditional update so we can't race the hold sweeper into un-canceling a reservation
+            if (reservationRepository.promoteToPaid(reservationId) == 0) {
+                // hold expired before the money arrived, the seats may be gone - give the money back
+                // (also undoes the SUCCEEDED the webhook handlers set before calling this)
+                log.warn("Payment received for reservation ID: {} after it was canceled or its seat hold expired, "
+                        + "refunding it", reservationId);
+                paymentRepository.findByReservation(reservation).ifPresent(this::refundLatePayment);
+                return;
+            }
+            seatHoldService.release(reservationId); // paid - don't expire it anymore
 
             // Find the payment for this reservation
             Payment payment = paymentRepository.findByReservation(reservation).orElse(null);
@@ -308,6 +339,48 @@ public class PaymentService {
         }
     }
 
+    // refund through stripe - one idempotency key per payment intent, so the several webhook events
+    // stripe sends for one payment all end up as the same single refund
+    // if stripe can't be reached the payment stays REFUND_NEEDED for staff
+    private void refundLatePayment(Payment payment) {
+        Stripe.apiKey = stripeApiKey;
+        String stripeId = payment.getPaymentIntentId(); // usually the checkout session id, see createCheckoutSession
+        try {
+            String paymentIntentId = stripeId.startsWith("pi_") ? stripeId : Session.retrieve(stripeId).getPaymentIntent();
+            Refund.create(RefundCreateParams.builder().setPaymentIntent(paymentIntentId).build(),
+                    RequestOptions.builder().setIdempotencyKey("late-payment-refund-" + paymentIntentId).build());
+            payment.setStatus(Payment.PaymentStatus.REFUNDED);
+            log.info("Refunded late payment ID: {} ({})", payment.getId(), paymentIntentId);
+        } catch (StripeException e) {
+            log.error("Refunding late payment ID: {} failed, marking it REFUND_NEEDED: {}", payment.getId(), e.getMessage(), e);
+            payment.setStatus(Payment.PaymentStatus.REFUND_NEEDED);
+        }
+        payment.setUpdatedAt(LocalDateTime.now());
+        paymentRepository.save(payment);
+    }
+
+    // the sweeper canceled these reservations - close their open checkouts so nobody pays for released seats
+    // a session that's already completed can't be expired; its payment gets refunded when the webhook comes in
+    public void expireCheckouts(List<Long> reservationIds) {
+        List<Payment> pending = paymentRepository.findForCanceledReservations(reservationIds, Payment.PaymentStatus.PENDING);
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        Stripe.apiKey = stripeApiKey;
+        for (Payment payment : pending) {
+            try {
+                Session.retrieve(payment.getPaymentIntentId()).expire();
+                payment.setStatus(Payment.PaymentStatus.FAILED);
+                payment.setUpdatedAt(LocalDateTime.now());
+                paymentRepository.save(payment);
+            } catch (StripeException e) {
+                log.warn("Could not expire checkout session {} of reservation ID: {}: {}",
+                        payment.getPaymentIntentId(), payment.getReservation().getId(), e.getMessage());
+            }
+        }
+    }
+
     /**
      * Gets payment details by reservation ID
      */
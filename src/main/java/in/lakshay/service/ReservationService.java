@@ -13,6 +13,7 @@ import in.lakshay.exception.ResourceNotFoundException;
 import in.lakshay.repo.PaymentRepository;
 import in.lakshay.repo.ReservationRepository;
 import in.lakshay.repo.SeatRepository;
+import in.lakshay.repo.SeatRepository.SeatClaimState;
 import in.lakshay.repo.ShowtimeRepository;
 import in.lakshay.repo.UserRepository;
 import lombok.extern.slf4j.Slf4j;
@@ -27,7 +28,9 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 @Service
@@ -39,22 +42,32 @@ public class ReservationService {
     private final SeatRepository seatRepository;
     private final PaymentRepository paymentRepository;
     private final MasterDataService masterDataService;
+    private final SeatAvailabilityEngine seatAvailabilityEngine;
+    private final SeatHoldService seatHoldService;
+    private final SeatLayoutService seatLayoutService;
     private final ModelMapper modelMapper;
 
     private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
     private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
 
+    // biggest group the best-available endpoint will seat together
+    private static final int MAX_BEST_AVAILABLE_SEATS = 10;
+
     @Autowired
     public ReservationService(ReservationRepository reservationRepository, UserRepository userRepository,
                              ShowtimeRepository showtimeRepository, SeatRepository seatRepository,
                              PaymentRepository paymentRepository, MasterDataService masterDataService,
-                             ModelMapper modelMapper) {
+                             SeatAvailabilityEngine seatAvailabilityEngine, SeatHoldService seatHoldService,
+                             SeatLayoutService seatLayoutService, ModelMapper modelMapper) {
         this.reservationRepository = reservationRepository;
         this.userRepository = userRepository;
         this.showtimeRepository = showtimeRepository;
         this.seatRepository = seatRepository;
         this.paymentRepository = paymentRepository;
         this.masterDataService = masterDataService;
+        this.seatAvailabilityEngine = seatAvailabilityEngine;
+        this.seatHoldService = seatHoldService;
+        this.seatLayoutService = seatLayoutService;
         this.modelMapper = modelMapper;
     }
 
@@ -148,7 +161,18 @@ public class ReservationService {
      */
     @Transactional
     public ReservationDTO createReservation(String username, Long showtimeId, List<Long> seatIds) {
-        log.info("Creating reservation for user: {} for showtime: {} with seats: {}", username, showtimeId, seatIds);
+        return createReservation(username, showtimeId, seatIds, null);
+    }
+
+    /**
+     * Same as above but seats can also be picked by seat number (eg "A1").
+     * Seat numbers win if both are given - in virtual seat mode free seats don't have ids yet.
+     */
+    @Transactional
+    public ReservationDTO createReservation(String username, Long showtimeId, List<Long> seatIds, List<String> seatNumbers) {
+        boolean bySeatNumber = seatNumbers != null && !seatNumbers.isEmpty();
+        log.info("Creating reservation for user: {} for showtime: {} with seats: {}",
+                username, showtimeId, bySeatNumber ? seatNumbers : seatIds);
 
         // Validate inputs
         if (username == null || username.trim().isEmpty()) {
@@ -159,7 +183,7 @@ public class ReservationService {
             throw new IllegalArgumentException("Showtime ID cannot be null");
         }
 
-        if (seatIds == null || seatIds.isEmpty()) {
+        if (!bySeatNumber && (seatIds == null || seatIds.isEmpty())) {
             throw new IllegalArgumentException("At least one seat must be selected");
         }
 
@@ -171,6 +195,65 @@ public class ReservationService {
         Showtime showtime = showtimeRepository.findById(showtimeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
 
+        int seatCount = bySeatNumber ? seatNumbers.size() : seatIds.size();
+        checkBookable(showtime, seatCount);
+
+        // Claim the seats in the in-memory seat map first
+        // competing buyers for the same seats fail right here without touching the db
+        int[] seatPositions = bySeatNumber
+                ? seatAvailabilityEngine.resolveSeatNumbers(showtimeId, seatNumbers)
+                : seatAvailabilityEngine.resolvePositions(showtimeId, seatIds);
+        ShowtimeSeatMap seatMap = seatAvailabilityEngine.getSeatMap(showtimeId);
+
+        if (!seatAvailabilityEngine.claimForCurrentTransaction(seatMap, seatPositions)) {
+            throw new IllegalStateException("Seats already reserved: " +
+                    String.join(", ", seatMap.reservedSeatNumbers(seatPositions)));
+        }
+
+        return saveReservation(user, showtime, seatMap, seatPositions);
+    }
+
+    /**
+     * Books the best block of adjacent free seats for a group, picked server side.
+     * Rows around two thirds back are tried first, then the block closest to the middle of the row.
+     */
+    @Transactional
+    public ReservationDTO createBestAvailableReservation(String username, Long showtimeId, Integer quantity) {
+        log.info("Creating best-available reservation for user: {} for showtime: {} with {} seats",
+                username, showtimeId, quantity);
+
+        if (username == null || username.trim().isEmpty()) {
+            throw new IllegalArgumentException("Username cannot be empty");
+        }
+
+        if (showtimeId == null) {
+            throw new IllegalArgumentException("Showtime ID cannot be null");
+        }
+
+        if (quantity == null || quantity < 1 || quantity > MAX_BEST_AVAILABLE_SEATS) {
+            throw new IllegalArgumentException("Quantity must be between 1 and " + MAX_BEST_AVAILABLE_SEATS);
+        }
+
+        User user = userRepository.findByUserName(username)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
+
+        Showtime showtime = showtimeRepository.findById(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
+
+        checkBookable(showtime, quantity);
+
+        // search + claim happen in memory, the db write below is the same as for picked seats
+        ShowtimeSeatMap seatMap = seatAvailabilityEngine.getSeatMap(showtimeId);
+        int[] seatPositions = seatAvailabilityEngine.claimBestAvailable(showtime, seatMap, quantity);
+        if (seatPositions == null) {
+            throw new IllegalStateException("No " + quantity + " adjacent seats available for this showtime");
+        }
+
+        return saveReservation(user, showtime, seatMap, seatPositions);
+    }
+
+    // past showtimes and sold out ones can't be booked
+    private void checkBookable(Showtime showtime, int seatCount) {
         // Check if showtime is in the past
         if (showtime.getShowDate().isBefore(LocalDate.now()) ||
             (showtime.getShowDate().isEqual(LocalDate.now()) && showtime.getShowTime().isBefore(LocalTime.now()))) {
@@ -179,45 +262,20 @@ public class ReservationService {
         }
 
         // Check if showtime has available seats
-        if (showtime.getAvailableSeats() < seatIds.size()) {
+        if (showtime.getAvailableSeats() < seatCount) {
             throw new IllegalStateException("Not enough available seats for this showtime");
         }
+    }
 
-        // Get seats with pessimistic lock to prevent concurrent reservations
-        // this is super important!! otherwise we could double-book seats
-        List<Seat> seats = seatRepository.findByIdInAndShowtimeIdWithLock(seatIds, showtimeId);
-
-        // Validate seats
-        if (seats.size() != seatIds.size()) {
-            List<Long> foundSeatIds = seats.stream().map(Seat::getId).collect(Collectors.toList());
-            List<Long> notFoundSeatIds = seatIds.stream()
-                    .filter(id -> !foundSeatIds.contains(id))
-                    .collect(Collectors.toList());
-            throw new ResourceNotFoundException("Seats not found with IDs: " + notFoundSeatIds);
-        }
-
-        // Verify all seats belong to the requested showtime
-        List<Seat> wrongShowtimeSeats = seats.stream()
-                .filter(seat -> !seat.getShowtime().getId().equals(showtimeId))
-                .collect(Collectors.toList());
-
-        if (!wrongShowtimeSeats.isEmpty()) {
-            String wrongSeatNumbers = wrongShowtimeSeats.stream()
-                    .map(Seat::getSeatNumber)
-                    .collect(Collectors.joining(", "));
-            throw new IllegalArgumentException("Seats " + wrongSeatNumbers + " do not belong to the requested showtime");
-        }
-
-        // Check if any seat is already reserved
-        List<Seat> reservedSeats = seats.stream()
-                .filter(Seat::getIsReserved)
-                .collect(Collectors.toList());
+    // writes a reservation for seats that were already claimed in the in-memory seat map
+    private ReservationDTO saveReservation(User user, Showtime showtime, ShowtimeSeatMap seatMap, int[] seatPositions) {
+        Long showtimeId = showtime.getId();
+        int seatCount = seatPositions.length;
 
-        if (!reservedSeats.isEmpty()) {
-            String reservedSeatNumbers = reservedSeats.stream()
-                    .map(Seat::getSeatNumber)
-                    .collect(Collectors.joining(", "));
-            throw new IllegalStateException("Seats already reserved: " + reservedSeatNumbers);
+        // labels of the requested seats, in request order
+        List<String> requestedSeatNumbers = new ArrayList<>(seatCount);
+        for (int position : seatPositions) {
+            requestedSeatNumbers.add(seatMap.seatNumberAt(position));
         }
 
         // Create reservation
@@ -227,21 +285,40 @@ public class ReservationService {
         reservation.setReservationTime(LocalDateTime.now());
         reservation.setStatusId(1); // 1 = CONFIRMED
         // calc total price based on # of seats
-        reservation.setTotalPrice(showtime.getPrice() * seats.size());
+        reservation.setTotalPrice(showtime.getPrice() * seatCount);
 
         Reservation savedReservation = reservationRepository.save(reservation);
 
-        // Update seats
-        seats.forEach(seat -> {
-            seat.setIsReserved(true);
-            seat.setReservation(savedReservation);
-        });
+        // Claim the seats in the db with one statement
+        // only claims that already won in memory get here, the db still protects
+        // against another app instance booking the same seats
+        int claimed;
+        if (seatLayoutService.isVirtualMode()) {
+            claimed = reservationRepository.claimSeatsByNumber(savedReservation.getId(), showtimeId, requestedSeatNumbers);
+        } else {
+            List<Long> claimSeatIds = new ArrayList<>(seatCount);
+            for (int position : seatPositions) {
+                claimSeatIds.add(seatMap.seatIdAt(position));
+            }
+            claimed = reservationRepository.claimSeats(savedReservation.getId(), showtimeId, claimSeatIds);
+        }
 
-        seatRepository.saveAll(seats);
+        if (claimed != seatCount) {
+            // map is out of date (eg booked through another instance) - reload next time
+            seatAvailabilityEngine.evict(showtimeId);
+            throw seatClaimFailure(showtimeId, requestedSeatNumbers, savedReservation.getId());
+        }
 
-        // Update available seats count in showtime
-        showtime.setAvailableSeats(showtime.getAvailableSeats() - seats.size());
-        showtimeRepository.save(showtime);
+        // relative decrement, guarded so the count can never go negative
+        if (reservationRepository.decrementAvailableSeats(showtimeId, seatCount) == 0) {
+            throw new IllegalStateException("Not enough available seats for this showtime");
+        }
+
+        // pick up the counter the update above wrote (entity was loaded before it)
+        reservationRepository.getEntityManager().refresh(showtime);
+
+        // seats are only held until the hold expires - pay before then or they go back
+        seatHoldService.holdAfterCommit(savedReservation.getId(), savedReservation.getReservationTime());
 
         return mapToDTO(savedReservation);
     }
@@ -267,22 +344,86 @@ public class ReservationService {
         // Update reservation status
         reservation.setStatusId(3); // 3 = CANCELED
 
-        // Free up seats
-        List<Seat> seats = reservation.getSeats();
-        seats.forEach(seat -> {
-            seat.setIsReserved(false);
-            seat.setReservation(null);
-        });
+        // Free up seats - labels are needed for the in-memory release below
+        Showtime showtime = reservation.getShowtime();
+        List<String> seatNumbers = reservation.getSeats().stream()
+                .map(Seat::getSeatNumber)
+                .collect(Collectors.toList());
 
-        seatRepository.saveAll(seats);
+        // virtual seats only have a row while booked
+        int released = seatLayoutService.isVirtualMode()
+                ? reservationRepository.deleteSeats(List.of(reservation.getId()))
+                : reservationRepository.releaseSeats(reservation.getId());
 
-        // Update available seats count in showtime
-        Showtime showtime = reservation.getShowtime();
-        showtime.setAvailableSeats(showtime.getAvailableSeats() + seats.size());
-        showtimeRepository.save(showtime);
+        // give the seats back to the in-memory seat map once this commits
+        seatAvailabilityEngine.releaseAfterCommit(showtime.getId(), seatNumbers);
+        seatHoldService.release(reservation.getId()); // nothing left to expire
+
+        // Update available seats count in showtime (relative update, no lost updates)
+        if (released > 0) {
+            reservationRepository.incrementAvailableSeats(showtime.getId(), released);
+            reservationRepository.getEntityManager().refresh(showtime);
+        }
 
         Reservation updatedReservation = reservationRepository.save(reservation);
-        return mapToDTO(updatedReservation);
+        ReservationDTO dto = mapToDTO(updatedReservation);
+        // seat entities were loaded before the bulk release, so fix up what we send back
+        dto.getSeats().forEach(seat -> seat.setIsReserved(false));
+        return dto;
+    }
+
+    /**
+     * Cancels reservations whose seat hold ran out and frees their seats in bulk.
+     * Reservations that got paid or canceled in the meantime are skipped.
+     * Called by SeatHoldSweeper - returns how many were actually canceled.
+     */
+    @Transactional
+    public int expireReservations(List<Long> reservationIds) {
+        List<Long> expirable = reservationRepository.lockExpirableReservations(reservationIds);
+        if (expirable.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, List<String>> seatNumbersByShowtime = reservationRepository.findSeatNumbersByShowtime(expirable);
+        if (seatLayoutService.isVirtualMode()) {
+            reservationRepository.deleteSeats(expirable);
+        } else {
+            reservationRepository.releaseSeats(expirable);
+        }
+        reservationRepository.cancelReservations(expirable);
+
+        // one counter update per showtime, not per reservation
+        seatNumbersByShowtime.forEach((showtimeId, seatNumbers) -> {
+            reservationRepository.incrementAvailableSeats(showtimeId, seatNumbers.size());
+            seatAvailabilityEngine.releaseAfterCommit(showtimeId, seatNumbers);
+        });
+
+        log.debug("Expired reservations: {}", expirable);
+        return expirable.size();
+    }
+
+    // works out why a seat claim came up short - only runs on the failure path
+    private RuntimeException seatClaimFailure(Long showtimeId, List<String> seatNumbers, Long reservationId) {
+        List<SeatClaimState> states = seatRepository.findSeatClaimStates(showtimeId, seatNumbers);
+
+        // virtual seats have no row until booked, so a missing row isn't an error there
+        if (!seatLayoutService.isVirtualMode()) {
+            List<String> foundSeatNumbers = states.stream().map(SeatClaimState::getSeatNumber).collect(Collectors.toList());
+            List<String> notFoundSeatNumbers = seatNumbers.stream()
+                    .filter(number -> !foundSeatNumbers.contains(number))
+                    .collect(Collectors.toList());
+            if (!notFoundSeatNumbers.isEmpty()) {
+                return new ResourceNotFoundException("Seats not found: " + notFoundSeatNumbers);
+            }
+        }
+
+        // seats we just claimed ourselves show up as reserved too - skip those
+        String reservedSeatNumbers = states.stream()
+                .filter(state -> Boolean.TRUE.equals(state.getIsReserved()))
+                .filter(state -> !reservationId.equals(state.getReservationId()))
+                .map(SeatClaimState::getSeatNumber)
+                .collect(Collectors.joining(", "));
+        return new IllegalStateException("Seats already reserved: " + reservedSeatNumbers);
     }
 
     // quick helper to check if user has specific role
@@ -342,6 +483,11 @@ public class ReservationService {
         dto.setTotalPrice(reservation.getTotalPrice());
         dto.setPaid(reservation.isPaid());
 
+        // only unpaid reservations are on the clock
+        if (reservation.getStatusId() == 1 && !reservation.isPaid() && reservation.getReservationTime() != null) {
+            dto.setHoldExpiresAt(seatHoldService.expiresAt(reservation.getReservationTime()));
+        }
+
         // Get status value from master data
         try {
             MasterDataDTO statusData = masterDataService.getMasterDataByComponentTypeNameAndMasterDataId("RESERVATION_STATUS", reservation.getStatusId());
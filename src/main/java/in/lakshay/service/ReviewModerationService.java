@@ -0,0 +1,177 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.event.ReviewSubmittedEvent;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.validator.ReviewModerationRule;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// automatic review moderation
+// new/edited reviews are saved as PENDING and their ids go on a bounded queue, a few worker threads take
+// them off in batches, run every ReviewModerationRule and approve the clean ones / flag the rest
+// for an admin - posting a review only pays for a queue offer, however slow the checks get
+// the queue is in memory only: anything it loses (full, restart) is found again by the sweep
+@Service
+@Slf4j
+public class ReviewModerationService {
+    private final ReviewRepository reviewRepository;
+    private final ReviewService reviewService;
+    private final List<ReviewModerationRule> rules;
+    private final boolean enabled;
+    private final int workers;
+    private final int batchSize;
+
+    private final BlockingQueue<Long> queue;
+    private ExecutorService workerPool;
+
+    @Autowired // constructor injection
+    public ReviewModerationService(ReviewRepository reviewRepository, ReviewService reviewService,
+                                   List<ReviewModerationRule> rules,
+                                   @Value("${reviews.moderation.enabled:true}") boolean enabled,
+                                   @Value("${reviews.moderation.queue-capacity:10000}") int queueCapacity,
+                                   @Value("${reviews.moderation.workers:2}") int workers,
+                                   @Value("${reviews.moderation.batch-size:50}") int batchSize) {
+        this.reviewRepository = reviewRepository;
+        this.reviewService = reviewService;
+        this.rules = rules;
+        this.enabled = enabled;
+        this.workers = workers;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        AtomicInteger threadNumber = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "review-moderation-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workers; i++) {
+            workerPool.execute(this::work);
+        }
+        log.info("Review moderation started with {} rules and {} workers", rules.size(), workers);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (workerPool != null) {
+            workerPool.shutdownNow(); // whatever is still queued stays PENDING and gets swept after a restart
+        }
+    }
+
+    @EventListener
+    public void onReviewSubmitted(ReviewSubmittedEvent event) {
+        if (enabled && !queue.offer(event.getReviewId())) {
+            // never block the request thread - the sweep picks it up later
+            log.warn("Moderation queue full, review id {} will be checked by the sweep", event.getReviewId());
+        }
+    }
+
+    // requeue PENDING reviews nobody has checked yet; ones still sitting in the queue may get checked twice,
+    // which is harmless since only PENDING reviews are touched
+    @Scheduled(fixedDelayString = "${reviews.moderation.sweep-interval-ms:60000}")
+    public void sweepUnmoderated() {
+        if (!enabled) {
+            return;
+        }
+        List<Long> ids = reviewRepository.findUnmoderatedIds(ReviewStatus.PENDING, LocalDateTime.now().minusMinutes(1),
+                PageRequest.of(0, Math.max(1, queue.remainingCapacity() / 2))); // leave room for new reviews
+        int queued = 0;
+        for (Long id : ids) {
+            if (queue.offer(id)) {
+                queued++;
+            }
+        }
+        if (queued > 0) {
+            log.info("Requeued {} unmoderated reviews", queued);
+        }
+    }
+
+    private void work() {
+        List<Long> batch = new ArrayList<>(batchSize);
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                batch.add(queue.take()); // wait for work, then grab whatever else is there
+                queue.drainTo(batch, batchSize - 1);
+                moderate(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (Exception e) {
+                // leave them PENDING, the sweep retries
+                log.error("Error moderating reviews {}: {}", batch, e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void moderate(List<Long> reviewIds) {
+        Map<Long, Verdict> verdicts = new HashMap<>();
+        for (Review review : reviewRepository.findByIdIn(reviewIds)) {
+            if (review.getStatus() == ReviewStatus.PENDING) {
+                verdicts.put(review.getId(), new Verdict(review.getComment(), check(review)));
+            }
+        }
+        if (verdicts.isEmpty()) {
+            return;
+        }
+
+        int approved = reviewService.applyModerationResults(verdicts);
+        log.debug("Moderated {} reviews: {} approved, {} flagged", verdicts.size(), approved, verdicts.size() - approved);
+    }
+
+    // first rule that objects wins
+    private String check(Review review) {
+        for (ReviewModerationRule rule : rules) {
+            String reason = rule.check(review);
+            if (reason != null) {
+                return reason;
+            }
+        }
+        return null;
+    }
+
+    // what the checks said about one review, and the comment they said it about
+    public static final class Verdict {
+        private final String comment;
+        private final String reason; // null = clean
+
+        Verdict(String comment, String reason) {
+            this.comment = comment;
+            this.reason = reason;
+        }
+
+        public String getComment() {
+            return comment;
+        }
+
+        public String getReason() {
+            return reason;
+        }
+    }
+}
@@ -0,0 +1,357 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.event.ReviewChangedEvent;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.repo.ReviewRepository.ReviewSearchDoc;
+import in.lakshay.util.TextTokenizer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+// full-text search over approved review comments
+// inverted index in memory (word -> review id -> how often the word appears), ranked with bm25
+// kept current from ReviewChangedEvent, and written to a local file now and then so a restart
+// loads the file and only re-reads the reviews changed since, instead of every comment in the table
+@Service
+@Slf4j
+public class ReviewSearchService {
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final double K1 = 1.2; // bm25 term frequency saturation
+    private static final double B = 0.75; // bm25 length normalization
+    private static final int MAX_QUERY_TERMS = 10;
+    private static final int LOAD_BATCH_SIZE = 1000;
+    private static final long CATCH_UP_MARGIN_MINUTES = 5; // transactions that committed just after the snapshot
+
+    private final ReviewRepository reviewRepository;
+    private final Path snapshotFile;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    // guarded by lock
+    private final Map<String, Map<Long, Integer>> postings = new HashMap<>(); // word -> review id -> count
+    private final Map<Long, IndexedReview> reviews = new HashMap<>();
+    private long totalLength; // words in all indexed reviews, for the average length
+    private volatile boolean dirty; // changed since the last snapshot
+
+    @Autowired // constructor injection
+    public ReviewSearchService(ReviewRepository reviewRepository,
+                               @Value("${reviews.search.index-dir:search-index}") String indexDir) {
+        this.reviewRepository = reviewRepository;
+        this.snapshotFile = Paths.get(indexDir, "reviews.idx");
+    }
+
+    // one page of matching review ids, best first
+    public SearchResult search(String query, Long movieId, int offset, int limit) {
+        Set<String> terms = new LinkedHashSet<>(TextTokenizer.tokenize(query));
+        if (terms.isEmpty()) {
+            return new SearchResult(0, List.of());
+        }
+
+        Map<Long, Double> scores = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            int documents = reviews.size();
+            double averageLength = documents > 0 ? (double) totalLength / documents : 0;
+            int used = 0;
+            for (String term : terms) {
+                if (++used > MAX_QUERY_TERMS) {
+                    break;
+                }
+                Map<Long, Integer> posting = postings.get(term);
+                if (posting == null) {
+                    continue;
+                }
+                double idf = Math.log(1 + (documents - posting.size() + 0.5) / (posting.size() + 0.5));
+                for (Map.Entry<Long, Integer> entry : posting.entrySet()) {
+                    IndexedReview review = reviews.get(entry.getKey());
+                    if (movieId != null && review.movieId != movieId) {
+                        continue;
+                    }
+                    int tf = entry.getValue();
+                    double score = idf * tf * (K1 + 1) / (tf + K1 * (1 - B + B * review.length / averageLength));
+                    scores.merge(entry.getKey(), score, Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        // best offset + limit with a small heap instead of sorting every match
+        int wanted = offset + limit;
+        PriorityQueue<Map.Entry<Long, Double>> best = new PriorityQueue<>(Math.max(1, wanted),
+                Map.Entry.<Long, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey()));
+        for (Map.Entry<Long, Double> entry : scores.entrySet()) {
+            best.offer(entry);
+            if (best.size() > wanted) {
+                best.poll(); // drop the worst
+            }
+        }
+        List<Long> ranked = new ArrayList<>(best.size());
+        while (!best.isEmpty()) {
+            ranked.add(best.poll().getKey());
+        }
+        Collections.reverse(ranked);
+        List<Long> page = offset < ranked.size() ? ranked.subList(offset, ranked.size()) : List.of();
+        return new SearchResult(scores.size(), new ArrayList<>(page));
+    }
+
+    // only approved reviews are searchable - anything else is taken out
+    @EventListener
+    public void onReviewChanged(ReviewChangedEvent event) {
+        Review review = reviewRepository.findById(event.getReviewId()).orElse(null);
+        if (review != null && review.getStatus() == ReviewStatus.APPROVED) {
+            index(review.getId(), review.getMovie().getId(), review.getComment());
+        } else {
+            remove(event.getReviewId());
+        }
+    }
+
+    // from the snapshot file if there is one, otherwise from the reviews table
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        LocalDateTime snapshotTime = readSnapshot();
+        if (snapshotTime == null) {
+            rebuild();
+            saveSnapshot();
+        } else {
+            // catch up on what changed after the snapshot was written
+            int changed = 0;
+            LocalDateTime since = snapshotTime.minusMinutes(CATCH_UP_MARGIN_MINUTES);
+            List<ReviewSearchDoc> page;
+            Long afterId = 0L;
+            while (!(page = reviewRepository.findSearchDocsUpdatedSince(afterId, since,
+                    PageRequest.of(0, LOAD_BATCH_SIZE))).isEmpty()) {
+                for (ReviewSearchDoc doc : page) {
+                    if (doc.getStatus() == ReviewStatus.APPROVED) {
+                        index(doc.getId(), doc.getMovieId(), doc.getComment());
+                    } else {
+                        remove(doc.getId());
+                    }
+                    changed++;
+                }
+                afterId = page.get(page.size() - 1).getId();
+            }
+            log.info("Review search index loaded from {} ({} reviews changed since)", snapshotFile, changed);
+        }
+        log.info("Review search index ready: {} reviews, {} words in {} ms",
+                reviews.size(), postings.size(), System.currentTimeMillis() - start);
+    }
+
+    @Scheduled(initialDelayString = "${reviews.search.snapshot-interval-ms:600000}",
+            fixedDelayString = "${reviews.search.snapshot-interval-ms:600000}")
+    public void saveIfChanged() {
+        if (dirty) {
+            saveSnapshot();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        saveIfChanged();
+    }
+
+    private void rebuild() {
+        List<ReviewSearchDoc> page;
+        Long afterId = 0L;
+        while (!(page = reviewRepository.findSearchDocs(afterId, ReviewStatus.APPROVED,
+                PageRequest.of(0, LOAD_BATCH_SIZE))).isEmpty()) {
+            for (ReviewSearchDoc doc : page) {
+                index(doc.getId(), doc.getMovieId(), doc.getComment());
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+    }
+
+    private void index(Long reviewId, Long movieId, String comment) {
+        List<String> tokens = TextTokenizer.tokenize(comment);
+        Map<String, Integer> counts = new HashMap<>();
+        tokens.forEach(token -> counts.merge(token, 1, Integer::sum));
+
+        lock.writeLock().lock();
+        try {
+            removeLocked(reviewId);
+            add(new IndexedReview(reviewId, movieId, tokens.size(), counts));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void remove(Long reviewId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(reviewId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // caller holds the write lock
+    private void add(IndexedReview review) {
+        reviews.put(review.reviewId, review);
+        review.counts.forEach((term, count) ->
+                postings.computeIfAbsent(term, t -> new HashMap<>()).put(review.reviewId, count));
+        totalLength += review.length;
+        dirty = true;
+    }
+
+    // caller holds the write lock
+    private void removeLocked(Long reviewId) {
+        IndexedReview review = reviews.remove(reviewId);
+        if (review == null) {
+            return;
+        }
+        for (String term : review.counts.keySet()) {
+            Map<Long, Integer> posting = postings.get(term);
+            if (posting != null) {
+                posting.remove(reviewId);
+                if (posting.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+        totalLength -= review.length;
+        dirty = true;
+    }
+
+    // per review: id, movie id, length, then its words with counts - postings are rebuilt from that on load
+    // written to a temp file and moved into place so a crash mid-write never leaves half a snapshot
+    private void saveSnapshot() {
+        lock.readLock().lock();
+        try {
+            Files.createDirectories(snapshotFile.getParent());
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    new GZIPOutputStream(Files.newOutputStream(temp))))) {
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeLong(System.currentTimeMillis());
+                out.writeInt(reviews.size());
+                for (IndexedReview review : reviews.values()) {
+                    out.writeLong(review.reviewId);
+                    out.writeLong(review.movieId);
+                    out.writeInt(review.length);
+                    out.writeInt(review.counts.size());
+                    for (Map.Entry<String, Integer> entry : review.counts.entrySet()) {
+                        out.writeUTF(entry.getKey());
+                        out.writeInt(entry.getValue());
+                    }
+                }
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            dirty = false; // a change racing with this just gets saved next time (it sets dirty again)
+            log.debug("Saved review search index snapshot with {} reviews", reviews.size());
+        } catch (IOException e) {
+            log.warn("Could not save review search index to {}: {}", snapshotFile, e.getMessage());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // null if there's no usable snapshot
+    private LocalDateTime readSnapshot() {
+        if (!Files.isReadable(snapshotFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(Files.newInputStream(snapshotFile))))) {
+            if (in.readInt() != SNAPSHOT_VERSION) {
+                return null; // old format - rebuild
+            }
+            long savedAt = in.readLong();
+            int count = in.readInt();
+            lock.writeLock().lock();
+            try {
+                for (int i = 0; i < count; i++) {
+                    long reviewId = in.readLong();
+                    long movieId = in.readLong();
+                    int length = in.readInt();
+                    int terms = in.readInt();
+                    Map<String, Integer> counts = new HashMap<>(terms * 2);
+                    for (int t = 0; t < terms; t++) {
+                        counts.put(in.readUTF(), in.readInt());
+                    }
+                    add(new IndexedReview(reviewId, movieId, length, counts));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return LocalDateTime.ofInstant(Instant.ofEpochMilli(savedAt), ZoneId.systemDefault());
+        } catch (IOException e) {
+            log.warn("Could not read review search index from {}, rebuilding: {}", snapshotFile, e.getMessage());
+            lock.writeLock().lock();
+            try {
+                postings.clear();
+                reviews.clear();
+                totalLength = 0;
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        }
+    }
+
+    // total = all matches, reviewIds = just the requested page
+    public static final class SearchResult {
+        private final long total;
+        private final List<Long> reviewIds;
+
+        SearchResult(long total, List<Long> reviewIds) {
+            this.total = total;
+            this.reviewIds = reviewIds;
+        }
+
+        public long getTotal() {
+            return total;
+        }
+
+        public List<Long> getReviewIds() {
+            return reviewIds;
+        }
+    }
+
+    private static final class IndexedReview {
+        private final Long reviewId;
+        private final long movieId;
+        private final int length;
+        private final Map<String, Integer> counts;
+
+        IndexedReview(Long reviewId, long movieId, int length, Map<String, Integer> counts) {
+            this.reviewId = reviewId;
+            this.movieId = movieId;
+            this.length = length;
+            this.counts = counts;
+        }
+    }
+}
@@ -1,33 +1,59 @@
 package in.lakshay.service;
 
+import in.lakshay.dto.NearDuplicateClusterDTO;
 import in.lakshay.dto.ReviewDTO;
+import in.lakshay.dto.ReviewPageDTO;
 import in.lakshay.dto.ReviewRequest;
 import in.lakshay.entity.Movie;
+import in.lakshay.entity.MovieRatingStats;
 import in.lakshay.entity.Review;
 import in.lakshay.entity.Review.ReviewStatus;
 import in.lakshay.entity.ReviewVote;
 import in.lakshay.entity.User;
+import in.lakshay.event.ReviewChangedEvent;
+import in.lakshay.event.ReviewSubmittedEvent;
 import in.lakshay.exception.ResourceNotFoundException;
+import in.lakshay.repo.CustomReviewRepository.ReviewSort;
 import in.lakshay.repo.MovieRepository;
 import in.lakshay.repo.ReviewRepository;
 import in.lakshay.repo.ReviewVoteRepository;
 import in.lakshay.repo.UserRepository;
+import in.lakshay.service.ReviewModerationService.Verdict;
+import in.lakshay.service.ReviewSearchService.SearchResult;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Base64;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 @Slf4j
 @Service
 public class ReviewService {
+    // biggest page the keyset listing hands out
+    private static final int MAX_REVIEW_PAGE_SIZE = 100;
+    private static final int MAX_SEARCH_RESULTS = 1000; // deepest result a search can page to
+
     @Autowired
     private ReviewRepository reviewRepository;
 
@@ -43,6 +69,27 @@ public class ReviewService {
     @Autowired
     private UserBlockService userBlockService;
 
+    @Autowired
+    private ReviewVoteBuffer reviewVoteBuffer;
+
+    @Autowired
+    private MovieRatingStatsService movieRatingStatsService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private NearDuplicateService nearDuplicateService;
+
+    @Autowired
+    private ReviewSearchService reviewSearchService;
+
+    @Autowired
+    private ReviewTagService reviewTagService;
+
+    @Value("${reviews.moderation.enabled:true}")
+    private boolean moderationEnabled; // new/edited reviews wait in PENDING for ReviewModerationService
+
     /**
      * Add a new review from user
      */
@@ -68,14 +115,18 @@ public class ReviewService {
             review.setRating(reviewRequest.getRating());
 
             // Set review status based on moderation settings
-            // For now, we'll approve all reviews automatically
-            // TODO: implement proper moderation workflow later
-            review.setStatus(ReviewStatus.APPROVED); // auto-approve for now
+            // with moderation on the review waits in PENDING until the checks in ReviewModerationService ran
+            // (in the background, so posting a review doesn't get slower when the checks do)
+            review.setStatus(moderationEnabled ? ReviewStatus.PENDING : ReviewStatus.APPROVED);
 
-            // Set helpful tags if provided
-            if (reviewRequest.getHelpfulTags() != null && !reviewRequest.getHelpfulTags().isEmpty()) {
-                review.setHelpfulTags(reviewRequest.getHelpfulTags());
-            }
+            // Set helpful tags if provided (normalized, review_tags gets synced after the save)
+            review.setHelpfulTags(ReviewTagService.normalize(reviewRequest.getHelpfulTags()));
+
+            // copies of another review with a few words changed wait for an admin instead of going live
+            // (lsh lookup in memory, no query against the comments)
+            long signature = nearDuplicateService.signatureOf(review.getComment());
+            review.setSimhash(signature);
+            holdIfNearDuplicate(review, nearDuplicateService.findNearDuplicates(signature, null));
 
             // Verify relationships before saving
             if (review.getMovie() == null || review.getUser() == null) {
@@ -85,6 +136,13 @@ public class ReviewService {
 
             Review savedReview = reviewRepository.save(review);
             log.info("Review successfully added with ID: {}", savedReview.getId());
+            movieRatingStatsService.reviewChanged(movieId, null, movieRatingStatsService.countedRating(savedReview));
+            reviewTagService.tagsChanged(savedReview);
+            if (savedReview.getStatus() == ReviewStatus.PENDING && savedReview.getModerationNote() == null) {
+                publishAfterCommit(new ReviewSubmittedEvent(savedReview.getId()));
+            }
+            nearDuplicateService.indexAfterCommit(savedReview.getId(), signature);
+            publishAfterCommit(new ReviewChangedEvent(savedReview.getId()));
 
             // Refresh the entity to ensure all relationships are loaded
             // this is kinda redundant but hibernate can be weird sometimes
@@ -114,28 +172,57 @@ public class ReviewService {
             throw new AccessDeniedException("This user is blocked by an admin and cannot update reviews");
         }
 
+        Integer countedBefore = movieRatingStatsService.countedRating(review);
+        ReviewStatus statusBefore = review.getStatus();
+        String noteBefore = review.getModerationNote();
+        boolean byAuthor = review.getUser().getUserName().equals(username);
         review.setComment(comment);
         review.setRating(rating);
 
         // If an admin is updating someone else's review, reset the status to PENDING for re-moderation
         // this is a bit weird but makes sense i guess
-        if (!review.getUser().getUserName().equals(username) && hasRole(username, "ROLE_ADMIN")) {
+        if (!byAuthor && hasRole(username, "ROLE_ADMIN")) {
             review.setStatus(ReviewStatus.PENDING);
         }
+        // an admin turned it down - the author editing it doesn't get it past the admin (stays REJECTED,
+        // no automatic checks, out of the near-duplicate index like every rejected review)
+        boolean rejected = review.getStatus() == ReviewStatus.REJECTED;
+        long signature = nearDuplicateService.signatureOf(comment);
+        review.setSimhash(signature);
+        if (!rejected) {
+            // new text goes through the near-duplicate and moderation checks again
+            review.setModerationNote(null);
+            holdIfNearDuplicate(review, nearDuplicateService.findNearDuplicates(signature, reviewId));
+            if (review.getModerationNote() == null) {
+                if (moderationEnabled) {
+                    review.setStatus(ReviewStatus.PENDING);
+                    publishAfterCommit(new ReviewSubmittedEvent(review.getId()));
+                } else if (byAuthor && statusBefore == ReviewStatus.PENDING && noteBefore != null) {
+                    // it was only held as a near-duplicate and the new text isn't one - with moderation off
+                    // nothing else would ever approve it
+                    review.setStatus(ReviewStatus.APPROVED);
+                }
+            }
+        }
 
         Review updatedReview = reviewRepository.save(review);
+        if (!rejected) {
+            nearDuplicateService.indexAfterCommit(reviewId, signature);
+        }
+        publishAfterCommit(new ReviewChangedEvent(reviewId));
+        movieRatingStatsService.reviewChanged(review.getMovie().getId(), countedBefore,
+                movieRatingStatsService.countedRating(updatedReview));
+        reviewTagService.statusChanged(updatedReview, statusBefore);
         return mapToDTO(updatedReview, username);
     }
 
     // fetch all reviews by a specific user
     public List<ReviewDTO> getReviewsByUser(String username) {
-        String currentUsername = username; // The currently authenticated user - needed for vote status
-
         User user = userRepository.findByUserName(username)
             .orElseThrow(() -> new ResourceNotFoundException("User not found with username: " + username));
 
         List<Review> reviews = reviewRepository.findByUser(user);
-        return reviews.stream().map(review -> mapToDTO(review, currentUsername)).collect(Collectors.toList());
+        return mapToDTOs(reviews, user); // the author is also the viewer here - needed for vote status
     }
 
     /*
@@ -146,25 +233,67 @@ public class ReviewService {
         Movie movie = movieRepository.findById(movieId)
             .orElseThrow(() -> new ResourceNotFoundException("Movie not found with id: " + movieId));
 
+        // look the viewer up once - used for the role check and the vote status of every review
+        User viewer = findViewer(username);
+
         // Only return approved reviews for regular users
         List<Review> reviews;
-        if (hasRole(username, "ROLE_ADMIN")) {
+        if (hasRole(viewer, "ROLE_ADMIN")) {
             reviews = reviewRepository.findByMovie(movie);
         } else {
             reviews = reviewRepository.findByMovieAndStatus(movie, ReviewStatus.APPROVED);
         }
 
-        return reviews.stream().map(review -> mapToDTO(review, username)).collect(Collectors.toList());
+        return mapToDTOs(reviews, viewer);
+    }
+
+    /**
+     * One page of a movie's reviews, keyset paginated.
+     * sort is newest / top / rating, cursor is the nextCursor of the previous page (null for the first page).
+     * Like getReviewsByMovie admins see every status, everyone else only approved reviews.
+     */
+    public ReviewPageDTO getReviewPageByMovie(Long movieId, String username, String sort, String cursor, int size) {
+        if (size < 1 || size > MAX_REVIEW_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_REVIEW_PAGE_SIZE);
+        }
+        ReviewSort reviewSort = parseSort(sort);
+
+        if (!movieRepository.existsById(movieId)) {
+            throw new ResourceNotFoundException("Movie not found with id: " + movieId);
+        }
+
+        User viewer = findViewer(username);
+        ReviewStatus status = hasRole(viewer, "ROLE_ADMIN") ? null : ReviewStatus.APPROVED;
+
+        Object afterKey = null;
+        Long afterId = null;
+        if (cursor != null && !cursor.isEmpty()) {
+            String[] parts = decodeCursor(cursor, reviewSort);
+            afterKey = reviewSort == ReviewSort.NEWEST ? LocalDateTime.parse(parts[1]) : Integer.valueOf(parts[1]);
+            afterId = Long.valueOf(parts[2]);
+        }
+
+        // one extra row tells us if there's another page without a count query
+        List<Review> reviews = reviewRepository.findReviewPage(movieId, status, reviewSort, afterKey, afterId, size + 1);
+        boolean hasMore = reviews.size() > size;
+        if (hasMore) {
+            reviews = reviews.subList(0, size);
+        }
+
+        String nextCursor = hasMore ? encodeCursor(reviewSort, reviews.get(reviews.size() - 1)) : null;
+        return new ReviewPageDTO(mapToDTOs(reviews, viewer), reviewSort.name().toLowerCase(), nextCursor, hasMore);
     }
 
     // admin-only: get reviews waiting for approval
     public Page<ReviewDTO> getPendingReviews(Pageable pageable, String username) {
-        if (!hasRole(username, "ROLE_ADMIN")) {
+        User viewer = findViewer(username);
+        if (!hasRole(viewer, "ROLE_ADMIN")) {
             throw new AccessDeniedException("Only admins can access pending reviews");
         }
 
         Page<Review> pendingReviews = reviewRepository.findByStatus(ReviewStatus.PENDING, pageable);
-        return pendingReviews.map(review -> mapToDTO(review, username));
+        return new PageImpl<>(mapToDTOs(pendingReviews.getContent(), viewer), pageable,
+                pendingReviews.getTotalElements());
     }
 
     // admin hits the approve button
@@ -177,8 +306,14 @@ public class ReviewService {
         Review review = reviewRepository.findById(reviewId)
             .orElseThrow(() -> new ResourceNotFoundException("Review not found with id: " + reviewId));
 
+        Integer countedBefore = movieRatingStatsService.countedRating(review);
+        ReviewStatus statusBefore = review.getStatus();
         review.setStatus(ReviewStatus.APPROVED);
+        review.setModerationNote(null); // a human looked at it
         Review updatedReview = reviewRepository.save(review);
+        movieRatingStatsService.reviewChanged(review.getMovie().getId(), countedBefore, updatedReview.getRating());
+        reviewTagService.statusChanged(updatedReview, statusBefore);
+        publishAfterCommit(new ReviewChangedEvent(reviewId));
 
         return mapToDTO(updatedReview, username);
     }
@@ -193,12 +328,126 @@ public class ReviewService {
         Review review = reviewRepository.findById(reviewId)
             .orElseThrow(() -> new ResourceNotFoundException("Review not found with id: " + reviewId));
 
+        Integer countedBefore = movieRatingStatsService.countedRating(review);
+        ReviewStatus statusBefore = review.getStatus();
         review.setStatus(ReviewStatus.REJECTED);
         Review updatedReview = reviewRepository.save(review);
+        movieRatingStatsService.reviewChanged(review.getMovie().getId(), countedBefore, null);
+        reviewTagService.statusChanged(updatedReview, statusBefore);
+        nearDuplicateService.removeAfterCommit(reviewId); // rejected reviews don't count as originals anymore
+        publishAfterCommit(new ReviewChangedEvent(reviewId));
 
         return mapToDTO(updatedReview, username);
     }
 
+    // results of one batch of automatic moderation checks: review id -> verdict on the text that was checked
+    // clean reviews get approved, flagged ones stay PENDING with the reason for an admin to look at
+    // one transaction for the whole batch; reviews an admin already handled are left alone, and so are
+    // reviews edited since the check (the edit queued them again, the verdict is about the old text)
+    @Transactional
+    public int applyModerationResults(Map<Long, Verdict> verdicts) {
+        List<Review> reviews = reviewRepository.findForUpdateByIdIn(verdicts.keySet());
+        List<Review> changed = new ArrayList<>();
+        int approved = 0;
+        for (Review review : reviews) {
+            Verdict verdict = verdicts.get(review.getId());
+            if (review.getStatus() != ReviewStatus.PENDING || !Objects.equals(review.getComment(), verdict.getComment())) {
+                continue;
+            }
+            String reason = verdict.getReason();
+            if (reason == null) {
+                review.setStatus(ReviewStatus.APPROVED);
+                movieRatingStatsService.reviewChanged(review.getMovie().getId(), null, review.getRating());
+                reviewTagService.statusChanged(review, ReviewStatus.PENDING);
+                publishAfterCommit(new ReviewChangedEvent(review.getId()));
+                approved++;
+            } else {
+                review.setModerationNote(reason);
+            }
+            changed.add(review);
+        }
+        reviewRepository.saveAll(changed);
+        return approved;
+    }
+
+    // approved reviews with a tag, newest first - movieId is optional
+    public Page<ReviewDTO> getReviewsByTag(String tag, Long movieId, Pageable pageable, String username) {
+        // the order is fixed by the query, a sort param would only get appended to the native sql
+        Pageable page = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize());
+        Long tagId = reviewTagService.findTagId(tag).orElse(null);
+        if (tagId == null) {
+            return Page.empty(page); // nobody used this tag yet
+        }
+
+        Page<Long> ids = movieId == null
+                ? reviewRepository.findApprovedIdsByTag(tagId, page)
+                : reviewRepository.findApprovedIdsByTagAndMovie(tagId, movieId, page);
+        if (ids.isEmpty()) {
+            return new PageImpl<>(List.of(), page, ids.getTotalElements());
+        }
+        // one select for the page with author + movie fetched
+        Map<Long, Review> reviewsById = new HashMap<>();
+        for (Review review : reviewRepository.findByIdIn(ids.getContent())) {
+            reviewsById.put(review.getId(), review);
+        }
+        List<Review> reviews = ids.getContent().stream()
+                .map(reviewsById::get)
+                .filter(review -> review != null) // deleted in between
+                .toList(); // keep the newest-first order of the id page
+        return new PageImpl<>(mapToDTOs(reviews, findViewer(username)), page, ids.getTotalElements());
+    }
+
+    // full-text search over approved reviews, best matches first - movieId is optional
+    public Page<ReviewDTO> searchReviews(String query, Long movieId, Pageable pageable, String username) {
+        if (query == null || query.isBlank()) {
+            throw new IllegalArgumentException("Search query is required");
+        }
+        if (pageable.getOffset() + pageable.getPageSize() > MAX_SEARCH_RESULTS) {
+            throw new IllegalArgumentException("Search results are limited to the first " + MAX_SEARCH_RESULTS);
+        }
+
+        SearchResult result = reviewSearchService.search(query, movieId, (int) pageable.getOffset(), pageable.getPageSize());
+        Map<Long, Review> reviewsById = new HashMap<>();
+        for (Review review : reviewRepository.findByIdIn(result.getReviewIds())) {
+            if (review.getStatus() == ReviewStatus.APPROVED) { // index may be a moment behind
+                reviewsById.put(review.getId(), review);
+            }
+        }
+        List<Review> ranked = result.getReviewIds().stream()
+                .map(reviewsById::get)
+                .filter(review -> review != null)
+                .toList(); // keep the index's order, not the db's
+
+        return new PageImpl<>(mapToDTOs(ranked, findViewer(username)), pageable, result.getTotal());
+    }
+
+    // admin-only: groups of near-duplicate reviews, biggest first (at most maxPerCluster reviews shown per group)
+    public List<NearDuplicateClusterDTO> getNearDuplicateClusters(String username, int limit, int maxPerCluster) {
+        User viewer = findViewer(username);
+        if (!hasRole(viewer, "ROLE_ADMIN")) {
+            throw new AccessDeniedException("Only admins can access near-duplicate reviews");
+        }
+
+        List<List<Long>> clusters = nearDuplicateService.findClusters(limit);
+        List<Long> shownIds = clusters.stream()
+                .flatMap(cluster -> cluster.stream().limit(maxPerCluster))
+                .toList();
+        Map<Long, ReviewDTO> reviewsById = new HashMap<>();
+        for (ReviewDTO dto : mapToDTOs(reviewRepository.findByIdIn(shownIds), viewer)) {
+            reviewsById.put(dto.getId(), dto);
+        }
+
+        List<NearDuplicateClusterDTO> result = new ArrayList<>(clusters.size());
+        for (List<Long> cluster : clusters) {
+            List<ReviewDTO> reviews = cluster.stream().limit(maxPerCluster)
+                    .map(reviewsById::get)
+                    .filter(dto -> dto != null) // deleted since it was indexed
+                    .toList();
+            result.add(new NearDuplicateClusterDTO(cluster.size(), reviews));
+        }
+        return result;
+    }
+
     // admin can add tags like "helpful", "insightful" etc
     @Transactional
     public ReviewDTO updateHelpfulTags(Long reviewId, String helpfulTags, String username) {
@@ -210,8 +459,9 @@ public class ReviewService {
             throw new AccessDeniedException("Only admins can update helpful tags");
         }
 
-        review.setHelpfulTags(helpfulTags);
+        review.setHelpfulTags(ReviewTagService.normalize(helpfulTags));
         Review updatedReview = reviewRepository.save(review);
+        reviewTagService.tagsChanged(updatedReview); // join table + per-movie counts
 
         return mapToDTO(updatedReview, username);
     }
@@ -229,23 +479,139 @@ public class ReviewService {
             .orElse(false);
     }
 
-    // calc avg rating - used on movie details page
+    // same check for a user we already loaded
+    private boolean hasRole(User user, String roleName) {
+        return user != null && user.getRole() != null && user.getRole().getName().equals(roleName);
+    }
+
+    // the logged in user, null for anonymous requests
+    private User findViewer(String username) {
+        if (username == null || username.isEmpty()) {
+            return null;
+        }
+        return userRepository.findByUserName(username).orElse(null);
+    }
+
+    private ReviewSort parseSort(String sort) {
+        if (sort == null || sort.isEmpty()) {
+            return ReviewSort.NEWEST;
+        }
+        try {
+            return ReviewSort.valueOf(sort.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid sort: " + sort + " (use newest, top or rating)");
+        }
+    }
+
+    // cursor = base64url of "SORT|key|id" of the last review on the page
+    // opaque to clients, they just hand it back
+    private String encodeCursor(ReviewSort sort, Review last) {
+        Object key = switch (sort) {
+            case NEWEST -> last.getCreatedAt();
+            case TOP -> last.getHelpfulScore() != null ? last.getHelpfulScore() : 0;
+            case RATING -> last.getRating();
+        };
+        String raw = sort.name() + "|" + key + "|" + last.getId();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private String[] decodeCursor(String cursor, ReviewSort sort) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|");
+            if (parts.length != 3 || !parts[0].equals(sort.name())) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            // make sure the values parse before they get near a query
+            if (sort == ReviewSort.NEWEST) {
+                LocalDateTime.parse(parts[1]);
+            } else {
+                Integer.parseInt(parts[1]);
+            }
+            Long.parseLong(parts[2]);
+            return parts;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid cursor"); // NumberFormatException is an IllegalArgumentException too
+        }
+    }
+
+    // avg rating - used on movie details page
+    // comes from the precomputed stats row, not an AVG over all the reviews
     public Double getAverageRatingForMovie(Long movieId) {
-        return reviewRepository.getAverageRatingForMovie(movieId);
+        return movieRatingStatsService.getStats(movieId).map(MovieRatingStats::getAverageRating).orElse(null);
+    }
+
+    // bulk version of mapToDTO for review listings
+    // the viewer's votes for all the reviews come from one IN query instead of one lookup per review,
+    // so a listing costs the same number of queries no matter how many reviews it has
+    private List<ReviewDTO> mapToDTOs(List<Review> reviews, User viewer) {
+        Map<Long, Boolean> votes = new HashMap<>(); // review id -> is upvote
+        if (viewer != null && !reviews.isEmpty()) {
+            try {
+                List<Long> reviewIds = reviews.stream().map(Review::getId).collect(Collectors.toList());
+                reviewVoteRepository.findVoteStates(viewer.getId(), reviewIds)
+                    .forEach(vote -> votes.put(vote.getReviewId(), Boolean.TRUE.equals(vote.getUpvote())));
+            } catch (Exception e) {
+                // same as mapToDTO - just show everything as not voted
+                log.error("Error checking if user has voted: {}", e.getMessage());
+                votes.clear();
+            }
+        }
+
+        List<ReviewDTO> dtos = new ArrayList<>(reviews.size());
+        for (Review review : reviews) {
+            ReviewDTO dto = toDTO(review);
+            if (viewer != null) {
+                Boolean upvote = votes.get(review.getId());
+                dto.setUserHasVoted(upvote != null);
+                dto.setUserVoteIsUpvote(Boolean.TRUE.equals(upvote));
+            }
+            dtos.add(dto);
+        }
+        return dtos;
     }
 
     // convert db entity to dto for frontend
     private ReviewDTO mapToDTO(Review review, String currentUsername) {
+        ReviewDTO dto = toDTO(review);
+
+        // Check if the current user has voted on this review
+        if (currentUsername != null && !currentUsername.isEmpty()) {
+            try {
+                User currentUser = userRepository.findByUserName(currentUsername)
+                    .orElse(null);
+
+                if (currentUser != null) {
+                    Optional<ReviewVote> vote = reviewVoteRepository.findByReviewAndUser(review, currentUser);
+                    dto.setUserHasVoted(vote.isPresent());
+                    dto.setUserVoteIsUpvote(vote.isPresent() && vote.get().isUpvote());
+                }
+            } catch (Exception e) {
+                log.error("Error checking if user has voted: {}", e.getMessage());
+                // Don't fail the whole operation if this check fails
+                // just assume they haven't voted - not the end of the world
+                dto.setUserHasVoted(false);
+                dto.setUserVoteIsUpvote(false); // obvs false if they haven't voted
+            }
+        }
+
+        return dto;
+    }
+
+    // the review fields, without the viewer's vote
+    private ReviewDTO toDTO(Review review) {
         ReviewDTO dto = new ReviewDTO();
         dto.setId(review.getId());
         dto.setComment(review.getComment());
         dto.setRating(review.getRating());
         dto.setCreatedAt(review.getCreatedAt());
         dto.setUpdatedAt(review.getUpdatedAt());
-        dto.setUpvotes(review.getUpvotes());
-        dto.setDownvotes(review.getDownvotes());
+        // plus votes still waiting in the write-behind buffer, so voters see their vote right away
+        dto.setUpvotes(count(review.getUpvotes()) + reviewVoteBuffer.pendingUpvotes(review.getId()));
+        dto.setDownvotes(count(review.getDownvotes()) + reviewVoteBuffer.pendingDownvotes(review.getId()));
         dto.setHelpfulTags(review.getHelpfulTags());
         dto.setStatus(review.getStatus());
+        dto.setModerationNote(review.getModerationNote());
 
         // Add null checks for Movie
         if (review.getMovie() != null) {
@@ -257,38 +623,48 @@ public class ReviewService {
         if (review.getUser() != null) {
             // Set the username from the User entity
             String userName = review.getUser().getUserName();
-            log.info("Setting username in ReviewDTO: {} for review ID: {}", userName, review.getId());
             dto.setUserName(userName);
 
             // Also set the userId for reference
             Long userId = review.getUser().getId();
-            // this log is probably excessive but whatever
-            log.info("Setting userId in ReviewDTO: {} for review ID: {}", userId, review.getId());
+            // debug only - at info this was two log lines per review on every listing
+            log.debug("Setting username/userId in ReviewDTO: {}/{} for review ID: {}", userName, userId, review.getId());
             dto.setUserId(userId);
         } else {
             log.warn("User is null for review ID: {}", review.getId());
         }
 
-        // Check if the current user has voted on this review
-        if (currentUsername != null && !currentUsername.isEmpty()) {
-            try {
-                User currentUser = userRepository.findByUserName(currentUsername)
-                    .orElse(null);
+        return dto;
+    }
 
-                if (currentUser != null) {
-                    Optional<ReviewVote> vote = reviewVoteRepository.findByReviewAndUser(review, currentUser);
-                    dto.setUserHasVoted(vote.isPresent());
-                    dto.setUserVoteIsUpvote(vote.isPresent() && vote.get().isUpvote());
+    // near-duplicates found - keep it PENDING with a note; the automatic checks skip noted reviews,
+    // so it stays there until an admin approves or rejects it
+    private void holdIfNearDuplicate(Review review, List<Long> nearDuplicates) {
+        if (!nearDuplicates.isEmpty()) {
+            review.setStatus(ReviewStatus.PENDING);
+            review.setModerationNote("Near-duplicate of review " + nearDuplicates.get(0)
+                    + (nearDuplicates.size() > 1 ? " and " + (nearDuplicates.size() - 1) + " more" : ""));
+        }
+    }
+
+    // listeners (moderation queue, search index) read the review from the db, so wait for the commit
+    private void publishAfterCommit(Object event) {
+        Runnable submit = () -> eventPublisher.publishEvent(event);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    submit.run();
                 }
-            } catch (Exception e) {
-                log.error("Error checking if user has voted: {}", e.getMessage());
-                // Don't fail the whole operation if this check fails
-                // just assume they haven't voted - not the end of the world
-                dto.setUserHasVoted(false);
-                dto.setUserVoteIsUpvote(false); // obvs false if they haven't voted
-            }
+            });
+        } else {
+            submit.run();
         }
+    }
 
-        return dto;
+    // old rows can have null counters
+    private static int count(Integer votes) {
+        return votes != null ? votes : 0;
     }
 }
@@ -0,0 +1,199 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.entity.Tag;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.repo.ReviewRepository.ReviewTags;
+import in.lakshay.repo.TagRepository;
+import in.lakshay.repo.TagRepository.TagCount;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+// review tags as their own dimension: tags + review_tags (which review has which tag) + movie_tag_counts
+// (approved reviews per movie and tag), so "reviews tagged x" and "tag counts for a movie" are index lookups
+// instead of LIKE over reviews.helpful_tags - that column stays as the display copy, normalized, and
+// review_tags is synced from it. ReviewService reports tag and status changes inside its own transaction
+@Service
+@Slf4j
+public class ReviewTagService {
+    private static final int MAX_TAGS = 10;
+    private static final int MAX_TAG_LENGTH = 50;
+    private static final int MAX_HELPFUL_TAGS_LENGTH = 255; // reviews.helpful_tags column
+    private static final int LOAD_BATCH_SIZE = 500;
+
+    private final TagRepository tagRepository;
+    private final ReviewRepository reviewRepository;
+
+    @Autowired // constructor injection
+    public ReviewTagService(TagRepository tagRepository, ReviewRepository reviewRepository) {
+        this.tagRepository = tagRepository;
+        this.reviewRepository = reviewRepository;
+    }
+
+    // "Funny, insightful,,funny" -> "funny,insightful", null if there are no tags
+    public static String normalize(String helpfulTags) {
+        Set<String> names = parse(helpfulTags, true);
+        if (names.isEmpty()) {
+            return null;
+        }
+        String joined = String.join(",", names);
+        if (joined.length() > MAX_HELPFUL_TAGS_LENGTH) {
+            throw new IllegalArgumentException("Tags can be at most " + MAX_HELPFUL_TAGS_LENGTH + " characters in total");
+        }
+        return joined;
+    }
+
+    // lowercase tag name as stored in the tags table
+    public Optional<Long> findTagId(String name) {
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        return tagRepository.findByName(name.trim().toLowerCase(Locale.ROOT)).map(Tag::getId);
+    }
+
+    // sync review_tags with review.helpfulTags - call after saving the review
+    @Transactional
+    public void tagsChanged(Review review) {
+        Set<Long> tagIds = tagIds(parse(review.getHelpfulTags(), false));
+        Set<Long> oldTagIds = new HashSet<>(tagRepository.findTagIdsByReviewId(review.getId()));
+
+        List<Long> removed = new ArrayList<>(oldTagIds);
+        removed.removeAll(tagIds);
+        List<Long> added = new ArrayList<>(tagIds);
+        added.removeAll(oldTagIds);
+
+        if (!removed.isEmpty()) {
+            tagRepository.removeReviewTags(review.getId(), removed);
+        }
+        for (Long tagId : added) {
+            tagRepository.addReviewTag(review.getId(), tagId, review.getMovie().getId());
+        }
+        if (review.getStatus() == ReviewStatus.APPROVED) {
+            applyCounts(review.getMovie().getId(), removed, -1);
+            applyCounts(review.getMovie().getId(), added, 1);
+        }
+    }
+
+    // review status went from oldStatus to whatever it is now - only approved reviews are counted
+    @Transactional
+    public void statusChanged(Review review, ReviewStatus oldStatus) {
+        boolean countedBefore = oldStatus == ReviewStatus.APPROVED;
+        boolean countedNow = review.getStatus() == ReviewStatus.APPROVED;
+        if (countedBefore == countedNow || review.getHelpfulTags() == null) {
+            return;
+        }
+        applyCounts(review.getMovie().getId(), tagRepository.findTagIdsByReviewId(review.getId()), countedNow ? 1 : -1);
+    }
+
+    // tag facets for the movie page: tag -> number of approved reviews with it, most used first
+    public Map<String, Long> getTagCounts(Long movieId) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (TagCount count : tagRepository.findTagCounts(movieId)) {
+            counts.put(count.getName(), count.getReviewCount());
+        }
+        return counts;
+    }
+
+    // throw the counts away and recompute them from review_tags
+    @Transactional
+    public int rebuildCounts() {
+        tagRepository.deleteAllCounts();
+        int rows = tagRepository.insertCountsFromReviews();
+        log.info("Rebuilt tag counts ({} movie/tag pairs)", rows);
+        return rows;
+    }
+
+    // first start with review_tags - fill it from the tags already in reviews.helpful_tags
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void migrateIfEmpty() {
+        if (tagRepository.countReviewTags() > 0) {
+            return;
+        }
+        int tagged = 0;
+        List<ReviewTags> page;
+        Long afterId = 0L;
+        while (!(page = reviewRepository.findTagged(afterId, PageRequest.of(0, LOAD_BATCH_SIZE))).isEmpty()) {
+            for (ReviewTags review : page) {
+                for (Long tagId : tagIds(parse(review.getHelpfulTags(), false))) {
+                    tagRepository.addReviewTag(review.getId(), tagId, review.getMovieId());
+                }
+                tagged++;
+            }
+            afterId = page.get(page.size() - 1).getId();
+        }
+        if (tagged > 0) {
+            log.info("Copied helpful tags of {} reviews into review_tags", tagged);
+            rebuildCounts();
+        }
+    }
+
+    // ids for the tag names, creating the ones that don't exist yet
+    private Set<Long> tagIds(Set<String> names) {
+        Set<Long> ids = new LinkedHashSet<>();
+        if (names.isEmpty()) {
+            return ids;
+        }
+        Set<String> missing = new HashSet<>(names);
+        for (Tag tag : tagRepository.findByNameIn(names)) {
+            ids.add(tag.getId());
+            missing.remove(tag.getName());
+        }
+        if (!missing.isEmpty()) {
+            missing.forEach(tagRepository::insertIfMissing);
+            tagRepository.findByNameIn(missing).forEach(tag -> ids.add(tag.getId()));
+        }
+        return ids;
+    }
+
+    private void applyCounts(Long movieId, Collection<Long> tagIds, long delta) {
+        for (Long tagId : tagIds) {
+            tagRepository.applyCountDelta(movieId, tagId, delta);
+        }
+    }
+
+    // strict = reject bad input (api), otherwise drop what doesn't fit (old data)
+    private static Set<String> parse(String helpfulTags, boolean strict) {
+        Set<String> names = new LinkedHashSet<>();
+        if (helpfulTags == null) {
+            return names;
+        }
+        for (String part : helpfulTags.split(",")) {
+            String name = part.trim().toLowerCase(Locale.ROOT);
+            if (name.isEmpty()) {
+                continue;
+            }
+            if (name.length() > MAX_TAG_LENGTH) {
+                if (strict) {
+                    throw new IllegalArgumentException("Tags can be at most " + MAX_TAG_LENGTH + " characters");
+                }
+                continue;
+            }
+            names.add(name);
+        }
+        if (names.size() > MAX_TAGS) {
+            if (strict) {
+                throw new IllegalArgumentException("A review can have at most " + MAX_TAGS + " tags");
+            }
+            return new LinkedHashSet<>(new ArrayList<>(names).subList(0, MAX_TAGS));
+        }
+        return names;
+    }
+}
@@ -0,0 +1,242 @@
+package in.lakshay.service;
+
+import in.lakshay.repo.ReviewRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// write-behind vote counters (reviews.votes.write-behind=true)
+// votes add to striped in-memory counters and a scheduled flush turns everything a review got since the
+// last flush into one UPDATE, so a hot review costs one row update per interval instead of one per vote
+// the review_votes rows are still written with the vote, they're the durable record -
+// counters lost in a crash get fixed by ReviewVoteReconciler, which pauses the buffer while it runs
+// (a buffered vote is in review_votes but not in the counters yet, the reconcile would count it twice)
+@Component
+@Slf4j
+public class ReviewVoteBuffer {
+    private final ReviewRepository reviewRepository;
+    private final boolean enabled;
+    private final int stripes;
+
+    private final Map<Long, PendingVotes> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger(); // buffered votes whose transaction hasn't finished
+    private volatile boolean paused;
+
+    @Autowired // constructor injection
+    public ReviewVoteBuffer(ReviewRepository reviewRepository,
+                            @Value("${reviews.votes.write-behind:false}") boolean enabled) {
+        this.reviewRepository = reviewRepository;
+        this.enabled = enabled;
+        // power of two >= cpu count, so picking a stripe is a mask
+        this.stripes = Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() * 2 - 1));
+    }
+
+    // buffer a vote delta once the vote itself is committed - a rolled back vote never counts
+    // false = not buffering (disabled, or paused for a reconcile), the caller updates the counters itself
+    public boolean bufferAfterCommit(Long reviewId, int upvoteDelta, int downvoteDelta) {
+        if (!enabled || paused) {
+            return false;
+        }
+        inFlight.incrementAndGet();
+        if (paused) { // pause() started in between and may already have seen inFlight at 0
+            inFlight.decrementAndGet();
+            return false;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    try {
+                        if (status == STATUS_COMMITTED) {
+                            add(reviewId, upvoteDelta, downvoteDelta);
+                        }
+                    } finally {
+                        inFlight.decrementAndGet();
+                    }
+                }
+            });
+        } else {
+            try {
+                add(reviewId, upvoteDelta, downvoteDelta);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+        return true;
+    }
+
+    // stop buffering, wait for buffered votes still committing, and flush everything
+    // afterwards the counters + review_votes agree until resume() - false (and not paused) if that didn't work out
+    public boolean pause(long timeoutMs) throws InterruptedException {
+        paused = true;
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (inFlight.get() > 0) {
+            if (System.currentTimeMillis() > deadline) {
+                paused = false;
+                return false;
+            }
+            Thread.sleep(10);
+        }
+        flush();
+        if (pending.values().stream().anyMatch(PendingVotes::hasVotes)) { // a flush failed, the votes went back in
+            paused = false;
+            return false;
+        }
+        return true;
+    }
+
+    public void resume() {
+        paused = false;
+    }
+
+    // not flushed yet - added to the db counts when showing a review
+    public int pendingUpvotes(Long reviewId) {
+        PendingVotes votes = pending.get(reviewId);
+        return votes == null ? 0 : (int) votes.sum(0);
+    }
+
+    public int pendingDownvotes(Long reviewId) {
+        PendingVotes votes = pending.get(reviewId);
+        return votes == null ? 0 : (int) votes.sum(1);
+    }
+
+    // one UPDATE per review that got votes since the last run
+    // (between draining and the update committing a reader can briefly miss those votes, fine for counters)
+    // synchronized so pause() can't return while a scheduled flush still has drained votes on the way to the db
+    @Scheduled(fixedDelayString = "${reviews.votes.flush-interval-ms:1000}")
+    public synchronized void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        int flushed = 0;
+        for (Map.Entry<Long, PendingVotes> entry : pending.entrySet()) {
+            Long reviewId = entry.getKey();
+            PendingVotes votes = entry.getValue();
+            long up = votes.drain(0);
+            long down = votes.drain(1);
+
+            if (up == 0 && down == 0) {
+                // nothing since the last flush - drop the entry so idle reviews don't pile up
+                // only if nobody is adding to it right now, otherwise leave it for the next run
+                if (!votes.retire()) {
+                    continue;
+                }
+                pending.remove(reviewId, votes);
+                up = votes.drain(0); // adds that finished between the drain and the retire
+                down = votes.drain(1);
+                if (up == 0 && down == 0) {
+                    continue;
+                }
+            }
+
+            try {
+                reviewRepository.applyVoteDelta(reviewId, (int) up, (int) down);
+                flushed++;
+            } catch (Exception e) {
+                // keep the votes for the next run
+                log.error("Error flushing votes for review id {}: {}", reviewId, e.getMessage());
+                add(reviewId, (int) up, (int) down);
+            }
+        }
+        log.debug("Flushed buffered votes for {} reviews", flushed);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush(); // don't throw away what we have on a normal shutdown
+    }
+
+    private void add(Long reviewId, int upvoteDelta, int downvoteDelta) {
+        while (true) {
+            PendingVotes votes = pending.computeIfAbsent(reviewId, id -> new PendingVotes(stripes));
+            if (votes.enter()) {
+                try {
+                    votes.add(upvoteDelta, downvoteDelta);
+                } finally {
+                    votes.exit();
+                }
+                return;
+            }
+            // flush retired this entry - it never gets drained again, so don't touch it, use a fresh one
+            pending.remove(reviewId, votes);
+        }
+    }
+
+    // up/down counters split over a few stripes so concurrent voters on one review don't fight over
+    // one cache line (LongAdder style) - drain is getAndSet per stripe so no vote slips between read and reset
+    private static final class PendingVotes {
+        private static final int PAD = 8; // 8 longs = 64 bytes, one stripe per cache line
+        private static final int RETIRED = -1;
+
+        private final AtomicLongArray cells; // [stripe][up, down] padded
+        private final int mask;
+        // adds in progress, or RETIRED once flush dropped the entry - both sides CAS on it, so an add either
+        // finishes before the retire (and the drain after it sees the add) or never starts on this entry
+        private final AtomicInteger writers = new AtomicInteger();
+
+        PendingVotes(int stripes) {
+            this.cells = new AtomicLongArray(stripes * PAD);
+            this.mask = stripes - 1;
+        }
+
+        boolean enter() {
+            int current;
+            do {
+                current = writers.get();
+                if (current == RETIRED) {
+                    return false;
+                }
+            } while (!writers.compareAndSet(current, current + 1));
+            return true;
+        }
+
+        void exit() {
+            writers.decrementAndGet();
+        }
+
+        boolean retire() {
+            return writers.compareAndSet(0, RETIRED);
+        }
+
+        boolean hasVotes() {
+            return sum(0) != 0 || sum(1) != 0;
+        }
+
+        void add(int upvoteDelta, int downvoteDelta) {
+            int base = ((int) Thread.currentThread().getId() & mask) * PAD;
+            if (upvoteDelta != 0) {
+                cells.getAndAdd(base, upvoteDelta);
+            }
+            if (downvoteDelta != 0) {
+                cells.getAndAdd(base + 1, downvoteDelta);
+            }
+        }
+
+        long sum(int counter) {
+            long sum = 0;
+            for (int i = counter; i < cells.length(); i += PAD) {
+                sum += cells.get(i);
+            }
+            return sum;
+        }
+
+        long drain(int counter) {
+            long sum = 0;
+            for (int i = counter; i < cells.length(); i += PAD) {
+                sum += cells.getAndSet(i, 0);
+            }
+            return sum;
+        }
+    }
+}
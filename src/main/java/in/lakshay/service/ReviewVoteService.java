@@ -30,6 +30,9 @@ public class ReviewVoteService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ReviewVoteBuffer reviewVoteBuffer;
+
     /**
      * Vote on a review (upvote or downvote)
      * handles both creating new votes and changing existing ones
@@ -56,8 +59,8 @@ public class ReviewVoteService {
             if (vote.isUpvote() == isUpvote) {
                 reviewVoteRepository.delete(vote);
 
-                // Update review vote counts
-                updateReviewVoteCounts(review); // recalc the totals
+                // Update review vote counts - take the old vote back out
+                applyVoteDelta(review, isUpvote ? -1 : 0, isUpvote ? 0 : -1);
 
                 return null; // Vote removed - frontend handles this
             } else {
@@ -65,8 +68,8 @@ public class ReviewVoteService {
                 vote.setUpvote(isUpvote); // flip it!
                 ReviewVote savedVote = reviewVoteRepository.save(vote);
 
-                // Update review vote counts
-                updateReviewVoteCounts(review); // important!
+                // Update review vote counts - one moves from one side to the other
+                applyVoteDelta(review, isUpvote ? 1 : -1, isUpvote ? -1 : 1); // important!
 
                 return mapToDTO(savedVote);
             }
@@ -80,7 +83,7 @@ public class ReviewVoteService {
             ReviewVote savedVote = reviewVoteRepository.save(vote);
 
             // Update review vote counts
-            updateReviewVoteCounts(review);
+            applyVoteDelta(review, isUpvote ? 1 : 0, isUpvote ? 0 : 1);
 
             return mapToDTO(savedVote);
         }
@@ -130,20 +133,15 @@ public class ReviewVoteService {
         return vote.map(this::mapToDTO).orElse(null);
     }
 
-    // recalculate and update the vote counts on a review
-    // this runs after any vote changes
-    @Transactional
-    public void updateReviewVoteCounts(Review review) {
-        // count from scratch to be safe
-        int upvotes = reviewVoteRepository.countUpvotesByReview(review);
-        int downvotes = reviewVoteRepository.countDownvotesByReview(review);
-
-        // update the review obj
-        review.setUpvotes(upvotes);
-        review.setDownvotes(downvotes);
-
-        // save it back to db
-        reviewRepository.save(review);
+    // counters move by the difference between the old and new vote, in one UPDATE
+    // no COUNT scans and no read-modify-write of the whole review row, so concurrent voters
+    // only hold the row lock for the increment; ReviewVoteReconciler fixes any drift later
+    // in write-behind mode the delta goes to ReviewVoteBuffer instead and gets flushed in batches
+    // (unless the buffer is paused for a reconcile - then it's the UPDATE here, in the vote's transaction)
+    private void applyVoteDelta(Review review, int upvoteDelta, int downvoteDelta) {
+        if (!reviewVoteBuffer.bufferAfterCommit(review.getId(), upvoteDelta, downvoteDelta)) {
+            reviewRepository.applyVoteDelta(review.getId(), upvoteDelta, downvoteDelta);
+        }
     }
 
     // convert db entity to dto for api response
@@ -0,0 +1,275 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Showtime;
+import in.lakshay.event.SeatStateChangedEvent;
+import in.lakshay.exception.ResourceNotFoundException;
+import in.lakshay.repo.SeatRepository;
+import in.lakshay.repo.SeatRepository.SeatState;
+import in.lakshay.repo.ShowtimeRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+// keeps one ShowtimeSeatMap per showtime so seat claims are decided in memory
+// the db write only happens after a claim has already won here (write-behind)
+// maps are loaded lazily and evicted whenever the seats of a showtime are (re)created or deleted,
+// and swept out once the show date has passed
+// in virtual seat mode the map is built from the theater layout plus the booked seat rows
+// every committed change is published as a SeatStateChangedEvent for the live seat streams
+@Component
+@Slf4j
+public class SeatAvailabilityEngine {
+    private final SeatRepository seatRepository;
+    private final ShowtimeRepository showtimeRepository;
+    private final SeatLayoutService seatLayoutService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ConcurrentHashMap<Long, ShowtimeSeatMap> seatMaps = new ConcurrentHashMap<>();
+    // row view of the cached seat maps for best-available searches, rebuilt when the map or layout changes
+    private final ConcurrentHashMap<Long, SeatRowIndex> rowIndexes = new ConcurrentHashMap<>();
+
+    // how often a best-available search is redone when another buyer grabs the block first
+    private static final int BEST_AVAILABLE_ATTEMPTS = 5;
+
+    @Autowired
+    public SeatAvailabilityEngine(SeatRepository seatRepository, ShowtimeRepository showtimeRepository,
+                                  SeatLayoutService seatLayoutService, ApplicationEventPublisher eventPublisher) {
+        this.seatRepository = seatRepository;
+        this.showtimeRepository = showtimeRepository;
+        this.seatLayoutService = seatLayoutService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    // get the seat map for a showtime, loading it from the db on first use
+    public ShowtimeSeatMap getSeatMap(Long showtimeId) {
+        return seatMaps.computeIfAbsent(showtimeId, this::load);
+    }
+
+    // drop the cached map - next access reloads from the db
+    public void evict(Long showtimeId) {
+        rowIndexes.remove(showtimeId);
+        if (seatMaps.remove(showtimeId) != null) {
+            log.debug("Evicted seat map for showtime id: {}", showtimeId);
+        }
+    }
+
+    // drop maps of showtimes from before today (or deleted ones) - nobody books those, they'd only pile up
+    // showDate is the start date, so a show running past midnight keeps its map until the day after
+    // a stray request for an old showtime just loads the map again and the next sweep drops it
+    @Scheduled(initialDelayString = "${seats.map.sweep-interval-ms:3600000}",
+            fixedDelayString = "${seats.map.sweep-interval-ms:3600000}")
+    public void evictPastShowtimes() {
+        Set<Long> cached = new HashSet<>(seatMaps.keySet());
+        cached.addAll(rowIndexes.keySet());
+        if (cached.isEmpty()) {
+            return;
+        }
+
+        cached.removeAll(showtimeRepository.findIdsFromDate(cached, LocalDate.now().minusDays(1)));
+        cached.forEach(this::evict);
+        if (!cached.isEmpty()) {
+            log.info("Evicted {} seat maps of past showtimes, {} still cached", cached.size(), seatMaps.size());
+        }
+    }
+
+    // translate seat ids into bit positions
+    // reloads once if an id is unknown (seats might have been created after the map was built)
+    public int[] resolvePositions(Long showtimeId, List<Long> seatIds) {
+        return resolve(showtimeId, seatIds, ShowtimeSeatMap::positionOf, "Seats not found with IDs: ");
+    }
+
+    // same thing for seat labels like "A1" - the only way to pick a free seat in virtual seat mode
+    public int[] resolveSeatNumbers(Long showtimeId, List<String> seatNumbers) {
+        return resolve(showtimeId, seatNumbers, ShowtimeSeatMap::positionOf, "Seats not found: ");
+    }
+
+    private <T> int[] resolve(Long showtimeId, List<T> seats, BiFunction<ShowtimeSeatMap, T, Integer> lookup,
+                              String notFoundMessage) {
+        Set<T> unique = new HashSet<>(seats);
+        if (unique.size() != seats.size()) {
+            throw new IllegalArgumentException("Duplicate seats in request: " + seats);
+        }
+
+        ShowtimeSeatMap seatMap = getSeatMap(showtimeId);
+        if (!containsAll(seatMap, seats, lookup)) {
+            evict(showtimeId);
+            seatMap = getSeatMap(showtimeId);
+        }
+
+        int[] positions = new int[seats.size()];
+        List<T> notFound = new ArrayList<>();
+        for (int i = 0; i < seats.size(); i++) {
+            Integer position = lookup.apply(seatMap, seats.get(i));
+            if (position == null) {
+                notFound.add(seats.get(i));
+            } else {
+                positions[i] = position;
+            }
+        }
+
+        if (!notFound.isEmpty()) {
+            throw new ResourceNotFoundException(notFoundMessage + notFound);
+        }
+        return positions;
+    }
+
+    // claim seats for the current transaction - released again automatically if the transaction rolls back
+    public boolean claimForCurrentTransaction(ShowtimeSeatMap seatMap, int[] positions) {
+        if (!seatMap.tryClaim(positions)) {
+            return false;
+        }
+
+        List<String> seatNumbers = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            seatNumbers.add(seatMap.seatNumberAt(position));
+        }
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        seatMap.release(positions); // db write failed - give the seats back
+                    }
+                    // a rolled back claim is still announced as freed, seat streams may have seen the bits flip
+                    publish(seatMap.getShowtimeId(), seatNumbers, status == STATUS_COMMITTED);
+                }
+            });
+        } else {
+            publish(seatMap.getShowtimeId(), seatNumbers, true);
+        }
+        return true;
+    }
+
+    // find quantity adjacent free seats and claim them for the current transaction
+    // returns the claimed positions, or null if no row has a big enough free block
+    public int[] claimBestAvailable(Showtime showtime, ShowtimeSeatMap seatMap, int quantity) {
+        SeatRowIndex rowIndex = rowIndexFor(showtime, seatMap);
+
+        for (int attempt = 0; attempt < BEST_AVAILABLE_ATTEMPTS; attempt++) {
+            int[] positions = rowIndex.findBestBlock(quantity);
+            if (positions == null) {
+                return null;
+            }
+            if (claimForCurrentTransaction(seatMap, positions)) {
+                return positions;
+            }
+            // someone claimed part of the block between the search and the claim - look again
+        }
+        throw new IllegalStateException("Seats are selling fast, please try again");
+    }
+
+    private SeatRowIndex rowIndexFor(Showtime showtime, ShowtimeSeatMap seatMap) {
+        SeatLayout layout = seatLayoutService.layoutFor(showtime.getTheater());
+        SeatRowIndex rowIndex = rowIndexes.get(showtime.getId());
+        if (rowIndex == null || !rowIndex.isFor(seatMap, layout)) {
+            rowIndex = SeatRowIndex.build(seatMap, layout);
+            rowIndexes.put(showtime.getId(), rowIndex);
+        }
+        return rowIndex;
+    }
+
+    // release seats once the freeing transaction has committed
+    // releasing earlier could let someone claim a seat that's still reserved in the db
+    // by seat number since virtual seats get a new row (and id) every time they're booked
+    public void releaseAfterCommit(Long showtimeId, List<String> seatNumbers) {
+        Runnable release = () -> {
+            ShowtimeSeatMap seatMap = seatMaps.get(showtimeId);
+            if (seatMap == null) {
+                return; // not cached - next load reads the committed state anyway
+            }
+            for (String seatNumber : seatNumbers) {
+                Integer position = seatMap.positionOf(seatNumber);
+                if (position != null) {
+                    seatMap.release(new int[]{position});
+                }
+            }
+            publish(showtimeId, seatNumbers, false);
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release.run();
+                }
+            });
+        } else {
+            release.run();
+        }
+    }
+
+    private void publish(Long showtimeId, List<String> seatNumbers, boolean reserved) {
+        try {
+            eventPublisher.publishEvent(new SeatStateChangedEvent(showtimeId, seatNumbers, reserved));
+        } catch (Exception e) {
+            // runs after commit - a broken listener must not look like a failed booking
+            log.warn("Error publishing seat change for showtime id: {}: {}", showtimeId, e.getMessage());
+        }
+    }
+
+    private <T> boolean containsAll(ShowtimeSeatMap seatMap, List<T> seats, BiFunction<ShowtimeSeatMap, T, Integer> lookup) {
+        for (T seat : seats) {
+            if (lookup.apply(seatMap, seat) == null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private ShowtimeSeatMap load(Long showtimeId) {
+        if (seatLayoutService.isVirtualMode()) {
+            return loadVirtual(showtimeId);
+        }
+
+        List<SeatState> states = seatRepository.findSeatStatesByShowtimeId(showtimeId);
+
+        List<Long> ids = new ArrayList<>(states.size());
+        List<String> numbers = new ArrayList<>(states.size());
+        List<Boolean> reserved = new ArrayList<>(states.size());
+        for (SeatState state : states) {
+            ids.add(state.getId());
+            numbers.add(state.getSeatNumber());
+            reserved.add(state.getIsReserved());
+        }
+
+        log.debug("Loaded seat map for showtime id: {} with {} seats", showtimeId, ids.size());
+        return new ShowtimeSeatMap(showtimeId, ids, numbers, reserved);
+    }
+
+    // every layout seat gets a position, only the booked ones have a row (and an id)
+    private ShowtimeSeatMap loadVirtual(Long showtimeId) {
+        Showtime showtime = showtimeRepository.findById(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
+
+        Map<String, Long> bookedSeatIds = new HashMap<>();
+        seatRepository.findReservedSeatStates(showtimeId)
+                .forEach(state -> bookedSeatIds.put(state.getSeatNumber(), state.getId()));
+
+        List<String> numbers = seatLayoutService.seatNumbersFor(showtime.getTheater());
+        List<Long> ids = new ArrayList<>(numbers.size());
+        List<Boolean> reserved = new ArrayList<>(numbers.size());
+        for (String number : numbers) {
+            Long seatId = bookedSeatIds.get(number);
+            ids.add(seatId);
+            reserved.add(seatId != null);
+        }
+
+        log.debug("Loaded virtual seat map for showtime id: {} with {} seats ({} booked)",
+                showtimeId, numbers.size(), bookedSeatIds.size());
+        return new ShowtimeSeatMap(showtimeId, ids, numbers, reserved);
+    }
+}
@@ -0,0 +1,148 @@
+package in.lakshay.service;
+
+import in.lakshay.repo.ReservationRepository;
+import in.lakshay.repo.ReservationRepository.HoldState;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.TimeUnit;
+
+// time-boxed seat holds
+// an unpaid reservation (statusId=1) IS the hold - it keeps its seats until it's paid or the ttl runs out
+// expired holds come out of a DelayQueue and get canceled in bulk by SeatHoldSweeper
+@Service
+@Slf4j
+public class SeatHoldService {
+    private final ReservationRepository reservationRepository;
+    private final long ttlMinutes;
+
+    private final DelayQueue<SeatHold> expiryQueue = new DelayQueue<>();
+    // reservation id -> hold, removing from here is how a hold gets promoted/dropped
+    // (the queue entry stays behind and is skipped when it comes out)
+    private final ConcurrentHashMap<Long, SeatHold> activeHolds = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatHoldService(ReservationRepository reservationRepository,
+                           @Value("${reservation.hold.ttl-minutes:15}") long ttlMinutes) {
+        this.reservationRepository = reservationRepository;
+        this.ttlMinutes = ttlMinutes;
+    }
+
+    // when a hold made at reservationTime runs out
+    public LocalDateTime expiresAt(LocalDateTime reservationTime) {
+        return reservationTime.plusMinutes(ttlMinutes);
+    }
+
+    // start the clock once the reservation is actually committed
+    public void holdAfterCommit(Long reservationId, LocalDateTime reservationTime) {
+        Runnable hold = () -> hold(reservationId, reservationTime);
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    hold.run();
+                }
+            });
+        } else {
+            hold.run();
+        }
+    }
+
+    // reservation got paid or canceled - it's not a hold anymore
+    // waits for the commit so a rolled back payment/cancel keeps the hold
+    public void release(Long reservationId) {
+        Runnable release = () -> {
+            if (activeHolds.remove(reservationId) != null) {
+                log.debug("Released seat hold for reservation id: {}", reservationId);
+            }
+        };
+
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    release.run();
+                }
+            });
+        } else {
+            release.run();
+        }
+    }
+
+    // all holds whose ttl has passed, at most maxBatch of them
+    // returned holds are no longer tracked - put them back with requeue() if expiring them fails
+    public List<Long> drainExpired(int maxBatch) {
+        List<SeatHold> expired = new ArrayList<>();
+        expiryQueue.drainTo(expired, maxBatch); // only hands out elements whose delay is up
+
+        List<Long> reservationIds = new ArrayList<>(expired.size());
+        for (SeatHold seatHold : expired) {
+            if (activeHolds.remove(seatHold.reservationId, seatHold)) { // skip stale queue entries
+                reservationIds.add(seatHold.reservationId);
+            }
+        }
+        return reservationIds;
+    }
+
+    // put holds back so the next sweep retries them
+    public void requeue(List<Long> reservationIds) {
+        for (Long reservationId : reservationIds) {
+            SeatHold seatHold = new SeatHold(reservationId, System.currentTimeMillis());
+            if (activeHolds.putIfAbsent(reservationId, seatHold) == null) {
+                expiryQueue.add(seatHold);
+            }
+        }
+    }
+
+    // holds only live in memory, so rebuild them from the unpaid reservations on startup
+    // anything that expired while we were down goes out on the first sweep
+    @EventListener(ApplicationReadyEvent.class)
+    public void recoverHolds() {
+        List<HoldState> holds = reservationRepository.findUnpaidHolds();
+        holds.forEach(state -> hold(state.getId(), state.getReservationTime()));
+        log.info("Recovered {} seat holds", holds.size());
+    }
+
+    private void hold(Long reservationId, LocalDateTime reservationTime) {
+        long expiresAtMillis = expiresAt(reservationTime).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        SeatHold seatHold = new SeatHold(reservationId, expiresAtMillis);
+        if (activeHolds.putIfAbsent(reservationId, seatHold) == null) {
+            expiryQueue.add(seatHold);
+        }
+    }
+
+    // one queue entry - identity equality on purpose, see drainExpired
+    private static final class SeatHold implements Delayed {
+        private final Long reservationId;
+        private final long expiresAtMillis;
+
+        SeatHold(Long reservationId, long expiresAtMillis) {
+            this.reservationId = reservationId;
+            this.expiresAtMillis = expiresAtMillis;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(expiresAtMillis - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(expiresAtMillis, ((SeatHold) other).expiresAtMillis);
+        }
+    }
+}
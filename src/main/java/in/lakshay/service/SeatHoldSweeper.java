@@ -0,0 +1,51 @@
+package in.lakshay.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// periodically cancels reservations whose seat hold ran out and gives the seats back
+// one transaction per batch instead of one per reservation
+// their open stripe checkouts are expired afterwards, so the released seats can't be paid for anymore
+@Component
+@Slf4j
+public class SeatHoldSweeper {
+    private final SeatHoldService seatHoldService;
+    private final ReservationService reservationService;
+    private final PaymentService paymentService;
+    private final int batchSize;
+
+    @Autowired
+    public SeatHoldSweeper(SeatHoldService seatHoldService, ReservationService reservationService,
+                           PaymentService paymentService,
+                           @Value("${reservation.hold.sweep-batch-size:500}") int batchSize) {
+        this.seatHoldService = seatHoldService;
+        this.reservationService = reservationService;
+        this.paymentService = paymentService;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${reservation.hold.sweep-interval-ms:15000}")
+    public void sweepExpiredHolds() {
+        List<Long> expired;
+        while (!(expired = seatHoldService.drainExpired(batchSize)).isEmpty()) {
+            try {
+                int canceled = reservationService.expireReservations(expired);
+                log.info("Expired {} seat holds ({} reservations canceled)", expired.size(), canceled);
+            } catch (Exception e) {
+                log.error("Error expiring seat holds: {}", e.getMessage(), e);
+                seatHoldService.requeue(expired); // try again next run
+                return;
+            }
+            try {
+                paymentService.expireCheckouts(expired); // stripe keeps a checkout open for 30 min at least
+            } catch (Exception e) {
+                log.error("Error closing checkouts of expired seat holds: {}", e.getMessage(), e);
+            }
+        }
+    }
+}
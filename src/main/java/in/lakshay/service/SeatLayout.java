@@ -0,0 +1,193 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.SeatLayoutSpec;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// compiled, immutable version of a SeatLayoutSpec
+// seat labels, rows, columns and classes are worked out once here so seat generation
+// and seat map rendering just index into arrays
+// seat index = position in layout order (row by row, blocked seats skipped)
+public final class SeatLayout {
+    public static final String DEFAULT_SEAT_CLASS = "STANDARD";
+
+    private final String[] rowLabels;
+    private final int[] rowLengths; // grid slots per row, blocked seats included
+    private final int maxRowLength;
+    private final boolean[] aisleAfter; // indexed by seat number in row
+
+    private final String[] seatNumbers; // seat index -> label like "A1"
+    private final int[] seatRows; // seat index -> row index
+    private final int[] seatColumns; // seat index -> seat number in row (1-based)
+    private final String[] seatClasses; // seat index -> class
+    private final Map<String, Integer> indexBySeatNumber;
+    private final List<String> seatNumberList;
+
+    private SeatLayout(String[] rowLabels, int[] rowLengths, boolean[] aisleAfter,
+                       List<String> seatNumbers, List<Integer> seatRows, List<Integer> seatColumns,
+                       List<String> seatClasses) {
+        this.rowLabels = rowLabels;
+        this.rowLengths = rowLengths;
+        this.maxRowLength = Arrays.stream(rowLengths).max().orElse(0);
+        this.aisleAfter = aisleAfter;
+
+        int size = seatNumbers.size();
+        this.seatNumbers = seatNumbers.toArray(new String[0]);
+        this.seatRows = seatRows.stream().mapToInt(Integer::intValue).toArray();
+        this.seatColumns = seatColumns.stream().mapToInt(Integer::intValue).toArray();
+        this.seatClasses = seatClasses.toArray(new String[0]);
+
+        Map<String, Integer> index = new HashMap<>(size * 2);
+        for (int i = 0; i < size; i++) {
+            index.put(this.seatNumbers[i], i);
+        }
+        this.indexBySeatNumber = Collections.unmodifiableMap(index);
+        this.seatNumberList = Collections.unmodifiableList(Arrays.asList(this.seatNumbers));
+    }
+
+    // turns a spec into a layout, throws IllegalArgumentException if the spec doesn't make sense
+    static SeatLayout compile(SeatLayoutSpec spec) {
+        if (spec == null || spec.getRows() == null || spec.getRows() < 1
+                || spec.getSeatsPerRow() == null || spec.getSeatsPerRow() < 1) {
+            throw new IllegalArgumentException("Seat layout needs at least one row and one seat per row");
+        }
+
+        int rowCount = spec.getRows();
+        String[] rowLabels = new String[rowCount];
+        int[] rowLengths = new int[rowCount];
+        Map<String, Integer> rowByLabel = new HashMap<>();
+        for (int row = 0; row < rowCount; row++) {
+            rowLabels[row] = rowLabel(row);
+            rowLengths[row] = spec.getSeatsPerRow();
+            rowByLabel.put(rowLabels[row], row);
+        }
+
+        if (spec.getRowSeats() != null) {
+            spec.getRowSeats().forEach((label, seats) -> {
+                Integer row = rowByLabel.get(label);
+                if (row == null || seats == null || seats < 0) {
+                    throw new IllegalArgumentException("Invalid row seat count for row: " + label);
+                }
+                rowLengths[row] = seats;
+            });
+        }
+
+        int maxRowLength = Arrays.stream(rowLengths).max().orElse(0);
+        boolean[] aisleAfter = new boolean[maxRowLength + 1];
+        if (spec.getAisles() != null) {
+            for (Integer seat : spec.getAisles()) {
+                if (seat == null || seat < 1 || seat >= maxRowLength) {
+                    throw new IllegalArgumentException("Aisle must be between two seats: " + seat);
+                }
+                aisleAfter[seat] = true;
+            }
+        }
+
+        Map<String, String> classByRow = new HashMap<>();
+        if (spec.getSeatClasses() != null) {
+            spec.getSeatClasses().forEach((seatClass, labels) -> {
+                for (String label : labels) {
+                    if (!rowByLabel.containsKey(label)) {
+                        throw new IllegalArgumentException("Unknown row in seat class " + seatClass + ": " + label);
+                    }
+                    classByRow.put(label, seatClass);
+                }
+            });
+        }
+
+        Set<String> blocked = spec.getBlockedSeats() != null ? new HashSet<>(spec.getBlockedSeats()) : Set.of();
+
+        List<String> seatNumbers = new ArrayList<>();
+        List<Integer> seatRows = new ArrayList<>();
+        List<Integer> seatColumns = new ArrayList<>();
+        List<String> seatClasses = new ArrayList<>();
+        for (int row = 0; row < rowCount; row++) {
+            String seatClass = classByRow.getOrDefault(rowLabels[row], DEFAULT_SEAT_CLASS);
+            for (int seat = 1; seat <= rowLengths[row]; seat++) {
+                String seatNumber = rowLabels[row] + seat; // like A1, B5, etc
+                if (blocked.contains(seatNumber)) {
+                    continue;
+                }
+                seatNumbers.add(seatNumber);
+                seatRows.add(row);
+                seatColumns.add(seat);
+                seatClasses.add(seatClass);
+            }
+        }
+
+        if (seatNumbers.isEmpty()) {
+            throw new IllegalArgumentException("Seat layout has no sellable seats");
+        }
+
+        return new SeatLayout(rowLabels, rowLengths, aisleAfter, seatNumbers, seatRows, seatColumns, seatClasses);
+    }
+
+    // A..Z, then AA, AB... so big halls don't run out of letters
+    static String rowLabel(int row) {
+        StringBuilder label = new StringBuilder();
+        for (int n = row; n >= 0; n = n / 26 - 1) {
+            label.insert(0, (char) ('A' + n % 26));
+        }
+        return label.toString();
+    }
+
+    // number of sellable seats
+    public int size() {
+        return seatNumbers.length;
+    }
+
+    // all sellable seat labels in layout order (unmodifiable, shared)
+    public List<String> seatNumbers() {
+        return seatNumberList;
+    }
+
+    public String seatNumberAt(int index) {
+        return seatNumbers[index];
+    }
+
+    // null if the seat isn't in the layout (or is blocked)
+    public Integer indexOf(String seatNumber) {
+        return indexBySeatNumber.get(seatNumber);
+    }
+
+    public int rowOf(int index) {
+        return seatRows[index];
+    }
+
+    public int columnOf(int index) {
+        return seatColumns[index];
+    }
+
+    public String seatClassAt(int index) {
+        return seatClasses[index];
+    }
+
+    public int rowCount() {
+        return rowLabels.length;
+    }
+
+    public String rowLabelAt(int row) {
+        return rowLabels[row];
+    }
+
+    // grid slots in the row, blocked seats included
+    public int rowLength(int row) {
+        return rowLengths[row];
+    }
+
+    public int maxRowLength() {
+        return maxRowLength;
+    }
+
+    // true if there's an aisle between seat n and n+1
+    public boolean isAisleAfter(int seatNumberInRow) {
+        return seatNumberInRow < aisleAfter.length && aisleAfter[seatNumberInRow];
+    }
+}
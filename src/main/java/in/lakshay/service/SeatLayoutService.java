@@ -0,0 +1,155 @@
+package in.lakshay.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import in.lakshay.dto.SeatLayoutSpec;
+import in.lakshay.entity.Theater;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+// compiles theater seat layouts and caches them per theater
+// in virtual seat mode this layout IS the seat map - only booked seats get a row in the seats table
+@Service
+@Slf4j
+public class SeatLayoutService {
+    private final ObjectMapper objectMapper;
+    private final boolean virtualMode;
+
+    // theater id -> parsed spec + compiled layout, redone when the theater's layout or capacity changes
+    private final ConcurrentHashMap<Long, CompiledLayout> layouts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SeatLayoutService(ObjectMapper objectMapper, @Value("${seats.virtual-mode:false}") boolean virtualMode) {
+        this.objectMapper = objectMapper;
+        this.virtualMode = virtualMode;
+    }
+
+    // true = don't materialize free seats, derive them from the theater layout
+    public boolean isVirtualMode() {
+        return virtualMode;
+    }
+
+    // compiled layout for a theater
+    public SeatLayout layoutFor(Theater theater) {
+        return compiledFor(theater).layout;
+    }
+
+    // changes whenever the theater's layout (or the capacity its default grid comes from) does - part of seat map ETags
+    public String versionOf(Theater theater) {
+        return compiledFor(theater).version;
+    }
+
+    // seat labels for a theater in layout order
+    public List<String> seatNumbersFor(Theater theater) {
+        return layoutFor(theater).seatNumbers();
+    }
+
+    // the spec a theater's layout is compiled from - the default grid if it doesn't have one
+    // cached with the layout, so treat it as read only
+    public SeatLayoutSpec specFor(Theater theater) {
+        return compiledFor(theater).spec;
+    }
+
+    // validates a spec by compiling it - returns the number of sellable seats
+    public int validate(SeatLayoutSpec spec) {
+        return SeatLayout.compile(spec).size();
+    }
+
+    public SeatLayoutSpec parse(String json) {
+        if (json == null || json.isBlank()) {
+            return null;
+        }
+        try {
+            return objectMapper.readValue(json, SeatLayoutSpec.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid seat layout: " + e.getOriginalMessage());
+        }
+    }
+
+    public String toJson(SeatLayoutSpec spec) {
+        if (spec == null) {
+            return null;
+        }
+        try {
+            return objectMapper.writeValueAsString(spec);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Invalid seat layout: " + e.getOriginalMessage());
+        }
+    }
+
+    private CompiledLayout compiledFor(Theater theater) {
+        if (theater == null) {
+            throw new IllegalArgumentException("Showtime must have an associated theater"); // obviously
+        }
+        if (theater.getId() == null) {
+            return compile(theater); // not saved yet, nothing to cache under
+        }
+
+        CompiledLayout cached = layouts.get(theater.getId());
+        if (cached != null && cached.isFor(theater)) {
+            return cached;
+        }
+
+        CompiledLayout compiled = compile(theater);
+        layouts.put(theater.getId(), compiled);
+        return compiled;
+    }
+
+    private CompiledLayout compile(Theater theater) {
+        SeatLayoutSpec spec = parse(theater.getSeatLayout());
+        if (spec == null) {
+            spec = defaultSpec(theater.getCapacity());
+        }
+        SeatLayout layout = SeatLayout.compile(spec);
+        log.debug("Compiled seat layout for theater id: {} ({} rows, {} seats)",
+                theater.getId(), layout.rowCount(), layout.size());
+        return new CompiledLayout(theater.getSeatLayout(), theater.getCapacity(), spec, layout);
+    }
+
+    // theaters without a layout get a roughly square grid that fits their capacity
+    private SeatLayoutSpec defaultSpec(Integer capacity) {
+        int rows = (int) Math.ceil(Math.sqrt(capacity)); // square root for # of rows
+        int seatsPerRow = (int) Math.ceil((double) capacity / rows); // seats per row
+
+        // fill rows front to back, the last one might be short
+        int fullRows = capacity / seatsPerRow;
+        int remainder = capacity % seatsPerRow;
+        int usedRows = fullRows + (remainder > 0 ? 1 : 0);
+
+        SeatLayoutSpec spec = new SeatLayoutSpec();
+        spec.setRows(usedRows);
+        spec.setSeatsPerRow(seatsPerRow);
+        if (remainder > 0) {
+            spec.setRowSeats(Map.of(SeatLayout.rowLabel(usedRows - 1), remainder));
+        }
+        return spec;
+    }
+
+    // a theater's spec and layout plus what they were built from, to spot edits without parsing again
+    private static final class CompiledLayout {
+        private final String seatLayout;
+        private final Integer capacity;
+        private final SeatLayoutSpec spec;
+        private final SeatLayout layout;
+        private final String version;
+
+        CompiledLayout(String seatLayout, Integer capacity, SeatLayoutSpec spec, SeatLayout layout) {
+            this.seatLayout = seatLayout;
+            this.capacity = capacity;
+            this.spec = spec;
+            this.layout = layout;
+            this.version = Integer.toHexString(Objects.hash(seatLayout, capacity));
+        }
+
+        boolean isFor(Theater theater) {
+            return Objects.equals(seatLayout, theater.getSeatLayout()) && Objects.equals(capacity, theater.getCapacity());
+        }
+    }
+}
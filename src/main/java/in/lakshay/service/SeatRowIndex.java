@@ -0,0 +1,185 @@
+package in.lakshay.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// row-by-row view of a showtime seat map, used to find N seats next to each other
+// every layout row is split into segments of physically adjacent seats (aisles and blocked seats break a segment)
+// segments whose seats sit next to each other in the bitset are read as one mask, so a row is a couple of word ops
+// built once per seat map + layout and cached by SeatAvailabilityEngine
+final class SeatRowIndex {
+    private final ShowtimeSeatMap seatMap;
+    private final SeatLayout layout;
+    private final Segment[][] segmentsByRow;
+    private final int[] rowOrder; // rows sorted best first
+    private final double[] rowCenters; // middle of each row, in seat numbers
+
+    private SeatRowIndex(ShowtimeSeatMap seatMap, SeatLayout layout, Segment[][] segmentsByRow,
+                         int[] rowOrder, double[] rowCenters) {
+        this.seatMap = seatMap;
+        this.layout = layout;
+        this.segmentsByRow = segmentsByRow;
+        this.rowOrder = rowOrder;
+        this.rowCenters = rowCenters;
+    }
+
+    static SeatRowIndex build(ShowtimeSeatMap seatMap, SeatLayout layout) {
+        int rowCount = layout.rowCount();
+        List<List<Segment>> rows = new ArrayList<>(rowCount);
+        for (int row = 0; row < rowCount; row++) {
+            rows.add(new ArrayList<>());
+        }
+
+        // walk the layout in order and cut a new segment on every row change, gap, aisle or missing seat
+        List<Integer> positions = new ArrayList<>();
+        int firstColumn = 0;
+        int previousRow = -1;
+        int previousColumn = -1;
+        for (int index = 0; index < layout.size(); index++) {
+            int row = layout.rowOf(index);
+            int column = layout.columnOf(index);
+            Integer position = seatMap.positionOf(layout.seatNumberAt(index)); // null = no seat row for this showtime
+
+            boolean adjacent = row == previousRow && column == previousColumn + 1
+                    && !layout.isAisleAfter(previousColumn);
+            if (!adjacent || position == null) {
+                addSegment(rows, previousRow, firstColumn, positions);
+                positions = new ArrayList<>();
+            }
+            if (position != null) {
+                if (positions.isEmpty()) {
+                    firstColumn = column;
+                }
+                positions.add(position);
+            }
+            previousRow = row;
+            previousColumn = column;
+        }
+        addSegment(rows, previousRow, firstColumn, positions);
+
+        Segment[][] segmentsByRow = new Segment[rowCount][];
+        double[] rowCenters = new double[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            segmentsByRow[row] = rows.get(row).toArray(new Segment[0]);
+            rowCenters[row] = (layout.rowLength(row) + 1) / 2.0;
+        }
+
+        return new SeatRowIndex(seatMap, layout, segmentsByRow, rowOrder(rowCount), rowCenters);
+    }
+
+    boolean isFor(ShowtimeSeatMap seatMap, SeatLayout layout) {
+        return this.seatMap == seatMap && this.layout == layout;
+    }
+
+    // best block of quantity adjacent free seats, or null if no row has one
+    // first row (in preference order) with a fitting block wins, inside it the block closest to the middle
+    // this only looks - the caller still has to claim the positions and retry if someone beat it
+    int[] findBestBlock(int quantity) {
+        for (int row : rowOrder) {
+            Segment bestSegment = null;
+            int bestOffset = -1;
+            double bestDistance = Double.MAX_VALUE;
+
+            for (Segment segment : segmentsByRow[row]) {
+                if (segment.positions.length < quantity) {
+                    continue;
+                }
+                // long/scattered segments are checked seat by seat instead
+                boolean masked = segment.contiguous && segment.positions.length <= 64;
+                long starts = masked ? runStarts(freeMask(segment), quantity) : 0L;
+
+                for (int offset = 0; offset + quantity <= segment.positions.length; offset++) {
+                    boolean free = masked ? (starts & (1L << offset)) != 0 : allFree(segment, offset, quantity);
+                    if (!free) {
+                        continue;
+                    }
+                    double center = segment.firstColumn + offset + (quantity - 1) / 2.0;
+                    double distance = Math.abs(center - rowCenters[row]);
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        bestSegment = segment;
+                        bestOffset = offset;
+                    }
+                }
+            }
+
+            if (bestSegment != null) {
+                return Arrays.copyOfRange(bestSegment.positions, bestOffset, bestOffset + quantity);
+            }
+        }
+        return null;
+    }
+
+    // bit i set = seat i of the segment is free
+    private long freeMask(Segment segment) {
+        int length = segment.positions.length;
+        long lengthMask = length == 64 ? -1L : (1L << length) - 1;
+        return ~seatMap.reservedBits(segment.positions[0], length) & lengthMask;
+    }
+
+    // bit i set = seats i..i+quantity-1 are all free
+    // shift-and with doubling, so log(quantity) steps instead of quantity
+    private static long runStarts(long free, int quantity) {
+        long starts = free;
+        int covered = 1;
+        while (covered < quantity) {
+            int shift = Math.min(covered, quantity - covered);
+            starts &= starts >>> shift;
+            covered += shift;
+        }
+        return starts;
+    }
+
+    private boolean allFree(Segment segment, int offset, int quantity) {
+        for (int i = offset; i < offset + quantity; i++) {
+            if (seatMap.isReserved(segment.positions[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void addSegment(List<List<Segment>> rows, int row, int firstColumn, List<Integer> positions) {
+        if (row < 0 || positions.isEmpty()) {
+            return;
+        }
+        int[] array = positions.stream().mapToInt(Integer::intValue).toArray();
+        boolean contiguous = true;
+        for (int i = 1; i < array.length; i++) {
+            if (array[i] != array[i - 1] + 1) {
+                contiguous = false;
+                break;
+            }
+        }
+        rows.get(row).add(new Segment(firstColumn, array, contiguous));
+    }
+
+    // row A is at the screen, so the sweet spot is about two thirds back
+    // rows are tried by distance from there, the row behind wins a tie
+    private static int[] rowOrder(int rowCount) {
+        double ideal = (rowCount - 1) * 2 / 3.0;
+        return IntStream.range(0, rowCount)
+                .boxed()
+                .sorted((a, b) -> {
+                    int byDistance = Double.compare(Math.abs(a - ideal), Math.abs(b - ideal));
+                    return byDistance != 0 ? byDistance : Integer.compare(b, a);
+                })
+                .mapToInt(Integer::intValue)
+                .toArray();
+    }
+
+    // run of physically adjacent seats in one row
+    private static final class Segment {
+        private final int firstColumn; // seat number in row of positions[0]
+        private final int[] positions; // seat map positions, left to right
+        private final boolean contiguous; // positions are consecutive in the bitset
+
+        Segment(int firstColumn, int[] positions, boolean contiguous) {
+            this.firstColumn = firstColumn;
+            this.positions = positions;
+            this.contiguous = contiguous;
+        }
+    }
+}
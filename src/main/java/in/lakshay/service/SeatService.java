@@ -1,10 +1,14 @@
 package in.lakshay.service;
 
+import in.lakshay.dto.SeatBitmapDTO;
 import in.lakshay.dto.SeatDTO;
+import in.lakshay.dto.SeatGenerationReportDTO;
 import in.lakshay.entity.Seat;
 import in.lakshay.entity.Showtime;
 import in.lakshay.exception.ResourceNotFoundException;
+import in.lakshay.repo.SeatBulkRepository;
 import in.lakshay.repo.SeatRepository;
+import in.lakshay.repo.SeatRepository.SeatState;
 import in.lakshay.repo.ShowtimeRepository;
 import lombok.extern.slf4j.Slf4j;
 import org.modelmapper.ModelMapper;
@@ -13,7 +17,14 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 // handles theater seats - creation, reservation status, etc
@@ -22,13 +33,21 @@ import java.util.stream.Collectors;
 @Slf4j // logging
 public class SeatService {
     private final SeatRepository seatRepository; // seat data access
+    private final SeatBulkRepository seatBulkRepository; // batched seat inserts
     private final ShowtimeRepository showtimeRepository; // showtime data access
+    private final SeatAvailabilityEngine seatAvailabilityEngine; // in-memory seat maps
+    private final SeatLayoutService seatLayoutService; // theater layouts
     private final ModelMapper modelMapper; // for dto conversion
 
     @Autowired // constructor injection
-    public SeatService(SeatRepository seatRepository, ShowtimeRepository showtimeRepository, ModelMapper modelMapper) {
+    public SeatService(SeatRepository seatRepository, SeatBulkRepository seatBulkRepository,
+                       ShowtimeRepository showtimeRepository, SeatAvailabilityEngine seatAvailabilityEngine,
+                       SeatLayoutService seatLayoutService, ModelMapper modelMapper) {
         this.seatRepository = seatRepository;
+        this.seatBulkRepository = seatBulkRepository;
         this.showtimeRepository = showtimeRepository;
+        this.seatAvailabilityEngine = seatAvailabilityEngine;
+        this.seatLayoutService = seatLayoutService;
         this.modelMapper = modelMapper;
     }
 
@@ -44,6 +63,11 @@ public class SeatService {
                 showtime.getMovie() != null ? showtime.getMovie().getTitle() : "unknown",
                 showtime.getTheater() != null ? showtime.getTheater().getName() : "unknown");
 
+        // virtual seats - nothing to create, layout minus booked seats
+        if (seatLayoutService.isVirtualMode()) {
+            return virtualSeats(showtime, false);
+        }
+
         List<Seat> seats = seatRepository.findByShowtime(showtime);
 
         // If no seats found for this showtime, create them automatically
@@ -60,8 +84,9 @@ public class SeatService {
             log.info("Found {} existing seats for showtime id: {}", seats.size(), showtimeId);
         }
 
+        SeatLayout layout = seatLayoutService.layoutFor(showtime.getTheater()); // cached, for seat classes
         List<SeatDTO> seatDTOs = seats.stream()
-                .map(this::mapToDTO) // convert to DTOs
+                .map(seat -> mapToDTO(seat, layout)) // convert to DTOs
                 .collect(Collectors.toList());
 
         log.info("Returning {} seat DTOs for showtime id: {}", seatDTOs.size(), showtimeId);
@@ -75,6 +100,10 @@ public class SeatService {
         Showtime showtime = showtimeRepository.findById(showtimeId)
                 .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
 
+        if (seatLayoutService.isVirtualMode()) {
+            return virtualSeats(showtime, true);
+        }
+
         // make sure seats exist first
         List<Seat> allSeats = seatRepository.findByShowtime(showtime);
         if (allSeats.isEmpty()) {
@@ -88,14 +117,58 @@ public class SeatService {
         }
 
         // now get only the unreserved seats
+        SeatLayout layout = seatLayoutService.layoutFor(showtime.getTheater());
         List<SeatDTO> availableSeats = seatRepository.findByShowtimeAndIsReserved(showtime, false).stream()
-                .map(this::mapToDTO) // convert to DTOs
+                .map(seat -> mapToDTO(seat, layout)) // convert to DTOs
                 .collect(Collectors.toList());
 
         log.info("Found {} available seats for showtime id: {}", availableSeats.size(), showtimeId);
         return availableSeats; // these are the seats users can book
     }
 
+    // version of the seat map as an ETag value - the showtime lookup plus the in-memory seat map and layout
+    // lets the controller answer 304 before building anything
+    public String getSeatMapVersion(Long showtimeId) {
+        // unknown ids must not load (and cache) an empty seat map
+        Showtime showtime = showtimeRepository.findById(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
+        return seatMapVersion(seatAvailabilityEngine.getSeatMap(showtimeId), showtime);
+    }
+
+    // seat state + layout: the bitmap is indexed by the layout, so a layout edit has to change the tag too
+    private String seatMapVersion(ShowtimeSeatMap seatMap, Showtime showtime) {
+        return seatMap.getGeneration() + "-" + seatMap.getVersion() + "-" + seatLayoutService.versionOf(showtime.getTheater());
+    }
+
+    // the compact seat map: layout spec + base64 bitmap of the unavailable seats
+    @Transactional
+    public SeatBitmapDTO getSeatBitmap(Long showtimeId) {
+        Showtime showtime = showtimeRepository.findById(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
+
+        ShowtimeSeatMap seatMap = seatAvailabilityEngine.getSeatMap(showtimeId);
+        if (seatMap.getSeatCount() == 0 && !seatLayoutService.isVirtualMode()) {
+            createSeatsForShowtime(showtime); // same lazy creation as the seat list
+            seatMap = seatAvailabilityEngine.getSeatMap(showtimeId);
+        }
+
+        // version first - if a seat flips while we encode, the tag is old and clients just refetch
+        String version = seatMapVersion(seatMap, showtime);
+
+        SeatLayout layout = seatLayoutService.layoutFor(showtime.getTheater());
+        byte[] bitmap = new byte[(layout.size() + 7) / 8];
+        for (int i = 0; i < layout.size(); i++) {
+            Integer position = seatMap.positionOf(layout.seatNumberAt(i));
+            // layout seats without a seat row for this showtime can't be booked either
+            if (position == null || seatMap.isReserved(position)) {
+                bitmap[i >>> 3] |= (byte) (1 << (i & 7));
+            }
+        }
+
+        return new SeatBitmapDTO(showtimeId, version, layout.size(), seatMap.getAvailableSeats(),
+                seatLayoutService.specFor(showtime.getTheater()), Base64.getEncoder().encodeToString(bitmap));
+    }
+
     // creates all the seats for a showtime based on theater layout
     // different theaters have different seating arrangements
     @Transactional
@@ -104,88 +177,125 @@ public class SeatService {
             throw new IllegalArgumentException("Showtime cannot be null"); // duh
         }
 
-        if (showtime.getTheater() == null) {
-            throw new IllegalArgumentException("Showtime must have an associated theater"); // obviously
+        List<String> seatNumbers = buildSeatNumbers(showtime);
+
+        log.info("Created {} seats for showtime id: {}, saving to database...", seatNumbers.size(), showtime.getId());
+        // multi-row inserts instead of one INSERT per seat
+        int inserted = seatBulkRepository.insertSeats(showtime.getId(), seatNumbers);
+        seatAvailabilityEngine.evict(showtime.getId()); // cached seat map (if any) is now stale
+        log.info("Successfully saved {} seats to database for showtime id: {}", inserted, showtime.getId());
+
+        // jdbc inserts don't hand back entities, so read them back in one query
+        return seatRepository.findByShowtime(showtime);
+    }
+
+    /**
+     * Generates seats for many showtimes at once, eg after bulk scheduling a week of shows.
+     * Showtimes that already have seats are skipped. Everything goes in as batched multi-row inserts.
+     */
+    @Transactional
+    public SeatGenerationReportDTO generateSeatsForShowtimes(List<Long> showtimeIds) {
+        if (showtimeIds == null || showtimeIds.isEmpty()) {
+            throw new IllegalArgumentException("At least one showtime ID is required");
         }
 
-        Long theaterId = showtime.getTheater().getId();
-        Integer capacity = showtime.getTheater().getCapacity();
-
-        log.info("Creating seats for showtime id: {} in theater id: {} with capacity: {}",
-                showtime.getId(), theaterId, capacity);
-
-        List<Seat> seats = new ArrayList<>();
-
-        // each theater has a different layout
-        if (theaterId == 1) {
-            // Cineplex (theater_id = 1) - 150 seats (A-O, 1-10)
-            log.info("Creating seats for Cineplex theater layout (15 rows x 10 seats)");
-            for (char row = 'A'; row <= 'O'; row++) { // 15 rows
-                for (int seatNum = 1; seatNum <= 10; seatNum++) { // 10 seats per row
-                    Seat seat = new Seat();
-                    seat.setShowtime(showtime);
-                    seat.setSeatNumber(row + String.valueOf(seatNum)); // like A1, B5, etc
-                    seat.setIsReserved(false); // all available at first
-                    seats.add(seat);
-                }
-            }
-        } else if (theaterId == 2) {
-            // MovieMax (theater_id = 2) - 200 seats (A-J, 1-20)
-            log.info("Creating seats for MovieMax theater layout (10 rows x 20 seats)");
-            for (char row = 'A'; row <= 'J'; row++) { // 10 rows
-                for (int seatNum = 1; seatNum <= 20; seatNum++) { // 20 seats per row
-                    Seat seat = new Seat();
-                    seat.setShowtime(showtime);
-                    seat.setSeatNumber(row + String.valueOf(seatNum));
-                    seat.setIsReserved(false); // not reserved
-                    seats.add(seat);
-                }
-            }
-        } else {
-            // FilmHouse (theater_id = 3) or any other theater - calculate layout
-            // try to make it roughly square-ish
-            int rows = (int) Math.ceil(Math.sqrt(capacity)); // square root for # of rows
-            int seatsPerRow = (int) Math.ceil((double) capacity / rows); // seats per row
-            log.info("Creating seats for theater id: {} with dynamic layout ({} rows x {} seats)",
-                    theaterId, rows, seatsPerRow);
-
-            for (int rowIdx = 0; rowIdx < rows; rowIdx++) {
-                char row = (char) ('A' + rowIdx); // A, B, C, etc.
-                for (int seatNum = 1; seatNum <= seatsPerRow && seats.size() < capacity; seatNum++) {
-                    Seat seat = new Seat();
-                    seat.setShowtime(showtime);
-                    seat.setSeatNumber(row + String.valueOf(seatNum));
-                    seat.setIsReserved(false); // available
-                    seats.add(seat);
-                }
+        if (seatLayoutService.isVirtualMode()) {
+            throw new IllegalStateException("Seats are derived from the theater layout in virtual seat mode, nothing to generate");
+        }
+
+        long start = System.nanoTime();
+        Set<Long> requestedIds = new LinkedHashSet<>(showtimeIds);
+        List<Showtime> showtimes = showtimeRepository.findAllById(requestedIds);
+
+        if (showtimes.size() != requestedIds.size()) {
+            Set<Long> foundIds = showtimes.stream().map(Showtime::getId).collect(Collectors.toSet());
+            List<Long> notFoundIds = requestedIds.stream()
+                    .filter(id -> !foundIds.contains(id))
+                    .collect(Collectors.toList());
+            throw new ResourceNotFoundException("Showtimes not found with IDs: " + notFoundIds);
+        }
+
+        Set<Long> withSeats = new HashSet<>(seatRepository.findShowtimeIdsWithSeats(new ArrayList<>(requestedIds)));
+        Map<Long, List<String>> seatNumbersByShowtime = new LinkedHashMap<>();
+        for (Showtime showtime : showtimes) {
+            if (!withSeats.contains(showtime.getId())) {
+                seatNumbersByShowtime.put(showtime.getId(), buildSeatNumbers(showtime));
             }
         }
 
+        int seatsCreated = seatBulkRepository.insertSeats(seatNumbersByShowtime);
+        seatNumbersByShowtime.keySet().forEach(seatAvailabilityEngine::evict);
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        double seatsPerSecond = seatsCreated * 1000.0 / Math.max(1, elapsedMillis);
+        log.info("Generated {} seats for {} showtimes in {} ms ({} seats/s)",
+                seatsCreated, seatNumbersByShowtime.size(), elapsedMillis, Math.round(seatsPerSecond));
+
+        return new SeatGenerationReportDTO(
+                requestedIds.size(),
+                seatNumbersByShowtime.size(),
+                withSeats.size(),
+                seatsCreated,
+                elapsedMillis,
+                seatsPerSecond);
+    }
+
+    // works out the seat labels for a showtime based on its theater layout
+    // also fixes up the showtime's seat counts if they don't match the layout
+    private List<String> buildSeatNumbers(Showtime showtime) {
+        log.info("Creating seats for showtime id: {} in theater id: {}",
+                showtime.getId(), showtime.getTheater() != null ? showtime.getTheater().getId() : null);
+
+        List<String> seatNumbers = seatLayoutService.seatNumbersFor(showtime.getTheater());
+
         // make sure the showtime's seat count matches what we created
         // sometimes the counts can get out of sync
-        if (seats.size() != showtime.getTotalSeats()) {
+        if (seatNumbers.size() != showtime.getTotalSeats()) {
             log.warn("Created {} seats but showtime has {} total seats. Updating showtime.",
-                    seats.size(), showtime.getTotalSeats());
-            showtime.setTotalSeats(seats.size()); // fix the total
-            showtime.setAvailableSeats(seats.size()); // fix available too
+                    seatNumbers.size(), showtime.getTotalSeats());
+            showtime.setTotalSeats(seatNumbers.size()); // fix the total
+            showtime.setAvailableSeats(seatNumbers.size()); // fix available too
             showtimeRepository.save(showtime); // update the showtime
         }
 
-        log.info("Created {} seats for showtime id: {}, saving to database...", seats.size(), showtime.getId());
-        // save all the seats in one batch
-        List<Seat> savedSeats = seatRepository.saveAll(seats); // return the saved seats
-        log.info("Successfully saved {} seats to database for showtime id: {}", savedSeats.size(), showtime.getId());
-        return savedSeats;
+        return seatNumbers;
+    }
+
+    // virtual seat mode - every seat in the layout, with the booked ones taken from the seats table
+    // free seats have no row yet so they come back without an id (book them by seat number)
+    private List<SeatDTO> virtualSeats(Showtime showtime, boolean onlyAvailable) {
+        Map<String, SeatState> reserved = new HashMap<>();
+        seatRepository.findReservedSeatStates(showtime.getId())
+                .forEach(state -> reserved.put(state.getSeatNumber(), state));
+
+        SeatLayout layout = seatLayoutService.layoutFor(showtime.getTheater());
+        List<SeatDTO> seatDTOs = new ArrayList<>(layout.size());
+        for (int i = 0; i < layout.size(); i++) {
+            String seatNumber = layout.seatNumberAt(i); // labels are precomputed in the layout
+            SeatState state = reserved.get(seatNumber);
+            if (state != null && onlyAvailable) {
+                continue;
+            }
+            seatDTOs.add(new SeatDTO(state != null ? state.getId() : null, showtime.getId(), seatNumber,
+                    state != null, layout.seatClassAt(i)));
+        }
+
+        log.info("Returning {} virtual seats for showtime id: {} ({} booked)", seatDTOs.size(), showtime.getId(), reserved.size());
+        return seatDTOs;
     }
 
     // convert seat entity to DTO
     // manual mapping is simpler than configuring ModelMapper for this
-    private SeatDTO mapToDTO(Seat seat) {
+    private SeatDTO mapToDTO(Seat seat, SeatLayout layout) {
         SeatDTO dto = new SeatDTO();
         dto.setId(seat.getId());
         dto.setSeatNumber(seat.getSeatNumber()); // like A1, B5, etc
         dto.setIsReserved(seat.getIsReserved()); // reservation status
 
+        // seats made before the layout changed might not be in it anymore
+        Integer index = layout.indexOf(seat.getSeatNumber());
+        dto.setSeatClass(index != null ? layout.seatClassAt(index) : SeatLayout.DEFAULT_SEAT_CLASS);
+
         if (seat.getShowtime() != null) {
             dto.setShowtimeId(seat.getShowtime().getId()); // parent showtime
         }
@@ -0,0 +1,248 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.SeatDTO;
+import in.lakshay.dto.SeatDeltaDTO;
+import in.lakshay.dto.SeatMapSnapshotDTO;
+import in.lakshay.entity.Showtime;
+import in.lakshay.event.SeatStateChangedEvent;
+import in.lakshay.exception.ResourceNotFoundException;
+import in.lakshay.repo.ShowtimeRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// live seat maps over server-sent events
+// a viewer gets the whole seat map once ("snapshot") and then only the seats that change ("delta")
+// one stream per showtime fans every change out to all its viewers, so 1000 viewers cost one
+// in-memory seat map read each instead of 1000 polls a second hitting the db
+// every viewer has its own small outbound queue, drained on a few sender threads (one drain per viewer at a time)
+// a change is only queued on the caller's thread, so a slow client can't hold up a booking transaction,
+// and a viewer that falls a whole queue behind is dropped - it reconnects and gets a fresh snapshot
+@Service
+@Slf4j
+public class SeatStreamService {
+    private final SeatAvailabilityEngine seatAvailabilityEngine;
+    private final SeatLayoutService seatLayoutService;
+    private final SeatService seatService;
+    private final ShowtimeRepository showtimeRepository;
+    private final long timeoutMillis;
+    private final int queueCapacity;
+
+    private final ConcurrentHashMap<Long, ShowtimeSeatStream> streams = new ConcurrentHashMap<>();
+    private final ExecutorService sender;
+
+    @Autowired // constructor injection
+    public SeatStreamService(SeatAvailabilityEngine seatAvailabilityEngine, SeatLayoutService seatLayoutService,
+                             SeatService seatService, ShowtimeRepository showtimeRepository,
+                             @Value("${seats.stream.timeout-ms:1800000}") long timeoutMillis,
+                             @Value("${seats.stream.sender-threads:4}") int senderThreads,
+                             @Value("${seats.stream.queue-capacity:64}") int queueCapacity) {
+        this.seatAvailabilityEngine = seatAvailabilityEngine;
+        this.seatLayoutService = seatLayoutService;
+        this.seatService = seatService;
+        this.showtimeRepository = showtimeRepository;
+        this.timeoutMillis = timeoutMillis;
+        this.queueCapacity = queueCapacity;
+        AtomicInteger threadCount = new AtomicInteger();
+        this.sender = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "seat-stream-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    // open a stream for one viewer - the snapshot is queued ahead of any delta
+    public SseEmitter subscribe(Long showtimeId) {
+        Showtime showtime = showtimeRepository.findById(showtimeId)
+                .orElseThrow(() -> new ResourceNotFoundException("Showtime not found with id: " + showtimeId));
+
+        ShowtimeSeatMap seatMap = seatAvailabilityEngine.getSeatMap(showtimeId);
+        if (seatMap.getSeatCount() == 0 && !seatLayoutService.isVirtualMode()) {
+            seatService.getSeatsByShowtime(showtimeId); // seats get created on first access
+            seatMap = seatAvailabilityEngine.getSeatMap(showtimeId);
+        }
+        SeatLayout layout = seatLayoutService.layoutFor(showtime.getTheater());
+
+        Viewer viewer = new Viewer(newEmitter(), queueCapacity);
+
+        // joined under the stream's lock, so the snapshot is queued before the next delta
+        while (true) {
+            ShowtimeSeatStream stream = streams.computeIfAbsent(showtimeId, ShowtimeSeatStream::new);
+            synchronized (stream) {
+                if (stream.dropped) {
+                    continue; // the last viewer just left, start a fresh one
+                }
+                stream.viewers.add(viewer);
+                viewer.emitter.onCompletion(() -> remove(stream, viewer));
+                viewer.emitter.onTimeout(() -> remove(stream, viewer));
+                viewer.emitter.onError(e -> remove(stream, viewer));
+                enqueue(stream, viewer, SseEmitter.event().name("snapshot").data(snapshot(seatMap, layout, stream.version)));
+                log.debug("New seat stream viewer for showtime id: {} ({} watching)", showtimeId, stream.viewers.size());
+            }
+            return viewer.emitter;
+        }
+    }
+
+    // seats changed somewhere - only does work if someone is watching that showtime
+    @EventListener
+    public void onSeatStateChanged(SeatStateChangedEvent event) {
+        ShowtimeSeatStream stream = streams.get(event.getShowtimeId());
+        if (stream == null) {
+            return;
+        }
+
+        // only queues - the sender threads do the writing
+        synchronized (stream) {
+            stream.version++;
+            SeatDeltaDTO delta = new SeatDeltaDTO(event.getShowtimeId(), stream.version, event.getSeatNumbers(),
+                    event.isReserved(), seatAvailabilityEngine.getSeatMap(event.getShowtimeId()).getAvailableSeats());
+            for (Viewer viewer : stream.viewers) {
+                enqueue(stream, viewer, SseEmitter.event().name("delta").data(delta));
+            }
+        }
+    }
+
+    // proxies drop idle connections, and this is also how dead clients get noticed
+    @Scheduled(fixedDelayString = "${seats.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        // a viewer stuck on a dead connection fills its queue with these and gets dropped
+        for (ShowtimeSeatStream stream : streams.values()) {
+            synchronized (stream) {
+                for (Viewer viewer : stream.viewers) {
+                    enqueue(stream, viewer, SseEmitter.event().comment("ping"));
+                }
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        streams.values().forEach(stream -> stream.viewers.forEach(viewer -> viewer.emitter.complete()));
+        streams.clear();
+    }
+
+    // tests swap in emitters that stall like a slow client
+    SseEmitter newEmitter() {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    private SeatMapSnapshotDTO snapshot(ShowtimeSeatMap seatMap, SeatLayout layout, long version) {
+        List<SeatDTO> seats = new ArrayList<>(seatMap.getSeatCount());
+        for (int position = 0; position < seatMap.getSeatCount(); position++) {
+            String seatNumber = seatMap.seatNumberAt(position);
+            Integer index = layout.indexOf(seatNumber);
+            seats.add(new SeatDTO(seatMap.seatIdAt(position), seatMap.getShowtimeId(), seatNumber,
+                    seatMap.isReserved(position),
+                    index != null ? layout.seatClassAt(index) : SeatLayout.DEFAULT_SEAT_CLASS));
+        }
+        return new SeatMapSnapshotDTO(seatMap.getShowtimeId(), version, seatMap.getAvailableSeats(), seats);
+    }
+
+    // never blocks - a full queue means the client stopped reading, so it's dropped instead of waited on
+    // (event builders aren't shared between viewers, building one for sending changes it)
+    private void enqueue(ShowtimeSeatStream stream, Viewer viewer, SseEventBuilder event) {
+        if (viewer.closed) {
+            return;
+        }
+        if (!viewer.outbound.offer(event)) {
+            log.debug("Seat stream viewer of showtime id: {} is {} events behind, dropping it",
+                    stream.showtimeId, queueCapacity);
+            viewer.outbound.clear();
+            remove(stream, viewer);
+        }
+        scheduleDrain(stream, viewer);
+    }
+
+    private void scheduleDrain(ShowtimeSeatStream stream, Viewer viewer) {
+        if (viewer.draining.compareAndSet(false, true)) {
+            try {
+                sender.execute(() -> drain(stream, viewer));
+            } catch (RejectedExecutionException e) {
+                viewer.draining.set(false); // shutting down
+            }
+        }
+    }
+
+    // runs on a sender thread, never twice at once for the same viewer - so its events go out in order
+    private void drain(ShowtimeSeatStream stream, Viewer viewer) {
+        SseEventBuilder event;
+        while (!viewer.closed && (event = viewer.outbound.poll()) != null) {
+            try {
+                viewer.emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                // client went away
+                remove(stream, viewer);
+            }
+        }
+        if (viewer.closed && !viewer.completed) {
+            viewer.completed = true;
+            viewer.emitter.complete(); // here rather than in enqueue, this can wait on a write that's still going
+        }
+        viewer.draining.set(false);
+        // something got queued (or the viewer got closed) between the last poll and here
+        if (!viewer.outbound.isEmpty() || (viewer.closed && !viewer.completed)) {
+            scheduleDrain(stream, viewer);
+        }
+    }
+
+    private void remove(ShowtimeSeatStream stream, Viewer viewer) {
+        viewer.closed = true;
+        synchronized (stream) {
+            if (stream.viewers.remove(viewer)) {
+                log.debug("Seat stream viewer left showtime id: {}", stream.showtimeId);
+            }
+            // last one out drops the stream; a new viewer just creates a fresh one
+            // (under the same lock as the join in subscribe so nobody ends up in a dropped stream)
+            if (stream.viewers.isEmpty() && !stream.dropped) {
+                stream.dropped = true;
+                streams.remove(stream.showtimeId, stream);
+            }
+        }
+    }
+
+    // viewers of one showtime - version, joins and leaves are guarded by the stream's lock
+    private static final class ShowtimeSeatStream {
+        private final Long showtimeId;
+        private final List<Viewer> viewers = new CopyOnWriteArrayList<>();
+        private long version;
+        private boolean dropped;
+
+        ShowtimeSeatStream(Long showtimeId) {
+            this.showtimeId = showtimeId;
+        }
+    }
+
+    // one connected client and the events it hasn't been sent yet
+    private static final class Viewer {
+        private final SseEmitter emitter;
+        private final BlockingQueue<SseEventBuilder> outbound;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private volatile boolean closed;
+        private volatile boolean completed; // only set by the (single) drain
+
+        Viewer(SseEmitter emitter, int queueCapacity) {
+            this.emitter = emitter;
+            this.outbound = new ArrayBlockingQueue<>(queueCapacity);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package in.lakshay.service;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// in-memory seat availability for one showtime
+// one bit per seat position (1 = reserved), claimed/released with CAS so buyers never block each other
+// built by SeatAvailabilityEngine from the seats table - the db stays the source of truth
+public final class ShowtimeSeatMap {
+    private final Long showtimeId;
+    private final int seatCount;
+    private final AtomicLongArray words; // 64 seats per long
+    private final AtomicInteger reservedCount = new AtomicInteger();
+
+    // (generation, version) identifies a seat state, used for seat map ETags
+    // generation is unique per loaded map (seeded with the clock so it doesn't repeat after a restart),
+    // version goes up on every bit flip
+    private static final AtomicLong GENERATIONS = new AtomicLong(System.currentTimeMillis());
+    private final long generation = GENERATIONS.incrementAndGet();
+    private final AtomicLong version = new AtomicLong();
+
+    private final Long[] seatIds; // position -> seat id (null for virtual seats without a row)
+    private final String[] seatNumbers; // position -> label like "A1"
+    private final Map<Long, Integer> positionBySeatId; // seat id -> position
+    private final Map<String, Integer> positionBySeatNumber; // label -> position
+
+    ShowtimeSeatMap(Long showtimeId, List<Long> seatIds, List<String> seatNumbers, List<Boolean> reserved) {
+        this.showtimeId = showtimeId;
+        this.seatCount = seatIds.size();
+        this.words = new AtomicLongArray(Math.max(1, (seatCount + 63) >>> 6));
+        this.seatIds = seatIds.toArray(new Long[0]);
+        this.seatNumbers = seatNumbers.toArray(new String[0]);
+
+        Map<Long, Integer> positions = new HashMap<>(seatCount * 2);
+        Map<String, Integer> numberPositions = new HashMap<>(seatCount * 2);
+        for (int i = 0; i < seatCount; i++) {
+            if (this.seatIds[i] != null) {
+                positions.put(this.seatIds[i], i);
+            }
+            numberPositions.put(this.seatNumbers[i], i);
+            if (Boolean.TRUE.equals(reserved.get(i))) {
+                setBit(i);
+            }
+        }
+        this.positionBySeatId = Collections.unmodifiableMap(positions);
+        this.positionBySeatNumber = Collections.unmodifiableMap(numberPositions);
+    }
+
+    public Long getShowtimeId() {
+        return showtimeId;
+    }
+
+    public int getSeatCount() {
+        return seatCount;
+    }
+
+    // derived from the bitset - no read-modify-write on showtimes.available_seats
+    public int getAvailableSeats() {
+        return seatCount - reservedCount.get();
+    }
+
+    public long getGeneration() {
+        return generation;
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    // null if the seat isn't part of this showtime
+    public Integer positionOf(Long seatId) {
+        return positionBySeatId.get(seatId);
+    }
+
+    // null if there's no such seat label in this showtime
+    public Integer positionOf(String seatNumber) {
+        return positionBySeatNumber.get(seatNumber);
+    }
+
+    public Long seatIdAt(int position) {
+        return seatIds[position];
+    }
+
+    public String seatNumberAt(int position) {
+        return seatNumbers[position];
+    }
+
+    public boolean isReserved(int position) {
+        return (words.get(position >>> 6) & (1L << position)) != 0;
+    }
+
+    // reserved bits of positions from..from+length-1 (length <= 64), bit 0 = position from
+    // not an atomic snapshot across the two words, good enough for picking seats to try
+    public long reservedBits(int from, int length) {
+        int index = from >>> 6;
+        int offset = from & 63;
+        long bits = words.get(index) >>> offset;
+        if (offset + length > 64 && index + 1 < words.length()) {
+            bits |= words.get(index + 1) << (64 - offset);
+        }
+        return length == 64 ? bits : bits & ((1L << length) - 1);
+    }
+
+    // all-or-nothing claim - if any seat is already taken the ones we set are rolled back
+    // another buyer can briefly see our half-done claim and fail, which is fine (they'd have conflicted anyway)
+    public boolean tryClaim(int[] positions) {
+        for (int i = 0; i < positions.length; i++) {
+            if (!setBit(positions[i])) {
+                for (int j = 0; j < i; j++) {
+                    clearBit(positions[j]); // undo partial claim
+                }
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void release(int[] positions) {
+        for (int position : positions) {
+            clearBit(position);
+        }
+    }
+
+    // seat labels of the given positions that are currently reserved - for error msgs
+    public List<String> reservedSeatNumbers(int[] positions) {
+        List<String> taken = new ArrayList<>();
+        for (int position : positions) {
+            if (isReserved(position)) {
+                taken.add(seatNumbers[position]);
+            }
+        }
+        return taken;
+    }
+
+    // returns false if the bit was already set
+    private boolean setBit(int position) {
+        int index = position >>> 6;
+        long mask = 1L << position; // java only uses the low 6 bits of the shift
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) != 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current | mask)) {
+                reservedCount.incrementAndGet();
+                version.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    // returns false if the bit was already clear
+    private boolean clearBit(int position) {
+        int index = position >>> 6;
+        long mask = 1L << position;
+        while (true) {
+            long current = words.get(index);
+            if ((current & mask) == 0) {
+                return false;
+            }
+            if (words.compareAndSet(index, current, current & ~mask)) {
+                reservedCount.decrementAndGet();
+                version.incrementAndGet();
+                return true;
+            }
+        }
+    }
+}
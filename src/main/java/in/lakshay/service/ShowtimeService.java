@@ -7,6 +7,7 @@ import in.lakshay.entity.Showtime;
 import in.lakshay.entity.Theater;
 import in.lakshay.exception.ResourceNotFoundException;
 import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.SeatBulkRepository;
 import in.lakshay.repo.SeatRepository;
 import in.lakshay.repo.ShowtimeRepository;
 import in.lakshay.repo.TheaterRepository;
@@ -19,7 +20,6 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -32,16 +32,23 @@ public class ShowtimeService {
     private final MovieRepository movieRepository; // movie data
     private final TheaterRepository theaterRepository; // theater data
     private final SeatRepository seatRepository; // seat data
+    private final SeatBulkRepository seatBulkRepository; // batched seat inserts
+    private final SeatAvailabilityEngine seatAvailabilityEngine; // in-memory seat maps
+    private final SeatLayoutService seatLayoutService; // theater layouts
     private final ModelMapper modelMapper; // for dto conversion
 
     @Autowired // constructor injection
     public ShowtimeService(ShowtimeRepository showtimeRepository, MovieRepository movieRepository,
                           TheaterRepository theaterRepository, SeatRepository seatRepository,
-                          ModelMapper modelMapper) {
+                          SeatBulkRepository seatBulkRepository, SeatAvailabilityEngine seatAvailabilityEngine,
+                          SeatLayoutService seatLayoutService, ModelMapper modelMapper) {
         this.showtimeRepository = showtimeRepository;
         this.movieRepository = movieRepository;
         this.theaterRepository = theaterRepository;
         this.seatRepository = seatRepository;
+        this.seatBulkRepository = seatBulkRepository;
+        this.seatAvailabilityEngine = seatAvailabilityEngine;
+        this.seatLayoutService = seatLayoutService;
         this.modelMapper = modelMapper;
     }
 
@@ -126,25 +133,28 @@ public class ShowtimeService {
             throw new IllegalArgumentException("Total seats cannot exceed theater capacity of " + theater.getCapacity());
         }
 
+        // seats come from the theater's (cached) layout
+        // virtual seats use all of it, otherwise the first totalSeats seats get rows
+        List<String> layoutSeatNumbers = seatLayoutService.seatNumbersFor(theater);
+        if (seatLayoutService.isVirtualMode() || showtime.getTotalSeats() > layoutSeatNumbers.size()) {
+            showtime.setTotalSeats(layoutSeatNumbers.size());
+        }
+
         // all seats available at first
         showtime.setAvailableSeats(showtime.getTotalSeats());
 
         Showtime savedShowtime = showtimeRepository.save(showtime);
         log.info("Saved showtime with ID: {}", savedShowtime.getId());
 
-        // now create all the individual seats
-        List<Seat> seats = new ArrayList<>();
-        for (int i = 1; i <= showtime.getTotalSeats(); i++) {
-            Seat seat = new Seat();
-            seat.setShowtime(savedShowtime);
-            // create seat numbers like A1, A2...A9, B1, B2 etc
-            seat.setSeatNumber(String.format("%c%d", 'A' + ((i-1) / 10), ((i-1) % 10) + 1));
-            seat.setIsReserved(false); // not reserved yet
-            seats.add(seat);
+        if (seatLayoutService.isVirtualMode()) {
+            return mapToDTO(savedShowtime); // no seat rows until someone books
         }
 
-        seatRepository.saveAll(seats); // batch insert
-        log.info("Created {} seats for showtime ID: {}", seats.size(), savedShowtime.getId());
+        // now create all the individual seats
+        List<String> seatNumbers = layoutSeatNumbers.subList(0, showtime.getTotalSeats());
+        int inserted = seatBulkRepository.insertSeats(savedShowtime.getId(), seatNumbers); // multi-row inserts
+        seatAvailabilityEngine.evict(savedShowtime.getId()); // just in case something cached an empty map
+        log.info("Created {} seats for showtime ID: {}", inserted, savedShowtime.getId());
 
         return mapToDTO(savedShowtime); // return as dto
     }
@@ -210,6 +220,7 @@ public class ShowtimeService {
         }
 
         showtimeRepository.delete(showtime); // now delete the showtime
+        seatAvailabilityEngine.evict(id); // drop the in-memory seat map too
         log.info("Deleted showtime with ID: {}", id);
     }
 
@@ -1,11 +1,11 @@
 package in.lakshay.service;
 
+import in.lakshay.dto.SeatLayoutSpec;
 import in.lakshay.dto.TheaterDTO;
 import in.lakshay.entity.Theater;
 import in.lakshay.exception.ResourceNotFoundException;
 import in.lakshay.repo.TheaterRepository;
 import lombok.extern.slf4j.Slf4j;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,19 +19,19 @@ import java.util.stream.Collectors;
 @Slf4j // for logging
 public class TheaterService {
     private final TheaterRepository theaterRepository; // data access
-    private final ModelMapper modelMapper; // for dto conversion
+    private final SeatLayoutService seatLayoutService; // layout json <-> spec
 
     @Autowired // constructor injection
-    public TheaterService(TheaterRepository theaterRepository, ModelMapper modelMapper) {
+    public TheaterService(TheaterRepository theaterRepository, SeatLayoutService seatLayoutService) {
         this.theaterRepository = theaterRepository;
-        this.modelMapper = modelMapper;
+        this.seatLayoutService = seatLayoutService;
     }
 
     // get all theaters in the system
     public List<TheaterDTO> getAllTheaters() {
         log.info("Fetching all theaters");
         return theaterRepository.findAll().stream()
-                .map(theater -> modelMapper.map(theater, TheaterDTO.class))
+                .map(theater -> mapToDTO(theater))
                 .collect(Collectors.toList()); // convert to list
     }
 
@@ -40,29 +40,42 @@ public class TheaterService {
         log.info("Fetching theater with id: {}", id);
         Theater theater = theaterRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Theater not found with id: " + id));
-        return modelMapper.map(theater, TheaterDTO.class); // convert to dto
+        return mapToDTO(theater); // convert to dto
     }
 
     // search theaters by location (case insensitive)
     public List<TheaterDTO> getTheatersByLocation(String location) {
         log.info("Fetching theaters by location: {}", location);
         return theaterRepository.findByLocationContainingIgnoreCase(location).stream()
-                .map(theater -> modelMapper.map(theater, TheaterDTO.class))
+                .map(theater -> mapToDTO(theater))
                 .collect(Collectors.toList()); // to list
     }
 
     // create new theater
     @Transactional
     public TheaterDTO addTheater(Theater theater) {
+        return addTheater(theater, null);
+    }
+
+    // create new theater with an optional seat layout
+    @Transactional
+    public TheaterDTO addTheater(Theater theater, SeatLayoutSpec seatLayout) {
         log.info("Adding new theater: {}", theater.getName());
+        applySeatLayout(theater, seatLayout);
         Theater savedTheater = theaterRepository.save(theater); // do the insert
         log.info("Theater saved with ID: {}", savedTheater.getId());
-        return modelMapper.map(savedTheater, TheaterDTO.class); // back to dto
+        return mapToDTO(savedTheater); // back to dto
     }
 
     // update existing theater
     @Transactional
     public TheaterDTO updateTheater(Long id, Theater theaterDetails) {
+        return updateTheater(id, theaterDetails, null);
+    }
+
+    // update existing theater - a null layout keeps the current one
+    @Transactional
+    public TheaterDTO updateTheater(Long id, Theater theaterDetails, SeatLayoutSpec seatLayout) {
         log.info("Updating theater with id: {}", id);
         Theater theater = theaterRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Theater not found with id: " + id));
@@ -71,9 +84,10 @@ public class TheaterService {
         theater.setName(theaterDetails.getName());
         theater.setLocation(theaterDetails.getLocation());
         theater.setCapacity(theaterDetails.getCapacity());
+        applySeatLayout(theater, seatLayout);
 
         Theater updatedTheater = theaterRepository.save(theater); // save changes
-        return modelMapper.map(updatedTheater, TheaterDTO.class); // convert to dto
+        return mapToDTO(updatedTheater); // convert to dto
     }
 
     // delete a theater if it has no showtimes
@@ -92,4 +106,27 @@ public class TheaterService {
         theaterRepository.delete(theater); // bye bye theater
         log.info("Theater with id: {} deleted successfully", id);
     }
+
+    // stores the layout (if any) and makes capacity match it
+    // the compiled layout is cached by SeatLayoutService and picks up the change on its own
+    private void applySeatLayout(Theater theater, SeatLayoutSpec seatLayout) {
+        if (seatLayout != null) {
+            theater.setSeatLayout(seatLayoutService.toJson(seatLayout));
+        }
+        if (theater.getSeatLayout() != null) {
+            int seats = seatLayoutService.validate(seatLayoutService.parse(theater.getSeatLayout()));
+            theater.setCapacity(seats); // layout decides how many seats there are
+        }
+    }
+
+    // manual mapping - ModelMapper can't turn the layout json into a spec
+    private TheaterDTO mapToDTO(Theater theater) {
+        TheaterDTO dto = new TheaterDTO();
+        dto.setId(theater.getId());
+        dto.setName(theater.getName());
+        dto.setLocation(theater.getLocation());
+        dto.setCapacity(theater.getCapacity());
+        dto.setSeatLayout(seatLayoutService.parse(theater.getSeatLayout()));
+        return dto;
+    }
 }
@@ -0,0 +1,31 @@
+package in.lakshay.util;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Locale;
+
+// sha-256 of text with case, punctuation and spacing normalized away
+// so "Great movie!!" and "great   movie" hash the same
+public final class ContentHash {
+    private ContentHash() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    // null for null text
+    public static String of(String text) {
+        if (text == null) {
+            return null;
+        }
+        String normalized = text.toLowerCase(Locale.ROOT)
+                .replaceAll("[^\\p{L}\\p{N}]+", " ") // anything that's not a letter/digit -> one space
+                .trim();
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(normalized.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e); // every jvm has it
+        }
+    }
+}
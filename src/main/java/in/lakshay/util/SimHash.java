@@ -0,0 +1,60 @@
+package in.lakshay.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+// 64-bit simhash of a text - similar texts get signatures that differ in only a few bits
+// features are the words themselves: swapping a word or two in a ~30 word review moves ~4-7 bits,
+// unrelated texts are ~32 bits apart
+public final class SimHash {
+    private SimHash() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static long of(String text) {
+        return of(TextTokenizer.tokenize(text));
+    }
+
+    public static long of(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return 0L;
+        }
+        int[] weights = new int[64];
+        for (String token : tokens) {
+            addFeature(weights, hash(token)); // repeated words count more
+        }
+
+        long signature = 0L;
+        for (int bit = 0; bit < 64; bit++) {
+            if (weights[bit] > 0) {
+                signature |= 1L << bit;
+            }
+        }
+        return signature;
+    }
+
+    public static int distance(long a, long b) {
+        return Long.bitCount(a ^ b);
+    }
+
+    private static void addFeature(int[] weights, long featureHash) {
+        for (int bit = 0; bit < 64; bit++) {
+            weights[bit] += ((featureHash >>> bit) & 1L) != 0 ? 1 : -1;
+        }
+    }
+
+    // fnv-1a over the utf-8 bytes, then murmur3's finalizer so every input bit affects every output bit
+    private static long hash(String feature) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : feature.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xff;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
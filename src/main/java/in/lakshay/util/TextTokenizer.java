@@ -0,0 +1,37 @@
+package in.lakshay.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+// splits text into lowercase words (letters/digits), everything else is a separator
+// shared by the review signature/search code so they all agree on what a "word" is
+public final class TextTokenizer {
+    private TextTokenizer() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        if (text == null) {
+            return tokens;
+        }
+        String lower = text.toLowerCase(Locale.ROOT);
+        int start = -1;
+        for (int i = 0; i < lower.length(); ) {
+            int codePoint = lower.codePointAt(i);
+            boolean wordChar = Character.isLetterOrDigit(codePoint);
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(lower.substring(start, i));
+                start = -1;
+            }
+            i += Character.charCount(codePoint);
+        }
+        if (start >= 0) {
+            tokens.add(lower.substring(start));
+        }
+        return tokens;
+    }
+}
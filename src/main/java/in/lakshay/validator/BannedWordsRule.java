@@ -0,0 +1,37 @@
+package in.lakshay.validator;
+
+import in.lakshay.entity.Review;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// flags reviews containing any of the configured words (whole words, ignoring case)
+@Component
+public class BannedWordsRule implements ReviewModerationRule {
+    private final Set<String> bannedWords;
+
+    public BannedWordsRule(@Value("${reviews.moderation.banned-words:}") String bannedWords) {
+        this.bannedWords = Arrays.stream(bannedWords.split(","))
+                .map(word -> word.trim().toLowerCase(Locale.ROOT))
+                .filter(word -> !word.isEmpty())
+                .collect(Collectors.toUnmodifiableSet());
+    }
+
+    @Override
+    public String check(Review review) {
+        if (bannedWords.isEmpty() || review.getComment() == null) {
+            return null;
+        }
+        // one pass over the words, set lookup per word
+        for (String word : review.getComment().toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (bannedWords.contains(word)) {
+                return "Contains banned word: " + word;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package in.lakshay.validator;
+
+import in.lakshay.entity.Review;
+import in.lakshay.service.UserBlockService;
+import org.springframework.stereotype.Component;
+
+// the author got blocked by an admin after writing the review
+@Component
+public class BlockedAuthorRule implements ReviewModerationRule {
+    private final UserBlockService userBlockService;
+
+    public BlockedAuthorRule(UserBlockService userBlockService) {
+        this.userBlockService = userBlockService;
+    }
+
+    @Override
+    public String check(Review review) {
+        if (review.getUser() != null && userBlockService.isUserBlockedByAdmin(review.getUser().getId())) {
+            return "Author is blocked by an admin";
+        }
+        return null;
+    }
+}
@@ -0,0 +1,63 @@
+package in.lakshay.validator;
+
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.repo.ReviewRepository.ReviewText;
+import in.lakshay.util.ContentHash;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+// flags reviews whose text (normalized) is exactly the same as another non-rejected review
+// an indexed lookup on reviews.content_hash; short comments like "great movie" are allowed to repeat
+// reviews from before the column existed are hashed on startup, otherwise new copies of them would slip through
+@Component
+@Slf4j
+public class DuplicateTextRule implements ReviewModerationRule {
+    private static final int BACKFILL_BATCH_SIZE = 1000;
+
+    private final ReviewRepository reviewRepository;
+    private final int minLength;
+
+    public DuplicateTextRule(ReviewRepository reviewRepository,
+                             @Value("${reviews.moderation.duplicate-min-length:40}") int minLength) {
+        this.reviewRepository = reviewRepository;
+        this.minLength = minLength;
+    }
+
+    @Override
+    public String check(Review review) {
+        if (review.getComment() == null || review.getComment().length() < minLength) {
+            return null;
+        }
+        String hash = review.getContentHash() != null ? review.getContentHash() : ContentHash.of(review.getComment());
+        if (reviewRepository.existsByContentHashAndIdNotAndStatusNot(hash, review.getId(), ReviewStatus.REJECTED)) {
+            return "Same text as another review";
+        }
+        return null;
+    }
+
+    // hash the reviews that don't have a content hash yet, a page at a time
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfill() {
+        int hashed = 0;
+        List<ReviewText> unhashed;
+        Long afterId = 0L;
+        while (!(unhashed = reviewRepository.findUnhashed(afterId, PageRequest.of(0, BACKFILL_BATCH_SIZE))).isEmpty()) {
+            for (ReviewText review : unhashed) {
+                reviewRepository.updateContentHash(review.getId(), ContentHash.of(review.getComment()));
+                hashed++;
+            }
+            afterId = unhashed.get(unhashed.size() - 1).getId();
+        }
+        if (hashed > 0) {
+            log.info("Backfilled content hashes for {} reviews", hashed);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package in.lakshay.validator;
+
+import in.lakshay.entity.Review;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// flags reviews with more links than a movie review needs - usually spam
+@Component
+public class LinkSpamRule implements ReviewModerationRule {
+    private static final Pattern LINK = Pattern.compile("(?i)\\b(?:https?://|www\\.)\\S+");
+
+    private final int maxLinks;
+
+    public LinkSpamRule(@Value("${reviews.moderation.max-links:1}") int maxLinks) {
+        this.maxLinks = maxLinks;
+    }
+
+    @Override
+    public String check(Review review) {
+        if (review.getComment() == null) {
+            return null;
+        }
+        Matcher matcher = LINK.matcher(review.getComment());
+        int links = 0;
+        while (matcher.find()) {
+            if (++links > maxLinks) {
+                return "Too many links (more than " + maxLinks + ")";
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,10 @@
+package in.lakshay.validator;
+
+import in.lakshay.entity.Review;
+
+// one automatic moderation check - every @Component implementing this is run on new/edited reviews
+// by ReviewModerationService, off the request thread, so checks are allowed to be slow
+public interface ReviewModerationRule {
+    // null if the review is fine, otherwise a short reason shown to admins
+    String check(Review review);
+}
@@ -53,6 +53,11 @@ INSERT INTO theaters (id, name, location, capacity)
 SELECT 3, 'FilmHouse', 'Westside', 100 -- small indie theater
 WHERE NOT EXISTS (SELECT 1 FROM theaters WHERE id = 3);
 
+-- seat layouts for the sample theaters (FilmHouse uses the default grid)
+-- only set if nobody has changed them through the api
+UPDATE theaters SET seat_layout = '{"rows":15,"seatsPerRow":10}' WHERE id = 1 AND seat_layout IS NULL;
+UPDATE theaters SET seat_layout = '{"rows":10,"seatsPerRow":20}' WHERE id = 2 AND seat_layout IS NULL;
+
 -- fix auto-increment so new theaters start at id=4
 ALTER TABLE theaters AUTO_INCREMENT = 4;
 
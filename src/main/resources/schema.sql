@@ -46,9 +46,19 @@ CREATE TABLE IF NOT EXISTS theaters (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
     name VARCHAR(255) NOT NULL,
     location VARCHAR(255),
-    capacity INT NOT NULL
+    capacity INT NOT NULL,
+    seat_layout TEXT -- SeatLayoutSpec json, null = default grid
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
+-- add seat_layout to theaters tables created before it existed
+-- mysql has no ADD COLUMN IF NOT EXISTS so check information_schema first
+SET @has_col = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'theaters' AND column_name = 'seat_layout');
+SET @ddl = IF(@has_col = 0, 'ALTER TABLE theaters ADD COLUMN seat_layout TEXT', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
 -- Create showtimes table if it doesn't exist
 CREATE TABLE IF NOT EXISTS showtimes (
     id BIGINT AUTO_INCREMENT PRIMARY KEY,
@@ -102,9 +112,137 @@ CREATE TABLE IF NOT EXISTS reviews (
     downvotes INT DEFAULT 0, -- counter cache
     helpful_tags VARCHAR(255), -- comma-separated tags like 'funny,insightful'
     status VARCHAR(20) DEFAULT 'APPROVED', -- or PENDING, REJECTED
+    helpful_score INT AS (COALESCE(upvotes, 0) - COALESCE(downvotes, 0)) STORED, -- for the "top" sort
+    moderation_note VARCHAR(255), -- why the automatic checks flagged it
+    content_hash CHAR(64), -- sha-256 of the normalized comment, for the duplicate check
+    simhash BIGINT, -- similarity signature for near-duplicate detection, 0 = comment too short
     FOREIGN KEY (user_id) REFERENCES users(id),
+    FOREIGN KEY (movie_id) REFERENCES movies(id),
+    -- keyset pagination: one index per sort order, (movie_id, status, sort key, id)
+    INDEX idx_reviews_movie_status_created (movie_id, status, created_at, id),
+    INDEX idx_reviews_movie_status_score (movie_id, status, helpful_score, id),
+    INDEX idx_reviews_movie_status_rating (movie_id, status, rating, id),
+    INDEX idx_reviews_content_hash (content_hash),
+    INDEX idx_reviews_status_updated (status, updated_at, id), -- moderation queue / sweep
+    INDEX idx_reviews_updated (updated_at) -- search index catch-up
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- same column + indexes for reviews tables created before they existed
+SET @has_col = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND column_name = 'helpful_score');
+SET @ddl = IF(@has_col = 0,
+    'ALTER TABLE reviews ADD COLUMN helpful_score INT AS (COALESCE(upvotes, 0) - COALESCE(downvotes, 0)) STORED',
+    'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_idx = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND index_name = 'idx_reviews_movie_status_created');
+SET @ddl = IF(@has_idx = 0, 'CREATE INDEX idx_reviews_movie_status_created ON reviews (movie_id, status, created_at, id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_idx = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND index_name = 'idx_reviews_movie_status_score');
+SET @ddl = IF(@has_idx = 0, 'CREATE INDEX idx_reviews_movie_status_score ON reviews (movie_id, status, helpful_score, id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_idx = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND index_name = 'idx_reviews_movie_status_rating');
+SET @ddl = IF(@has_idx = 0, 'CREATE INDEX idx_reviews_movie_status_rating ON reviews (movie_id, status, rating, id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- moderation columns + indexes for older reviews tables
+SET @has_col = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND column_name = 'moderation_note');
+SET @ddl = IF(@has_col = 0, 'ALTER TABLE reviews ADD COLUMN moderation_note VARCHAR(255)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_col = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND column_name = 'content_hash');
+SET @ddl = IF(@has_col = 0, 'ALTER TABLE reviews ADD COLUMN content_hash CHAR(64)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_col = (SELECT COUNT(*) FROM information_schema.columns
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND column_name = 'simhash');
+SET @ddl = IF(@has_col = 0, 'ALTER TABLE reviews ADD COLUMN simhash BIGINT', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_idx = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND index_name = 'idx_reviews_content_hash');
+SET @ddl = IF(@has_idx = 0, 'CREATE INDEX idx_reviews_content_hash ON reviews (content_hash)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_idx = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND index_name = 'idx_reviews_status_updated');
+SET @ddl = IF(@has_idx = 0, 'CREATE INDEX idx_reviews_status_updated ON reviews (status, updated_at, id)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+SET @has_idx = (SELECT COUNT(*) FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'reviews' AND index_name = 'idx_reviews_updated');
+SET @ddl = IF(@has_idx = 0, 'CREATE INDEX idx_reviews_updated ON reviews (updated_at)', 'SELECT 1');
+PREPARE stmt FROM @ddl;
+EXECUTE stmt;
+DEALLOCATE PREPARE stmt;
+
+-- rating aggregates per movie (approved reviews only), maintained by the app on every review write
+-- MovieRatingStatsService fills it from reviews on startup when it's empty
+CREATE TABLE IF NOT EXISTS movie_rating_stats (
+    movie_id BIGINT PRIMARY KEY,
+    review_count BIGINT NOT NULL DEFAULT 0,
+    rating_sum BIGINT NOT NULL DEFAULT 0,
+    stars_1 BIGINT NOT NULL DEFAULT 0,
+    stars_2 BIGINT NOT NULL DEFAULT 0,
+    stars_3 BIGINT NOT NULL DEFAULT 0,
+    stars_4 BIGINT NOT NULL DEFAULT 0,
+    stars_5 BIGINT NOT NULL DEFAULT 0,
     FOREIGN KEY (movie_id) REFERENCES movies(id)
-) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci; -- todo: add index on movie_id
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- review tags ("funny", "insightful"...) - one row per distinct tag
+CREATE TABLE IF NOT EXISTS tags (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    name VARCHAR(50) NOT NULL, -- lowercase
+    UNIQUE KEY uk_tags_name (name)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- which review has which tags (reviews.helpful_tags is just the display copy)
+CREATE TABLE IF NOT EXISTS review_tags (
+    review_id BIGINT NOT NULL,
+    tag_id BIGINT NOT NULL,
+    movie_id BIGINT NOT NULL, -- copy of the review's movie, so "tag x on movie y" is one index range
+    PRIMARY KEY (review_id, tag_id),
+    INDEX idx_review_tags_tag (tag_id, review_id),
+    INDEX idx_review_tags_tag_movie (tag_id, movie_id, review_id),
+    FOREIGN KEY (review_id) REFERENCES reviews(id) ON DELETE CASCADE,
+    FOREIGN KEY (tag_id) REFERENCES tags(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- approved reviews per movie and tag, kept up to date by ReviewTagService
+CREATE TABLE IF NOT EXISTS movie_tag_counts (
+    movie_id BIGINT NOT NULL,
+    tag_id BIGINT NOT NULL,
+    review_count BIGINT NOT NULL DEFAULT 0,
+    PRIMARY KEY (movie_id, tag_id),
+    FOREIGN KEY (movie_id) REFERENCES movies(id) ON DELETE CASCADE,
+    FOREIGN KEY (tag_id) REFERENCES tags(id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
 
 -- Create review_votes table if it doesn't exist
 CREATE TABLE IF NOT EXISTS review_votes (
@@ -144,3 +282,19 @@ CREATE TABLE IF NOT EXISTS payments (
     updated_at TIMESTAMP NULL DEFAULT NULL,
     FOREIGN KEY (reservation_id) REFERENCES reservations(id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
+
+-- Create idempotency_keys table if it doesn't exist
+-- stored results of requests sent with an Idempotency-Key header (reservations, checkout sessions)
+CREATE TABLE IF NOT EXISTS idempotency_keys (
+    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+    idempotency_key VARCHAR(255) NOT NULL,
+    username VARCHAR(255) NOT NULL,
+    operation VARCHAR(50) NOT NULL,
+    request_hash CHAR(64) NOT NULL,
+    status VARCHAR(20) NOT NULL,
+    response_body TEXT,
+    created_at DATETIME NOT NULL,
+    expires_at DATETIME NOT NULL,
+    UNIQUE KEY unique_idempotency_key (username, operation, idempotency_key),
+    INDEX idx_idempotency_expires (expires_at) -- for the cleanup job
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_0900_ai_ci;
@@ -0,0 +1,98 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.MovieCardDTO;
+import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.MovieRepository.MovieCard;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.modelmapper.ModelMapper;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class MovieServiceTest {
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private MovieRatingStatsService movieRatingStatsService;
+
+    @Mock
+    private ReviewTagService reviewTagService;
+
+    @Mock
+    private MovieSearchService movieSearchService;
+
+    @Mock
+    private MovieSuggestService movieSuggestService;
+
+    @Mock
+    private MovieFacetService movieFacetService;
+
+    private MovieService movieService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        movieService = new MovieService(movieRepository, new ModelMapper(), movieRatingStatsService, reviewTagService,
+                movieSearchService, movieSuggestService, movieFacetService);
+    }
+
+    @Test
+    void testListingHydratesOnlyThePageInPageOrder() {
+        Pageable pageable = PageRequest.of(0, 3);
+        when(movieRepository.findAllIds(pageable)).thenReturn(new PageImpl<>(List.of(3L, 1L, 2L), pageable, 500));
+        List<MovieCard> cards = List.of(card(1L, 4L, 14L), card(2L, null, null), card(3L, 2L, 10L)); // stubbed before the when() below
+        when(movieRepository.findCardsByIdIn(any())).thenReturn(cards);
+
+        Page<MovieCardDTO> page = movieService.findAllMovies(pageable);
+
+        assertEquals(List.of(3L, 1L, 2L), page.getContent().stream().map(MovieCardDTO::getId).toList());
+        assertEquals(500, page.getTotalElements());
+        assertEquals(5.0, page.getContent().get(0).getAverageRating());
+        assertEquals(3.5, page.getContent().get(1).getAverageRating());
+        assertNull(page.getContent().get(2).getAverageRating()); // no approved reviews yet
+        assertEquals(0, page.getContent().get(2).getReviewCount());
+        verify(movieRepository).findCardsByIdIn(List.of(3L, 1L, 2L));
+        verify(movieRepository, never()).findAll();
+        verifyNoInteractions(movieRatingStatsService); // stats come with the cards
+    }
+
+    // a paged query that fetch-joins a collection makes hibernate load every row and page in memory (HHH000104)
+    @Test
+    void testPagedQueriesDoNotFetchJoin() {
+        for (Method method : MovieRepository.class.getDeclaredMethods()) {
+            Query query = method.getAnnotation(Query.class);
+            boolean paged = Arrays.asList(method.getParameterTypes()).contains(Pageable.class);
+            if (paged && query != null) {
+                assertFalse(query.value().toUpperCase(Locale.ROOT).contains("FETCH"),
+                        method.getName() + " pages in memory - page the ids, then fetch by id");
+            }
+        }
+    }
+
+    private MovieCard card(Long id, Long reviewCount, Long ratingSum) {
+        MovieCard card = mock(MovieCard.class);
+        when(card.getId()).thenReturn(id);
+        when(card.getTitle()).thenReturn("movie " + id);
+        when(card.getGenre()).thenReturn("Drama");
+        when(card.getReleaseYear()).thenReturn(2020);
+        when(card.getReviewCount()).thenReturn(reviewCount);
+        when(card.getRatingSum()).thenReturn(ratingSum);
+        return card;
+    }
+}
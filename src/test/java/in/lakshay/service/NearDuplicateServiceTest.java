@@ -0,0 +1,113 @@
+package in.lakshay.service;
+
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.util.SimHash;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+
+class NearDuplicateServiceTest {
+
+    private static final int MAX_DISTANCE = 6;
+
+    private final NearDuplicateService service = new NearDuplicateService(mock(ReviewRepository.class), MAX_DISTANCE, 8);
+    private final Random random = new Random(42);
+    private long nextId = 1;
+
+    // way more signatures than the 256 buckets of an 8-bit band can hold at a few hundred each -
+    // the planted copies still have to come out as clusters, and nothing else may
+    @Test
+    void testClustersAreFoundAmongManySignatures() {
+        for (int i = 0; i < 150_000; i++) {
+            index(random.nextLong());
+        }
+        Set<List<Long>> planted = new HashSet<>();
+        for (int i = 0; i < 300; i++) {
+            planted.add(plantCluster());
+        }
+
+        service.refreshClusters();
+
+        assertEquals(planted, new HashSet<>(service.findClusters(Integer.MAX_VALUE)));
+    }
+
+    // same answer as comparing every pair
+    @Test
+    void testClustersMatchBruteForce() {
+        Map<Long, Long> signatures = new HashMap<>();
+        for (int i = 0; i < 500; i++) {
+            long base = random.nextLong();
+            for (int copy = random.nextInt(3); copy >= 0; copy--) {
+                long signature = flipBits(base, random.nextInt(MAX_DISTANCE + 3)); // some copies are too far off
+                signatures.put(index(signature), signature);
+            }
+        }
+
+        service.refreshClusters();
+
+        List<Long> ids = new ArrayList<>(signatures.keySet());
+        Map<Long, Long> group = new HashMap<>();
+        ids.forEach(id -> group.put(id, id));
+        for (int i = 0; i < ids.size(); i++) {
+            for (int j = i + 1; j < ids.size(); j++) {
+                if (SimHash.distance(signatures.get(ids.get(i)), signatures.get(ids.get(j))) <= MAX_DISTANCE) {
+                    merge(group, ids.get(i), ids.get(j));
+                }
+            }
+        }
+        Map<Long, List<Long>> expected = new HashMap<>();
+        ids.stream().sorted().forEach(id -> expected.computeIfAbsent(root(group, id), r -> new ArrayList<>()).add(id));
+        expected.values().removeIf(cluster -> cluster.size() < 2);
+
+        assertFalse(expected.isEmpty());
+        assertEquals(new HashSet<>(expected.values()), new HashSet<>(service.findClusters(Integer.MAX_VALUE)));
+    }
+
+    // a base signature plus copies up to MAX_DISTANCE bits off it
+    private List<Long> plantCluster() {
+        long base = random.nextLong();
+        List<Long> cluster = new ArrayList<>();
+        cluster.add(index(base));
+        for (int copy = 1 + random.nextInt(3); copy > 0; copy--) {
+            cluster.add(index(flipBits(base, 1 + random.nextInt(MAX_DISTANCE))));
+        }
+        return cluster;
+    }
+
+    private long flipBits(long signature, int bits) {
+        Set<Integer> positions = new HashSet<>();
+        while (positions.size() < bits) {
+            positions.add(random.nextInt(64));
+        }
+        for (int position : positions) {
+            signature ^= 1L << position;
+        }
+        return signature;
+    }
+
+    private long index(long signature) {
+        long id = nextId++;
+        service.indexAfterCommit(id, signature == NearDuplicateService.NO_SIGNATURE ? 1L : signature);
+        return id;
+    }
+
+    private static void merge(Map<Long, Long> group, Long a, Long b) {
+        group.put(root(group, a), root(group, b));
+    }
+
+    private static Long root(Map<Long, Long> group, Long id) {
+        while (!group.get(id).equals(id)) {
+            id = group.get(id);
+        }
+        return id;
+    }
+}
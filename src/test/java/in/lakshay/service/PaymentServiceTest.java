@@ -1,6 +1,11 @@
 package in.lakshay.service;
 
 import com.itextpdf.text.DocumentException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.model.Refund;
+import com.stripe.model.checkout.Session;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.RefundCreateParams;
 import in.lakshay.dto.CheckoutSessionDTO;
 import in.lakshay.entity.Payment;
 import in.lakshay.entity.Reservation;
@@ -14,16 +19,19 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.MockedStatic;
 import org.mockito.MockitoAnnotations;
 import org.modelmapper.ModelMapper;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
 import java.util.ArrayList;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
@@ -45,6 +53,9 @@ class PaymentServiceTest {
     @Mock
     private EmailService emailService;
 
+    @Mock
+    private SeatHoldService seatHoldService;
+
     @InjectMocks
     private PaymentService paymentService;
 
@@ -129,6 +140,75 @@ class PaymentServiceTest {
         verify(paymentRepository).save(any(Payment.class));
     }
 
+    // money that arrives after the hold was canceled goes back through stripe, not left PENDING/SUCCEEDED
+    @Test
+    void testLatePaymentIsRefunded() throws Exception {
+        Payment payment = latePayment();
+        Session session = mock(Session.class);
+        when(session.getPaymentIntent()).thenReturn("pi_late");
+
+        try (MockedStatic<Session> sessions = mockStatic(Session.class);
+             MockedStatic<Refund> refunds = mockStatic(Refund.class)) {
+            sessions.when(() -> Session.retrieve("cs_late")).thenReturn(session);
+
+            paymentService.updateReservationStatus(payment.getReservation());
+
+            refunds.verify(() -> Refund.create(argThat((RefundCreateParams params) -> "pi_late".equals(params.getPaymentIntent())),
+                    any(RequestOptions.class)));
+        }
+        assertEquals(Payment.PaymentStatus.REFUNDED, payment.getStatus());
+        verify(paymentRepository).save(payment);
+        verify(seatHoldService, never()).release(anyLong());
+        verify(pdfService, never()).generateReceipt(any(Payment.class));
+    }
+
+    // stripe unreachable - staff have to refund it
+    @Test
+    void testLatePaymentIsMarkedRefundNeededWhenTheRefundFails() throws Exception {
+        Payment payment = latePayment();
+
+        try (MockedStatic<Session> sessions = mockStatic(Session.class)) {
+            sessions.when(() -> Session.retrieve("cs_late")).thenThrow(new ApiConnectionException("stripe is down"));
+
+            paymentService.updateReservationStatus(payment.getReservation());
+        }
+        assertEquals(Payment.PaymentStatus.REFUND_NEEDED, payment.getStatus());
+        verify(paymentRepository).save(payment);
+    }
+
+    // the sweeper canceled the reservation - its open checkout is expired at stripe
+    @Test
+    void testExpireCheckoutsClosesPendingSessions() throws Exception {
+        Reservation reservation = new Reservation();
+        reservation.setId(1L);
+        Payment payment = new Payment();
+        payment.setReservation(reservation);
+        payment.setPaymentIntentId("cs_open");
+        payment.setStatus(Payment.PaymentStatus.PENDING);
+        when(paymentRepository.findForCanceledReservations(List.of(1L), Payment.PaymentStatus.PENDING)).thenReturn(List.of(payment));
+        Session session = mock(Session.class);
+
+        try (MockedStatic<Session> sessions = mockStatic(Session.class)) {
+            sessions.when(() -> Session.retrieve("cs_open")).thenReturn(session);
+
+            paymentService.expireCheckouts(List.of(1L));
+        }
+        verify(session).expire();
+        assertEquals(Payment.PaymentStatus.FAILED, payment.getStatus());
+    }
+
+    private Payment latePayment() {
+        Reservation reservation = new Reservation();
+        reservation.setId(1L);
+        Payment payment = new Payment();
+        payment.setStatus(Payment.PaymentStatus.SUCCEEDED); // what the webhook handlers set before the promote
+        payment.setPaymentIntentId("cs_late");
+        payment.setReservation(reservation);
+        when(reservationRepository.promoteToPaid(1L)).thenReturn(0);
+        when(paymentRepository.findByReservation(reservation)).thenReturn(Optional.of(payment));
+        return payment;
+    }
+
     @Test
     void testGenerateAndSendReceipt() throws DocumentException, MessagingException, IOException {
         // Setup
@@ -0,0 +1,133 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.ReviewDTO;
+import in.lakshay.entity.Movie;
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.entity.Role;
+import in.lakshay.entity.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// listing a movie's reviews against a real (h2) database, counting the jdbc statements hibernate prepares
+// every review has its own author, so fetching authors one by one (the old n+1) would show up as a growing count
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.auto_quote_keyword=true",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+        "spring.sql.init.mode=never" // schema.sql / data.sql are mysql only
+})
+class ReviewListingQueryCountTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ReviewService reviewService;
+
+    // the listing doesn't touch these, they're just ReviewService's other dependencies
+    @MockBean
+    private UserBlockService userBlockService;
+
+    @MockBean
+    private ReviewVoteBuffer reviewVoteBuffer;
+
+    @MockBean
+    private MovieRatingStatsService movieRatingStatsService;
+
+    @MockBean
+    private NearDuplicateService nearDuplicateService;
+
+    @MockBean
+    private ReviewSearchService reviewSearchService;
+
+    @MockBean
+    private ReviewTagService reviewTagService;
+
+    @Test
+    void testStatementCountDoesNotGrowWithReviewCount() {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        entityManager.persist(role);
+        user(role, "viewer");
+
+        Movie few = movie("Few reviews");
+        Movie many = movie("Many reviews");
+        addReviews(few, role, 5);
+        addReviews(many, role, 500);
+
+        long fewStatements = statementsToList(few, 5);
+        long manyStatements = statementsToList(many, 500);
+
+        assertEquals(fewStatements, manyStatements);
+    }
+
+    // prepared statements for one listing, starting from an empty persistence context like a real request
+    private long statementsToList(Movie movie, int expectedReviews) {
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        List<ReviewDTO> reviews = reviewService.getReviewsByMovie(movie.getId(), "viewer");
+
+        assertEquals(expectedReviews, reviews.size());
+        reviews.forEach(review -> assertNotNull(review.getUsername()));
+        return statistics.getPrepareStatementCount();
+    }
+
+    private void addReviews(Movie movie, Role role, int count) {
+        for (int i = 1; i <= count; i++) {
+            Review review = new Review();
+            review.setUser(user(role, movie.getTitle() + " author " + i));
+            review.setMovie(movie);
+            review.setComment("review " + i);
+            review.setRating(i % 5 + 1);
+            review.setStatus(ReviewStatus.APPROVED);
+            entityManager.persist(review);
+        }
+    }
+
+    private Movie movie(String title) {
+        Movie movie = new Movie();
+        movie.setTitle(title);
+        movie.setGenre("Drama");
+        movie.setReleaseYear(2010);
+        return entityManager.persist(movie);
+    }
+
+    private User user(Role role, String userName) {
+        User user = new User();
+        user.setUserName(userName);
+        user.setEmail(userName.replace(' ', '.') + "@example.com");
+        user.setPassword("x");
+        user.setRole(role);
+        return entityManager.persist(user);
+    }
+
+    // just the jpa layer plus ReviewService - the app class scans every component, which a slice can't filter
+    @Configuration
+    @EntityScan(basePackages = "in.lakshay.entity")
+    @EnableJpaRepositories(basePackages = "in.lakshay.repo")
+    @Import(ReviewService.class)
+    static class Config {
+    }
+}
@@ -0,0 +1,190 @@
+package in.lakshay.service;
+
+import in.lakshay.dto.ReviewDTO;
+import in.lakshay.entity.Movie;
+import in.lakshay.entity.Review;
+import in.lakshay.entity.Review.ReviewStatus;
+import in.lakshay.entity.Role;
+import in.lakshay.entity.User;
+import in.lakshay.event.ReviewSubmittedEvent;
+import in.lakshay.repo.MovieRepository;
+import in.lakshay.repo.ReviewRepository;
+import in.lakshay.repo.ReviewVoteRepository;
+import in.lakshay.repo.ReviewVoteRepository.VoteState;
+import in.lakshay.repo.UserRepository;
+import in.lakshay.service.ReviewModerationService.Verdict;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ReviewServiceTest {
+
+    @Mock
+    private ReviewRepository reviewRepository;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private MovieRepository movieRepository;
+
+    @Mock
+    private ReviewVoteRepository reviewVoteRepository;
+
+    @Mock
+    private UserBlockService userBlockService;
+
+    @Mock
+    private ReviewVoteBuffer reviewVoteBuffer;
+
+    @Mock
+    private MovieRatingStatsService movieRatingStatsService;
+
+    @Mock
+    private NearDuplicateService nearDuplicateService;
+
+    @Mock
+    private ReviewSearchService reviewSearchService;
+
+    @Mock
+    private ReviewTagService reviewTagService;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @InjectMocks
+    private ReviewService reviewService;
+
+    private Movie movie;
+    private User viewer;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+
+        movie = new Movie();
+        movie.setId(1L);
+        movie.setTitle("Inception");
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        viewer = new User();
+        viewer.setId(7L);
+        viewer.setUserName("viewer");
+        viewer.setRole(role);
+
+        when(movieRepository.findById(1L)).thenReturn(Optional.of(movie));
+        when(userRepository.findByUserName("viewer")).thenReturn(Optional.of(viewer));
+    }
+
+    @Test
+    void testVoteStatusComesFromOneBatchedQuery() {
+        List<Review> reviews = reviews(3);
+        when(reviewRepository.findByMovieAndStatus(movie, ReviewStatus.APPROVED)).thenReturn(reviews);
+        // viewer upvoted review 1 and downvoted review 3
+        List<VoteState> votes = List.of(vote(1L, true), vote(3L, false));
+        when(reviewVoteRepository.findVoteStates(anyLong(), anyCollection())).thenReturn(votes);
+
+        List<ReviewDTO> dtos = reviewService.getReviewsByMovie(1L, "viewer");
+
+        assertEquals(3, dtos.size());
+        assertTrue(dtos.get(0).isUserHasVoted());
+        assertTrue(dtos.get(0).isUserVoteIsUpvote());
+        assertFalse(dtos.get(1).isUserHasVoted());
+        assertTrue(dtos.get(2).isUserHasVoted());
+        assertFalse(dtos.get(2).isUserVoteIsUpvote());
+
+        verify(reviewVoteRepository, times(1)).findVoteStates(7L, List.of(1L, 2L, 3L));
+        verify(reviewVoteRepository, never()).findByReviewAndUser(any(), any());
+    }
+
+    // a verdict is about the text that was checked - a review edited since then waits for its own check
+    @Test
+    void testModerationVerdictSkipsReviewsEditedSinceTheCheck() {
+        List<Review> reviews = reviews(2);
+        reviews.forEach(review -> review.setStatus(ReviewStatus.PENDING));
+        when(reviewRepository.findForUpdateByIdIn(anyCollection())).thenReturn(reviews);
+
+        int approved = reviewService.applyModerationResults(Map.of(
+                1L, new Verdict("review 1", null),
+                2L, new Verdict("the text before the edit", null)));
+
+        assertEquals(1, approved);
+        assertEquals(ReviewStatus.APPROVED, reviews.get(0).getStatus());
+        assertEquals(ReviewStatus.PENDING, reviews.get(1).getStatus());
+        verify(reviewRepository).saveAll(List.of(reviews.get(0)));
+    }
+
+    // an admin rejected it - editing it must not send it through the automatic checks (which could approve it)
+    @Test
+    void testAuthorEditKeepsRejectedReviewRejected() {
+        Review review = reviews(1).get(0);
+        review.setStatus(ReviewStatus.REJECTED);
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(review));
+        when(userRepository.findByUserName("author1")).thenReturn(Optional.of(review.getUser()));
+        when(reviewRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        reviewService.updateReview(1L, "the same review, reworded", 5, "author1");
+
+        assertEquals(ReviewStatus.REJECTED, review.getStatus());
+        verify(eventPublisher, never()).publishEvent(any(ReviewSubmittedEvent.class));
+        verify(nearDuplicateService, never()).indexAfterCommit(anyLong(), anyLong());
+    }
+
+    // moderation is off here (the @Value field stays false) - a near-duplicate hold has to lift once the
+    // edited text isn't a copy anymore, nothing else would approve it
+    @Test
+    void testEditLiftsNearDuplicateHoldWithModerationOff() {
+        Review review = reviews(1).get(0);
+        review.setStatus(ReviewStatus.PENDING);
+        review.setModerationNote("Near-duplicate of review 42");
+        when(reviewRepository.findById(1L)).thenReturn(Optional.of(review));
+        when(userRepository.findByUserName("author1")).thenReturn(Optional.of(review.getUser()));
+        when(reviewRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        when(nearDuplicateService.findNearDuplicates(anyLong(), any())).thenReturn(List.of());
+
+        reviewService.updateReview(1L, "something else entirely", 4, "author1");
+
+        assertEquals(ReviewStatus.APPROVED, review.getStatus());
+        assertNull(review.getModerationNote());
+    }
+
+    private List<Review> reviews(int count) {
+        List<Review> reviews = new ArrayList<>();
+        for (int i = 1; i <= count; i++) {
+            User author = new User();
+            author.setId(100L + i);
+            author.setUserName("author" + i);
+
+            Review review = new Review();
+            review.setId((long) i);
+            review.setMovie(movie);
+            review.setUser(author);
+            review.setComment("review " + i);
+            review.setRating(4);
+            reviews.add(review);
+        }
+        return reviews;
+    }
+
+    private VoteState vote(Long reviewId, boolean upvote) {
+        VoteState vote = mock(VoteState.class);
+        when(vote.getReviewId()).thenReturn(reviewId);
+        when(vote.getUpvote()).thenReturn(upvote);
+        return vote;
+    }
+}
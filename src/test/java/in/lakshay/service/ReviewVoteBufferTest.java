@@ -0,0 +1,102 @@
+package in.lakshay.service;
+
+import in.lakshay.repo.ReviewRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ReviewVoteBufferTest {
+
+    private static final int REVIEWS = 64;
+
+    private final AtomicLongArray upvotes = new AtomicLongArray(REVIEWS); // what reached the "db"
+    private final AtomicLongArray downvotes = new AtomicLongArray(REVIEWS);
+    private ReviewVoteBuffer buffer;
+
+    @BeforeEach
+    void setUp() {
+        ReviewRepository reviewRepository = mock(ReviewRepository.class, withSettings().stubOnly());
+        when(reviewRepository.applyVoteDelta(anyLong(), anyInt(), anyInt())).thenAnswer(invocation -> {
+            int review = ((Long) invocation.getArgument(0)).intValue();
+            upvotes.addAndGet(review, (Integer) invocation.getArgument(1));
+            downvotes.addAndGet(review, (Integer) invocation.getArgument(2));
+            return 1;
+        });
+        buffer = new ReviewVoteBuffer(reviewRepository, true);
+    }
+
+    // voters and a flush loop racing over many reviews that each get a vote now and then, so entries keep
+    // going idle and getting retired under the voters - every vote has to reach the db exactly once
+    @Test
+    void testConcurrentVotesAndFlushesCountEveryVoteOnce() throws Exception {
+        int voters = 8;
+        int votesPerVoter = 200_000;
+        ExecutorService executor = Executors.newFixedThreadPool(voters + 1);
+        AtomicBoolean voting = new AtomicBoolean(true);
+        Future<?> flusher = executor.submit(() -> {
+            while (voting.get()) {
+                buffer.flush();
+            }
+        });
+
+        List<Future<?>> results = new ArrayList<>();
+        for (int v = 0; v < voters; v++) {
+            int voter = v;
+            results.add(executor.submit(() -> {
+                for (int i = 0; i < votesPerVoter; i++) {
+                    long review = (voter * 7919L + i) % REVIEWS;
+                    buffer.bufferAfterCommit(review, 1, 0);
+                    if (i % 1000 == 0) {
+                        buffer.bufferAfterCommit(review, -1, 1); // someone switched to a downvote
+                    }
+                }
+            }));
+        }
+        for (Future<?> result : results) {
+            result.get();
+        }
+        voting.set(false);
+        flusher.get();
+        executor.shutdown();
+        buffer.flush();
+
+        long up = 0;
+        long down = 0;
+        for (int review = 0; review < REVIEWS; review++) {
+            up += upvotes.get(review);
+            down += downvotes.get(review);
+            assertEquals(0, buffer.pendingUpvotes((long) review));
+            assertEquals(0, buffer.pendingDownvotes((long) review));
+        }
+        long switched = (long) voters * (votesPerVoter / 1000);
+        assertEquals((long) voters * votesPerVoter - switched, up);
+        assertEquals(switched, down);
+    }
+
+    // reconciler pause - what's buffered goes to the db, new votes are handed back to the caller until resume
+    @Test
+    void testPauseFlushesAndStopsBuffering() throws Exception {
+        assertTrue(buffer.bufferAfterCommit(1L, 1, 0));
+
+        assertTrue(buffer.pause(1000));
+        assertEquals(1, upvotes.get(1));
+        assertFalse(buffer.bufferAfterCommit(1L, 1, 0));
+        assertEquals(0, buffer.pendingUpvotes(1L));
+
+        buffer.resume();
+        assertTrue(buffer.bufferAfterCommit(1L, 1, 0));
+        assertEquals(1, buffer.pendingUpvotes(1L));
+    }
+}
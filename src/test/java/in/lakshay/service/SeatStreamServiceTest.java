@@ -0,0 +1,134 @@
+package in.lakshay.service;
+
+import in.lakshay.entity.Showtime;
+import in.lakshay.entity.Theater;
+import in.lakshay.event.SeatStateChangedEvent;
+import in.lakshay.repo.ShowtimeRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SeatStreamServiceTest {
+
+    private static final int QUEUE_CAPACITY = 4;
+
+    private final Deque<SseEmitter> nextEmitters = new ArrayDeque<>();
+    private SeatStreamService service;
+
+    @BeforeEach
+    void setUp() {
+        Showtime showtime = new Showtime();
+        showtime.setTheater(new Theater());
+        ShowtimeRepository showtimeRepository = mock(ShowtimeRepository.class);
+        when(showtimeRepository.findById(1L)).thenReturn(Optional.of(showtime));
+
+        List<Long> ids = new ArrayList<>();
+        List<String> numbers = new ArrayList<>();
+        List<Boolean> reserved = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            ids.add(100L + i);
+            numbers.add("A" + i);
+            reserved.add(false);
+        }
+        SeatAvailabilityEngine seatAvailabilityEngine = mock(SeatAvailabilityEngine.class);
+        when(seatAvailabilityEngine.getSeatMap(1L)).thenReturn(new ShowtimeSeatMap(1L, ids, numbers, reserved));
+        SeatLayoutService seatLayoutService = mock(SeatLayoutService.class);
+        when(seatLayoutService.layoutFor(any())).thenReturn(mock(SeatLayout.class));
+
+        service = new SeatStreamService(seatAvailabilityEngine, seatLayoutService, mock(SeatService.class),
+                showtimeRepository, 60_000, 2, QUEUE_CAPACITY) {
+            @Override
+            SseEmitter newEmitter() {
+                return nextEmitters.pop();
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    // a client that stopped reading stalls its own sends only - the other viewer keeps getting every delta,
+    // and once the stalled one is a whole queue behind it's completed instead of buffered forever
+    @Test
+    void testSlowViewerIsDroppedWithoutHoldingUpOthers() throws Exception {
+        CountDownLatch unstall = new CountDownLatch(1);
+        RecordingEmitter slow = new RecordingEmitter(unstall);
+        RecordingEmitter fast = new RecordingEmitter(null);
+        nextEmitters.add(slow);
+        nextEmitters.add(fast);
+        service.subscribe(1L);
+        service.subscribe(1L);
+
+        assertTrue(fast.awaitEvents(1)); // snapshot
+        // a change at a time, each reaching the fast viewer while the slow one is still stuck on its snapshot
+        for (int i = 0; i < 20; i++) {
+            service.onSeatStateChanged(new SeatStateChangedEvent(1L, List.of("A" + (i % 10)), i % 2 == 0));
+            assertTrue(fast.awaitEvents(i + 2));
+        }
+        assertFalse(slow.completed.await(100, TimeUnit.MILLISECONDS)); // completing waits for the stuck write
+        unstall.countDown();
+        assertTrue(slow.completed.await(5, TimeUnit.SECONDS));
+        assertTrue(slow.sent.get() <= 1 + QUEUE_CAPACITY);
+
+        service.onSeatStateChanged(new SeatStateChangedEvent(1L, List.of("A1"), true));
+        assertTrue(fast.awaitEvents(22));
+        assertEquals(1, fast.completed.getCount()); // still connected
+    }
+
+    // stands in for the servlet response: counts what got written, optionally stalling the first write
+    private static final class RecordingEmitter extends SseEmitter {
+        private final CountDownLatch stall;
+        private final AtomicInteger sent = new AtomicInteger();
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        RecordingEmitter(CountDownLatch stall) {
+            this.stall = stall;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            if (stall != null) {
+                try {
+                    stall.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException(e);
+                }
+            }
+            synchronized (this) {
+                sent.incrementAndGet();
+                notifyAll();
+            }
+        }
+
+        @Override
+        public void complete() {
+            completed.countDown();
+        }
+
+        synchronized boolean awaitEvents(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (sent.get() < count && System.currentTimeMillis() < deadline) {
+                wait(100);
+            }
+            return sent.get() >= count;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package in.lakshay.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShowtimeSeatMapTest {
+
+    private ShowtimeSeatMap seatMap;
+
+    @BeforeEach
+    void setUp() {
+        // 150 seats, seat at position 5 already reserved in the db
+        List<Long> ids = new ArrayList<>();
+        List<String> numbers = new ArrayList<>();
+        List<Boolean> reserved = new ArrayList<>();
+        for (int i = 0; i < 150; i++) {
+            ids.add(1000L + i);
+            numbers.add("S" + i);
+            reserved.add(i == 5);
+        }
+        seatMap = new ShowtimeSeatMap(1L, ids, numbers, reserved);
+    }
+
+    @Test
+    void testLoadedState() {
+        assertEquals(149, seatMap.getAvailableSeats());
+        assertTrue(seatMap.isReserved(5));
+        assertEquals(5, seatMap.positionOf(1005L));
+        assertNull(seatMap.positionOf(42L));
+        assertEquals(5, seatMap.positionOf("S5"));
+        assertNull(seatMap.positionOf("Z99"));
+    }
+
+    @Test
+    void testClaimIsAllOrNothing() {
+        // seat 5 is taken so nothing should be claimed
+        assertFalse(seatMap.tryClaim(new int[]{1, 2, 5}));
+        assertFalse(seatMap.isReserved(1));
+        assertFalse(seatMap.isReserved(2));
+        assertEquals(149, seatMap.getAvailableSeats());
+        assertEquals(List.of("S5"), seatMap.reservedSeatNumbers(new int[]{1, 2, 5}));
+    }
+
+    @Test
+    void testClaimAndRelease() {
+        assertTrue(seatMap.tryClaim(new int[]{63, 64, 149})); // crosses a word boundary
+        assertEquals(146, seatMap.getAvailableSeats());
+
+        seatMap.release(new int[]{63, 64, 149, 63}); // double release is a no-op
+        assertEquals(149, seatMap.getAvailableSeats());
+    }
+
+    @Test
+    void testReservedBitsAcrossWords() {
+        seatMap.tryClaim(new int[]{62, 65});
+        // positions 60..69 -> bits 2 and 5
+        assertEquals(0b100100L, seatMap.reservedBits(60, 10));
+        // the whole first word: the preloaded seat 5 and the claimed 62
+        assertEquals((1L << 62) | (1L << 5), seatMap.reservedBits(0, 64));
+    }
+
+    @Test
+    void testConcurrentClaimsOnlyOneWins() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> results = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            results.add(executor.submit(() -> seatMap.tryClaim(new int[]{10, 70, 140})));
+        }
+
+        int wins = 0;
+        for (Future<Boolean> result : results) {
+            if (result.get()) {
+                wins++;
+            }
+        }
+        executor.shutdown();
+
+        assertEquals(1, wins);
+        assertEquals(146, seatMap.getAvailableSeats());
+    }
+}